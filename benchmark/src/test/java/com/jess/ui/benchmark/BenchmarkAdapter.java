@@ -0,0 +1,100 @@
+package com.jess.ui.benchmark;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+/**
+ * Adapter over a synthetic data set of any size. Every cell is a
+ * {@link BenchmarkCell} of a fixed size, and the adapter counts how often
+ * the grid asks it for views so the benchmark can report binds per frame.
+ */
+class BenchmarkAdapter extends BaseAdapter {
+	private final Context mContext;
+	private final int mCount;
+	private final int mCellSize;
+
+	private int mGetViewCount;
+	private int mInflateCount;
+
+	BenchmarkAdapter(Context context, int count, int cellSize) {
+		mContext = context;
+		mCount = count;
+		mCellSize = cellSize;
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public Object getItem(int position) {
+		return null;
+	}
+
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	public View getView(int position, View convertView, ViewGroup parent) {
+		mGetViewCount++;
+		BenchmarkCell cell = (BenchmarkCell) convertView;
+		if (cell == null) {
+			mInflateCount++;
+			cell = new BenchmarkCell(mContext, mCellSize);
+		}
+		cell.bind(position);
+		return cell;
+	}
+
+	int getViewCount() {
+		return mGetViewCount;
+	}
+
+	int getInflateCount() {
+		return mInflateCount;
+	}
+
+	void resetCounters() {
+		mGetViewCount = 0;
+		mInflateCount = 0;
+	}
+
+	/**
+	 * A cell that takes whatever size the grid gives it on the exact axis
+	 * and {@code cellSize} pixels on the other one.
+	 */
+	static class BenchmarkCell extends View {
+		private final int mCellSize;
+		private int mPosition = -1;
+
+		BenchmarkCell(Context context, int cellSize) {
+			super(context);
+			mCellSize = cellSize;
+		}
+
+		void bind(int position) {
+			if (mPosition != position) {
+				mPosition = position;
+				requestLayout();
+			}
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			setMeasuredDimension(sizeFor(widthMeasureSpec), sizeFor(heightMeasureSpec));
+		}
+
+		private int sizeFor(int measureSpec) {
+			if (MeasureSpec.getMode(measureSpec) == MeasureSpec.EXACTLY) {
+				return MeasureSpec.getSize(measureSpec);
+			}
+			return mCellSize;
+		}
+	}
+}
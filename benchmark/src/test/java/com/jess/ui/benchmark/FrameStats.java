@@ -0,0 +1,98 @@
+package com.jess.ui.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Collects per-frame samples for one benchmark scenario: wall time,
+ * {@code getView} calls and bytes allocated on the calling thread.
+ */
+class FrameStats {
+	private static final com.sun.management.ThreadMXBean sThreadBean = threadBean();
+
+	private long[] mNanos = new long[256];
+	private int[] mGetViews = new int[256];
+	private long[] mAllocated = new long[256];
+	private int mFrames;
+
+	private long mFrameStartNanos;
+	private long mFrameStartAllocated;
+	private int mFrameStartGetViews;
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()) {
+				sunBean.setThreadAllocatedMemoryEnabled(true);
+				return sunBean;
+			}
+		}
+		return null;
+	}
+
+	private static long allocatedBytes() {
+		return sThreadBean != null
+				? sThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	void beginFrame(int getViewCount) {
+		mFrameStartGetViews = getViewCount;
+		mFrameStartAllocated = allocatedBytes();
+		mFrameStartNanos = System.nanoTime();
+	}
+
+	void endFrame(int getViewCount) {
+		final long nanos = System.nanoTime() - mFrameStartNanos;
+		final long allocated = allocatedBytes() - mFrameStartAllocated;
+
+		if (mFrames == mNanos.length) {
+			final int size = mFrames * 2;
+			mNanos = Arrays.copyOf(mNanos, size);
+			mGetViews = Arrays.copyOf(mGetViews, size);
+			mAllocated = Arrays.copyOf(mAllocated, size);
+		}
+		mNanos[mFrames] = nanos;
+		mGetViews[mFrames] = getViewCount - mFrameStartGetViews;
+		mAllocated[mFrames] = allocated;
+		mFrames++;
+	}
+
+	int getFrameCount() {
+		return mFrames;
+	}
+
+	static String header() {
+		return String.format(Locale.US, "%-44s %6s %10s %10s %10s %8s %8s %12s",
+				"scenario", "frames", "ns/frame", "p90 ns", "max ns",
+				"getView", "max gV", "alloc B/fr");
+	}
+
+	String format(String scenario) {
+		if (mFrames == 0) {
+			return String.format(Locale.US, "%-44s %6d", scenario, 0);
+		}
+		long totalNanos = 0;
+		long totalGetViews = 0;
+		long totalAllocated = 0;
+		int maxGetViews = 0;
+		for (int i = 0; i < mFrames; i++) {
+			totalNanos += mNanos[i];
+			totalGetViews += mGetViews[i];
+			totalAllocated += mAllocated[i];
+			maxGetViews = Math.max(maxGetViews, mGetViews[i]);
+		}
+		final long[] sorted = Arrays.copyOf(mNanos, mFrames);
+		Arrays.sort(sorted);
+
+		return String.format(Locale.US, "%-44s %6d %10d %10d %10d %8.2f %8d %12d",
+				scenario, mFrames,
+				totalNanos / mFrames,
+				sorted[(int) ((mFrames - 1) * 0.9f)],
+				sorted[mFrames - 1],
+				totalGetViews / (double) mFrames,
+				maxGetViews,
+				totalAllocated / mFrames);
+	}
+}
@@ -0,0 +1,285 @@
+package com.jess.ui.benchmark;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.jess.ui.TwoWayAbsListView;
+import com.jess.ui.TwoWayGridView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scripted drag, fling and relayout scenarios against {@link TwoWayGridView}
+ * in both scroll directions, over data sets of 1k, 100k and 1M items.
+ *
+ * <p>Time is simulated: every frame advances the clock by {@link #FRAME_MS}
+ * and then runs the main looper tasks that were due before the frame began,
+ * so a self re-posting runnable such as the fling advances exactly once per
+ * frame. For each scenario we report the mean, 90th percentile and worst
+ * frame time, the number of {@code getView} calls per frame and the bytes
+ * allocated on the main thread per frame.</p>
+ *
+ * <p>Absolute times are JVM times, not device times. Compare runs against
+ * each other, not against a frame budget.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class GridScrollBenchmark {
+	private static final int[] ITEM_COUNTS = { 1000, 100000, 1000000 };
+	private static final int[] LANE_COUNTS = { 2, 4, 8 };
+
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 1920;
+	private static final int CELL_SIZE = 240;
+	private static final int SPACING = 8;
+
+	private static final long FRAME_MS = 16;
+	private static final int DRAG_FRAMES = 120;
+	private static final int DRAG_STEP = 40;
+	private static final int FLING_STEP = 180;
+	private static final int MAX_FLING_FRAMES = 1200;
+	private static final int RELAYOUT_FRAMES = 60;
+
+	private Activity mActivity;
+	private FrameLayout mRoot;
+	private int mScrollState;
+
+	@Before
+	public void setUp() {
+		mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+		mRoot = new FrameLayout(mActivity);
+		mActivity.setContentView(mRoot);
+		settle();
+	}
+
+	@Test
+	public void scrollAndLayout() throws IOException {
+		// Let the JIT see every code path once before anything is recorded
+		runAll(new ArrayList<String>(), ITEM_COUNTS[0]);
+
+		final List<String> results = new ArrayList<String>();
+		results.add(FrameStats.header());
+		for (int itemCount : ITEM_COUNTS) {
+			runAll(results, itemCount);
+		}
+
+		report(results);
+	}
+
+	private void runAll(List<String> results, int itemCount) {
+		for (int vertical = 1; vertical >= 0; vertical--) {
+			for (int lanes : LANE_COUNTS) {
+				final String name = (vertical == 1 ? "vertical" : "horizontal")
+						+ " lanes=" + lanes + " items=" + itemCount;
+				results.add(drag(name + " drag", vertical == 1, lanes, itemCount));
+				results.add(fling(name + " fling", vertical == 1, lanes, itemCount));
+				results.add(relayout(name + " relayout", vertical == 1, lanes, itemCount));
+			}
+		}
+	}
+
+	/**
+	 * Drags half of the frames towards the end of the data and the other half
+	 * back again, one ACTION_MOVE per frame.
+	 */
+	private String drag(String name, boolean vertical, int lanes, int itemCount) {
+		final BenchmarkAdapter adapter = new BenchmarkAdapter(mActivity, itemCount, CELL_SIZE);
+		final TwoWayGridView grid = attachGrid(vertical, lanes, adapter);
+		final FrameStats stats = new FrameStats();
+
+		final long downTime = SystemClock.uptimeMillis();
+		float x = WIDTH / 2;
+		float y = HEIGHT / 2;
+		dispatch(grid, downTime, MotionEvent.ACTION_DOWN, x, y);
+		adapter.resetCounters();
+
+		for (int frame = 0; frame < DRAG_FRAMES; frame++) {
+			final int step = frame < DRAG_FRAMES / 2 ? -DRAG_STEP : DRAG_STEP;
+			if (vertical) {
+				y += step;
+			} else {
+				x += step;
+			}
+
+			stats.beginFrame(adapter.getViewCount());
+			advanceClock();
+			dispatch(grid, downTime, MotionEvent.ACTION_MOVE, x, y);
+			runDueTasks();
+			stats.endFrame(adapter.getViewCount());
+		}
+
+		dispatch(grid, downTime, MotionEvent.ACTION_CANCEL, x, y);
+		settle();
+
+		assertTrue(stats.getFrameCount() > 0);
+		return stats.format(name);
+	}
+
+	/**
+	 * Flicks towards the end of the data and records every frame until the
+	 * fling comes to rest.
+	 */
+	private String fling(String name, boolean vertical, int lanes, int itemCount) {
+		final BenchmarkAdapter adapter = new BenchmarkAdapter(mActivity, itemCount, CELL_SIZE);
+		final TwoWayGridView grid = attachGrid(vertical, lanes, adapter);
+		final FrameStats stats = new FrameStats();
+
+		final long downTime = SystemClock.uptimeMillis();
+		float x = vertical ? WIDTH / 2 : WIDTH - CELL_SIZE;
+		float y = vertical ? HEIGHT - CELL_SIZE : HEIGHT / 2;
+		dispatch(grid, downTime, MotionEvent.ACTION_DOWN, x, y);
+		for (int i = 0; i < 4; i++) {
+			if (vertical) {
+				y -= FLING_STEP;
+			} else {
+				x -= FLING_STEP;
+			}
+			advanceClock();
+			dispatch(grid, downTime, MotionEvent.ACTION_MOVE, x, y);
+			runDueTasks();
+		}
+
+		adapter.resetCounters();
+		mScrollState = TwoWayAbsListView.OnScrollListener.SCROLL_STATE_FLING;
+		dispatch(grid, downTime, MotionEvent.ACTION_UP, x, y);
+
+		for (int frame = 0; frame < MAX_FLING_FRAMES
+				&& mScrollState != TwoWayAbsListView.OnScrollListener.SCROLL_STATE_IDLE; frame++) {
+			stats.beginFrame(adapter.getViewCount());
+			advanceClock();
+			runDueTasks();
+			stats.endFrame(adapter.getViewCount());
+		}
+		settle();
+
+		assertTrue(stats.getFrameCount() > 0);
+		return stats.format(name);
+	}
+
+	/**
+	 * Signals a data set change and lays the grid out again, once per frame.
+	 */
+	private String relayout(String name, boolean vertical, int lanes, int itemCount) {
+		final BenchmarkAdapter adapter = new BenchmarkAdapter(mActivity, itemCount, CELL_SIZE);
+		final TwoWayGridView grid = attachGrid(vertical, lanes, adapter);
+		final FrameStats stats = new FrameStats();
+		final int widthSpec = View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY);
+		final int heightSpec = View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY);
+		adapter.resetCounters();
+
+		for (int frame = 0; frame < RELAYOUT_FRAMES; frame++) {
+			stats.beginFrame(adapter.getViewCount());
+			advanceClock();
+			adapter.notifyDataSetChanged();
+			grid.measure(widthSpec, heightSpec);
+			grid.layout(0, 0, WIDTH, HEIGHT);
+			runDueTasks();
+			stats.endFrame(adapter.getViewCount());
+		}
+		settle();
+
+		assertTrue(stats.getFrameCount() > 0);
+		return stats.format(name);
+	}
+
+	private TwoWayGridView attachGrid(boolean vertical, int lanes, BenchmarkAdapter adapter) {
+		final TwoWayGridView grid = new TwoWayGridView(mActivity);
+		final int direction = vertical
+				? TwoWayAbsListView.SCROLL_VERTICAL : TwoWayAbsListView.SCROLL_HORIZONTAL;
+		grid.setScrollDirectionPortrait(direction);
+		grid.setScrollDirectionLandscape(direction);
+		grid.setNumColumns(lanes);
+		grid.setNumRows(lanes);
+		grid.setStretchMode(TwoWayGridView.STRETCH_COLUMN_WIDTH);
+		grid.setHorizontalSpacing(SPACING);
+		grid.setVerticalSpacing(SPACING);
+		grid.setOnScrollListener(new TwoWayAbsListView.OnScrollListener() {
+			public void onScrollStateChanged(TwoWayAbsListView view, int scrollState) {
+				mScrollState = scrollState;
+			}
+
+			public void onScroll(TwoWayAbsListView view, int firstVisibleItem,
+					int visibleItemCount, int totalItemCount) {
+			}
+		});
+		grid.setAdapter(adapter);
+
+		mRoot.removeAllViews();
+		mRoot.addView(grid, new FrameLayout.LayoutParams(WIDTH, HEIGHT));
+		settle();
+		return grid;
+	}
+
+	private static void dispatch(View view, long downTime, int action, float x, float y) {
+		final MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(),
+				action, x, y, 0);
+		view.dispatchTouchEvent(event);
+		event.recycle();
+	}
+
+	private static void advanceClock() {
+		ShadowSystemClock.advanceBy(Duration.ofMillis(FRAME_MS));
+	}
+
+	/**
+	 * Runs the main looper tasks scheduled before the current frame. Anything
+	 * posted while those run is left for the next frame.
+	 */
+	private static void runDueTasks() {
+		final ShadowLooper looper = shadowOf(Looper.getMainLooper());
+		final Duration frameTime = Duration.ofMillis(SystemClock.uptimeMillis());
+		while (!looper.isIdle() && looper.getNextScheduledTaskTime().compareTo(frameTime) < 0) {
+			looper.runOneTask();
+		}
+	}
+
+	/**
+	 * Drains the looper between scenarios, with no frame being recorded.
+	 */
+	private static void settle() {
+		for (int i = 0; i < 8; i++) {
+			advanceClock();
+			runDueTasks();
+		}
+	}
+
+	private static void report(List<String> results) throws IOException {
+		final String path = System.getProperty("benchmark.output");
+		final PrintWriter out = path != null ? new PrintWriter(new FileWriter(path)) : null;
+		try {
+			for (String line : results) {
+				System.out.println(line);
+				if (out != null) {
+					out.println(line);
+				}
+			}
+		} finally {
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ * Fast scroll thumb for TwoWayAbsListView
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.ViewParent;
+import android.widget.SectionIndexer;
+
+/**
+ * Draws the fast scroll thumb of a {@link TwoWayAbsListView} along its
+ * scroll axis, at the right edge when scrolling vertically and at the bottom
+ * when scrolling horizontally, and jumps the list when the thumb is dragged.
+ *
+ * <p>Without sections the thumb maps linearly onto the positions. When the
+ * adapter implements {@link SectionIndexer}, every section gets an equal
+ * share of the track like the framework's fast scroller, and the section
+ * under the thumb is shown as a preview in the middle of the list. Either
+ * way the target position is worked out from the track fraction directly,
+ * or from a binary search over the section starts, and the list is laid out
+ * again around it. Nothing between the old and the new position is bound,
+ * and the preview is the section's label, not a bound cell.</p>
+ */
+final class FastScroller {
+	private static final int STATE_NONE = 0;
+	private static final int STATE_VISIBLE = 1;
+	private static final int STATE_DRAGGING = 2;
+	private static final int STATE_EXIT = 3;
+
+	/**
+	 * The list must have at least this many screens of items to get a thumb
+	 */
+	private static final int MIN_PAGES = 4;
+
+	private static final int HIDE_DELAY = 1500;
+	private static final int FADE_DURATION = 200;
+
+	private static final int THUMB_LENGTH_DIP = 48;
+	private static final int THUMB_THICKNESS_DIP = 8;
+	private static final int TOUCH_THICKNESS_DIP = 32;
+	private static final int MARGIN_DIP = 2;
+	private static final int PREVIEW_SIZE_DIP = 88;
+	private static final int PREVIEW_TEXT_DIP = 48;
+
+	private static final int THUMB_COLOR = 0xAA888888;
+	private static final int THUMB_DRAGGING_COLOR = 0xEE666666;
+	private static final int PREVIEW_COLOR = 0xCC333333;
+	private static final int PREVIEW_TEXT_COLOR = 0xFFFFFFFF;
+
+	private final TwoWayAbsListView mList;
+
+	private final int mThumbLength;
+	private final int mThumbThickness;
+	private final int mTouchThickness;
+	private final int mMargin;
+	private final int mPreviewSize;
+
+	private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint mPreviewPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final RectF mRect = new RectF();
+
+	private int mState = STATE_NONE;
+	private long mExitStart;
+
+	/**
+	 * Where the thumb starts along the track, in pixels
+	 */
+	private int mThumbOffset;
+
+	private int mVisibleItem = 0;
+
+	/**
+	 * The indexer's sections, read when a drag starts
+	 */
+	private Object[] mSections;
+	private String mSectionLabel;
+	private int mLastJumpPosition = TwoWayAdapterView.INVALID_POSITION;
+
+	private final Runnable mHide = new Runnable() {
+		public void run() {
+			if (mState == STATE_VISIBLE) {
+				setState(STATE_EXIT);
+			}
+		}
+	};
+
+	FastScroller(Context context, TwoWayAbsListView list) {
+		mList = list;
+		final float density = context.getResources().getDisplayMetrics().density;
+		mThumbLength = (int) (THUMB_LENGTH_DIP * density + 0.5f);
+		mThumbThickness = (int) (THUMB_THICKNESS_DIP * density + 0.5f);
+		mTouchThickness = (int) (TOUCH_THICKNESS_DIP * density + 0.5f);
+		mMargin = (int) (MARGIN_DIP * density + 0.5f);
+		mPreviewSize = (int) (PREVIEW_SIZE_DIP * density + 0.5f);
+
+		mPreviewPaint.setColor(PREVIEW_COLOR);
+		mTextPaint.setColor(PREVIEW_TEXT_COLOR);
+		mTextPaint.setTextSize(PREVIEW_TEXT_DIP * density);
+		mTextPaint.setTextAlign(Paint.Align.CENTER);
+	}
+
+	void stop() {
+		mList.removeCallbacks(mHide);
+		setState(STATE_NONE);
+	}
+
+	private void setState(int state) {
+		switch (state) {
+		case STATE_NONE:
+			mSections = null;
+			mSectionLabel = null;
+			break;
+		case STATE_VISIBLE:
+			mList.removeCallbacks(mHide);
+			break;
+		case STATE_EXIT:
+			mExitStart = SystemClock.uptimeMillis();
+			break;
+		}
+		mState = state;
+		mList.invalidate();
+	}
+
+	private void scheduleHide() {
+		mList.removeCallbacks(mHide);
+		mList.postDelayed(mHide, HIDE_DELAY);
+	}
+
+	/**
+	 * @return The length the thumb can move along
+	 */
+	private int getTrackLength() {
+		final int length = mList.mScrollVertically ? mList.getHeight() : mList.getWidth();
+		return Math.max(0, length - mThumbLength);
+	}
+
+	void onSizeChanged() {
+		mThumbOffset = Math.min(mThumbOffset, getTrackLength());
+	}
+
+	void onScroll(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+		final boolean longList = visibleItemCount > 0
+				&& totalItemCount / visibleItemCount >= MIN_PAGES;
+		if (!longList) {
+			if (mState != STATE_NONE) {
+				stop();
+			}
+			return;
+		}
+		if (mState == STATE_DRAGGING) {
+			return;
+		}
+
+		final float fraction = firstVisibleItem + visibleItemCount >= totalItemCount ? 1 :
+				getFraction(firstVisibleItem, totalItemCount);
+		mThumbOffset = (int) (fraction * getTrackLength());
+
+		if (firstVisibleItem != mVisibleItem) {
+			mVisibleItem = firstVisibleItem;
+			setState(STATE_VISIBLE);
+			scheduleHide();
+		}
+	}
+
+	/**
+	 * @return Where position sits on the track, from 0 to 1
+	 */
+	private float getFraction(int position, int itemCount) {
+		final SectionIndex sections = mList.getSectionIndex();
+		final int sectionCount = sections.getSectionCount();
+		if (sectionCount == 0) {
+			return itemCount > 0 ? (float) position / itemCount : 0;
+		}
+		final int section = Math.max(0, sections.getSectionForPosition(position));
+		final int start = getSectionStart(sections, section);
+		final int end = getSectionEnd(sections, section, itemCount);
+		final float within = end > start ? (float) (position - start) / (end - start) : 0;
+		return (section + within) / sectionCount;
+	}
+
+	/**
+	 * @return The position at fraction of the track, from 0 to 1
+	 */
+	private int getPosition(float fraction, int itemCount) {
+		final SectionIndex sections = mList.getSectionIndex();
+		final int sectionCount = sections.getSectionCount();
+		if (sectionCount == 0) {
+			return Math.min((int) (fraction * itemCount), itemCount - 1);
+		}
+		final float exact = fraction * sectionCount;
+		final int section = Math.min((int) exact, sectionCount - 1);
+		final int start = getSectionStart(sections, section);
+		final int end = getSectionEnd(sections, section, itemCount);
+		final int position = start + (int) ((exact - section) * (end - start));
+		return Math.min(position, itemCount - 1);
+	}
+
+	/**
+	 * Items before the first section count as part of it.
+	 */
+	private static int getSectionStart(SectionIndex sections, int section) {
+		return section == 0 ? 0 : sections.getSectionStart(section);
+	}
+
+	private static int getSectionEnd(SectionIndex sections, int section, int itemCount) {
+		return section + 1 < sections.getSectionCount() ?
+				sections.getSectionStart(section + 1) : itemCount;
+	}
+
+	/**
+	 * Jumps the list to the position at fraction of the track and picks the
+	 * label of its section for the preview.
+	 */
+	private void scrollTo(float fraction) {
+		final int itemCount = mList.mItemCount;
+		if (itemCount == 0) {
+			return;
+		}
+		final int position = getPosition(fraction, itemCount);
+
+		mSectionLabel = null;
+		if (mSections != null) {
+			final SectionIndex sections = mList.getSectionIndex();
+			final int section = sections.getSectionForPosition(position);
+			if (section >= 0) {
+				final int indexerSection = sections.getIndexerSection(section);
+				if (indexerSection < mSections.length && mSections[indexerSection] != null) {
+					mSectionLabel = mSections[indexerSection].toString();
+				}
+			}
+		}
+
+		if (position != mLastJumpPosition) {
+			mLastJumpPosition = position;
+			mList.jumpToPosition(position);
+		}
+	}
+
+	private boolean isPointInside(float x, float y) {
+		if (mList.mScrollVertically) {
+			return x > mList.getWidth() - mTouchThickness
+					&& y >= mThumbOffset && y <= mThumbOffset + mThumbLength;
+		}
+		return y > mList.getHeight() - mTouchThickness
+				&& x >= mThumbOffset && x <= mThumbOffset + mThumbLength;
+	}
+
+	private void beginDrag() {
+		setState(STATE_DRAGGING);
+		mList.stopScroll();
+		mSections = mList.mAdapter instanceof SectionIndexer ?
+				((SectionIndexer) mList.mAdapter).getSections() : null;
+		mLastJumpPosition = TwoWayAdapterView.INVALID_POSITION;
+
+		final ViewParent parent = mList.getParent();
+		if (parent != null) {
+			parent.requestDisallowInterceptTouchEvent(true);
+		}
+	}
+
+	boolean onInterceptTouchEvent(MotionEvent ev) {
+		if (mState > STATE_NONE && ev.getAction() == MotionEvent.ACTION_DOWN
+				&& isPointInside(ev.getX(), ev.getY())) {
+			beginDrag();
+			return true;
+		}
+		return false;
+	}
+
+	boolean onTouchEvent(MotionEvent ev) {
+		if (mState == STATE_NONE) {
+			return false;
+		}
+
+		switch (ev.getAction()) {
+		case MotionEvent.ACTION_DOWN:
+			if (isPointInside(ev.getX(), ev.getY())) {
+				beginDrag();
+				return true;
+			}
+			break;
+		case MotionEvent.ACTION_UP:
+		case MotionEvent.ACTION_CANCEL:
+			if (mState == STATE_DRAGGING) {
+				setState(STATE_VISIBLE);
+				mSectionLabel = null;
+				scheduleHide();
+				return true;
+			}
+			break;
+		case MotionEvent.ACTION_MOVE:
+			if (mState == STATE_DRAGGING) {
+				final int track = getTrackLength();
+				final float coordinate = mList.mScrollVertically ? ev.getY() : ev.getX();
+				mThumbOffset = Math.max(0, Math.min(track, (int) coordinate - mThumbLength / 2));
+				scrollTo(track > 0 ? (float) mThumbOffset / track : 0);
+				mList.invalidate();
+				return true;
+			}
+			break;
+		}
+		return false;
+	}
+
+	void draw(Canvas canvas) {
+		if (mState == STATE_NONE) {
+			return;
+		}
+
+		int alpha = 255;
+		if (mState == STATE_EXIT) {
+			final long elapsed = SystemClock.uptimeMillis() - mExitStart;
+			if (elapsed >= FADE_DURATION) {
+				mState = STATE_NONE;
+				return;
+			}
+			alpha = (int) (255 * (FADE_DURATION - elapsed) / FADE_DURATION);
+			mList.invalidate();
+		}
+
+		final int color = mState == STATE_DRAGGING ? THUMB_DRAGGING_COLOR : THUMB_COLOR;
+		mThumbPaint.setColor(color);
+		mThumbPaint.setAlpha((color >>> 24) * alpha / 255);
+
+		final int width = mList.getWidth();
+		final int height = mList.getHeight();
+		final float radius = mThumbThickness / 2f;
+		if (mList.mScrollVertically) {
+			final int right = width - mMargin;
+			mRect.set(right - mThumbThickness, mThumbOffset, right, mThumbOffset + mThumbLength);
+		} else {
+			final int bottom = height - mMargin;
+			mRect.set(mThumbOffset, bottom - mThumbThickness, mThumbOffset + mThumbLength, bottom);
+		}
+		canvas.drawRoundRect(mRect, radius, radius, mThumbPaint);
+
+		if (mState == STATE_DRAGGING && mSectionLabel != null) {
+			final float textWidth = mTextPaint.measureText(mSectionLabel);
+			final float boxWidth = Math.max(mPreviewSize, textWidth + mPreviewSize / 2);
+			final float left = (width - boxWidth) / 2;
+			final float top = (height - mPreviewSize) / 2;
+			mRect.set(left, top, left + boxWidth, top + mPreviewSize);
+			final float corner = mPreviewSize / 8f;
+			canvas.drawRoundRect(mRect, corner, corner, mPreviewPaint);
+
+			final float baseline = top + mPreviewSize / 2
+					- (mTextPaint.descent() + mTextPaint.ascent()) / 2;
+			canvas.drawText(mSectionLabel, width / 2f, baseline, mTextPaint);
+		}
+	}
+}
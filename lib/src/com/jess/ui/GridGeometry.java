@@ -0,0 +1,537 @@
+/*
+ * Axis-neutral cell math shared by the vertical and horizontal grid builders
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+
+/**
+ * The cell math behind {@link TwoWayGridView}, written once for both scroll
+ * directions and working only on primitive ints so it can be exercised
+ * without a device.
+ *
+ * <p>The grid is described in terms of <em>lines</em> and <em>lanes</em>.
+ * A line is a row when the grid scrolls vertically and a column when it
+ * scrolls horizontally; lanes are the cells across a line (the columns of a
+ * vertical grid, the rows of a horizontal one). The "main" axis is the scroll
+ * axis, the "cross" axis is the other one.</p>
+ *
+ * <p>Nothing in here allocates. Methods that produce more than one value
+ * write them into a caller supplied array.</p>
+ *
+ * <p>With a {@link SpanIndex} set, items can cover more than one lane and
+ * lines no longer hold the same number of items; the line lookups then go
+ * through the index. Spans are only supported when not stacking from the
+ * bottom, so the grid leaves the index unset while it stacks from the
+ * bottom.</p>
+ */
+final class GridGeometry {
+	/**
+	 * Index into the array filled by {@link #getCell}: main axis start of the cell
+	 */
+	static final int CELL_MAIN_START = 0;
+	/**
+	 * Index into the array filled by {@link #getCell}: cross axis start of the cell
+	 */
+	static final int CELL_CROSS_START = 1;
+	/**
+	 * Index into the array filled by {@link #getCell}: main axis end of the cell
+	 */
+	static final int CELL_MAIN_END = 2;
+	/**
+	 * Index into the array filled by {@link #getCell}: cross axis end of the cell
+	 */
+	static final int CELL_CROSS_END = 3;
+
+	private int mLanes = 1;
+	private int mLaneSize;
+	private int mLaneSpacing;
+	private int mLineSize;
+	private int mLineSpacing;
+	private boolean mUniformSpacing;
+	private SpanIndex mSpans;
+
+	/**
+	 * Works out the number of lanes, their size and the spacing between them
+	 * for the space available across the scroll axis. This is the math that
+	 * used to live in determineColumns() and determineRows().
+	 *
+	 * @param availableSpace Space across the scroll axis, without padding
+	 * @param requestedLanes Requested number of lanes, or
+	 *        {@link TwoWayGridView#AUTO_FIT}
+	 * @param requestedLaneSize Requested column width or row height
+	 * @param requestedLaneSpacing Requested spacing between lanes
+	 * @param stretchMode One of the TwoWayGridView stretch modes
+	 */
+	void determineLanes(int availableSpace, int requestedLanes, int requestedLaneSize,
+			int requestedLaneSpacing, int stretchMode) {
+		int lanes;
+		if (requestedLanes == TwoWayGridView.AUTO_FIT) {
+			if (requestedLaneSize > 0) {
+				// Client told us to pick the number of lanes
+				lanes = (availableSpace + requestedLaneSpacing) /
+						(requestedLaneSize + requestedLaneSpacing);
+			} else {
+				// Just make up a number if we don't have enough info
+				lanes = 2;
+			}
+		} else {
+			// We picked the lanes
+			lanes = requestedLanes;
+		}
+
+		if (lanes <= 0) {
+			lanes = 1;
+		}
+		mLanes = lanes;
+		if (mSpans != null) {
+			mSpans.setLanes(lanes);
+		}
+		mUniformSpacing = stretchMode == TwoWayGridView.STRETCH_SPACING_UNIFORM;
+
+		int spaceLeftOver;
+		switch (stretchMode) {
+		case TwoWayGridView.STRETCH_COLUMN_WIDTH:
+			// Stretch the lanes
+			spaceLeftOver = availableSpace - (lanes * requestedLaneSize) -
+					((lanes - 1) * requestedLaneSpacing);
+			mLaneSize = requestedLaneSize + spaceLeftOver / lanes;
+			mLaneSpacing = requestedLaneSpacing;
+			break;
+
+		case TwoWayGridView.STRETCH_SPACING:
+			// Stretch the spacing between lanes
+			spaceLeftOver = availableSpace - (lanes * requestedLaneSize) -
+					((lanes - 1) * requestedLaneSpacing);
+			mLaneSize = requestedLaneSize;
+			if (lanes > 1) {
+				mLaneSpacing = requestedLaneSpacing + spaceLeftOver / (lanes - 1);
+			} else {
+				mLaneSpacing = requestedLaneSpacing + spaceLeftOver;
+			}
+			break;
+
+		case TwoWayGridView.STRETCH_SPACING_UNIFORM:
+			// Stretch the spacing between lanes and around the outer ones
+			spaceLeftOver = availableSpace - (lanes * requestedLaneSize) -
+					((lanes + 1) * requestedLaneSpacing);
+			mLaneSize = requestedLaneSize;
+			if (lanes > 1) {
+				mLaneSpacing = requestedLaneSpacing + spaceLeftOver / (lanes + 1);
+			} else {
+				mLaneSpacing = ((requestedLaneSpacing * 2) + spaceLeftOver) / 2;
+			}
+			break;
+
+		case TwoWayGridView.NO_STRETCH:
+		default:
+			// Nobody stretches
+			mLaneSize = requestedLaneSize;
+			mLaneSpacing = requestedLaneSpacing;
+			break;
+		}
+	}
+
+	/**
+	 * Sets the size of a line along the scroll axis and the spacing between
+	 * lines. A line size of 0 means lines are not known to be uniform, in
+	 * which case the offset based lookups below are unavailable.
+	 */
+	void setLineSize(int lineSize, int lineSpacing) {
+		mLineSize = Math.max(0, lineSize);
+		mLineSpacing = lineSpacing;
+	}
+
+	/**
+	 * Sets the index that packs items covering several lanes into lines, or
+	 * null if every item covers one lane.
+	 */
+	void setSpanIndex(SpanIndex spans) {
+		mSpans = spans;
+		if (spans != null) {
+			spans.setLanes(mLanes);
+		}
+	}
+
+	int getLanes() {
+		return mLanes;
+	}
+
+	/**
+	 * @return How many lanes the item at position covers
+	 */
+	int getSpan(int position) {
+		return mSpans != null ? mSpans.getSpan(position) : 1;
+	}
+
+	/**
+	 * @return The size across the scroll axis of the cell for position,
+	 *         including the spacing between the lanes it covers
+	 */
+	int getCellCrossSize(int position) {
+		final int span = getSpan(position);
+		return span * mLaneSize + (span - 1) * mLaneSpacing;
+	}
+
+	/**
+	 * @return The lane, counted from the first one of the line, where the
+	 *         cell for position starts
+	 */
+	int getLaneInLine(int position, int lineStart) {
+		if (mSpans == null) {
+			return position - lineStart;
+		}
+		int lane = 0;
+		for (int pos = lineStart; pos < position; pos++) {
+			lane += mSpans.getSpan(pos);
+		}
+		return lane;
+	}
+
+	/**
+	 * @return The position on the line starting at lineStart whose cell
+	 *         covers lane, or the last position of the line if it ends first
+	 */
+	int getPositionAtLane(int lineStart, int lane, int itemCount) {
+		final int lineEnd = getLineEnd(lineStart, itemCount, false);
+		if (mSpans == null) {
+			return Math.min(lineStart + lane, lineEnd);
+		}
+		int covered = 0;
+		for (int pos = lineStart; pos < lineEnd; pos++) {
+			covered += mSpans.getSpan(pos);
+			if (covered > lane) {
+				return pos;
+			}
+		}
+		return lineEnd;
+	}
+
+	/**
+	 * Steps from the first position of a line to the first position of the
+	 * next one. Without spans this is one line's worth of items, which also
+	 * steps between the last positions of two lines when stacking from the
+	 * bottom.
+	 */
+	int getNextLinePosition(int position, int itemCount) {
+		if (mSpans == null || position < 0 || position >= itemCount) {
+			return position + mLanes;
+		}
+		return mSpans.getLineEnd(position, itemCount) + 1;
+	}
+
+	/**
+	 * Steps from the first position of a line to the first position of the
+	 * line before it. The result is negative before the first line.
+	 *
+	 * @see #getNextLinePosition(int, int)
+	 */
+	int getPreviousLinePosition(int position, int itemCount) {
+		if (mSpans == null || position <= 0 || position > itemCount) {
+			return position - mLanes;
+		}
+		return mSpans.getLineStart(position - 1, itemCount);
+	}
+
+	int getLaneSize() {
+		return mLaneSize;
+	}
+
+	int getLaneSpacing() {
+		return mLaneSpacing;
+	}
+
+	int getLineSize() {
+		return mLineSize;
+	}
+
+	int getLineSpacing() {
+		return mLineSpacing;
+	}
+
+	/**
+	 * @return Whether lines have a known, uniform size along the scroll axis
+	 */
+	boolean hasUniformLines() {
+		return mLineSize > 0;
+	}
+
+	/**
+	 * @return The distance between the starts of two consecutive lines
+	 */
+	int getLinePitch() {
+		return mLineSize + mLineSpacing;
+	}
+
+	/**
+	 * @return The number of lines needed to show itemCount items
+	 */
+	int getLineCount(int itemCount) {
+		if (mSpans != null) {
+			return mSpans.getLineCount(itemCount);
+		}
+		return itemCount <= 0 ? 0 : (itemCount + mLanes - 1) / mLanes;
+	}
+
+	/**
+	 * @return The index of the line that holds position
+	 */
+	int getLine(int position, int itemCount, boolean stackFromBottom) {
+		if (!stackFromBottom) {
+			if (mSpans != null) {
+				return mSpans.getLine(position, itemCount);
+			}
+			return position / mLanes;
+		}
+		// When stacking from the bottom the last line is the full one, so lines
+		// are counted from the end of the data
+		final int lineCount = getLineCount(itemCount);
+		return lineCount - 1 - (itemCount - 1 - position) / mLanes;
+	}
+
+	/**
+	 * @return The first position on the line that holds position
+	 */
+	int getLineStart(int position, int itemCount, boolean stackFromBottom) {
+		if (!stackFromBottom) {
+			if (mSpans != null) {
+				return mSpans.getLineStart(position, itemCount);
+			}
+			return position - (position % mLanes);
+		}
+		return Math.max(0, getLineEnd(position, itemCount, true) - mLanes + 1);
+	}
+
+	/**
+	 * @return The last position on the line that holds position
+	 */
+	int getLineEnd(int position, int itemCount, boolean stackFromBottom) {
+		if (!stackFromBottom) {
+			if (mSpans != null) {
+				return mSpans.getLineEnd(position, itemCount);
+			}
+			return Math.min(position - (position % mLanes) + mLanes, itemCount) - 1;
+		}
+		final int invertedPosition = itemCount - 1 - position;
+		return itemCount - 1 - (invertedPosition - (invertedPosition % mLanes));
+	}
+
+	/**
+	 * @return The first position of the given line
+	 */
+	int getFirstPositionOfLine(int line, int itemCount, boolean stackFromBottom) {
+		if (!stackFromBottom) {
+			if (mSpans != null) {
+				return mSpans.getFirstPositionOfLine(line, itemCount);
+			}
+			return line * mLanes;
+		}
+		final int lineCount = getLineCount(itemCount);
+		return Math.max(0, itemCount - (lineCount - line) * mLanes);
+	}
+
+	/**
+	 * Returns where along the cross axis the first cell of a line goes. A
+	 * short line is pushed towards the end when stacking from the bottom.
+	 *
+	 * @param crossStart Cross axis padding
+	 * @param cellsInLine How many cells the line holds
+	 * @param stackFromBottom Whether the grid stacks from the bottom
+	 */
+	int getFirstLaneOffset(int crossStart, int cellsInLine, boolean stackFromBottom) {
+		int offset = crossStart + (mUniformSpacing ? mLaneSpacing : 0);
+		if (stackFromBottom && cellsInLine < mLanes) {
+			offset += (mLanes - cellsInLine) * (mLaneSize + mLaneSpacing);
+		}
+		return offset;
+	}
+
+	/**
+	 * @return The cross axis offset of a lane, relative to the first lane
+	 */
+	int getLaneOffset(int lane) {
+		return lane * (mLaneSize + mLaneSpacing);
+	}
+
+	/**
+	 * @return The lane, counted from the first one, found at a cross axis
+	 *         offset relative to the first lane, or -1 if the offset falls
+	 *         before the first lane
+	 */
+	int getLaneAt(int crossOffset) {
+		if (crossOffset < 0) {
+			return -1;
+		}
+		final int pitch = mLaneSize + mLaneSpacing;
+		if (pitch <= 0) {
+			return 0;
+		}
+		return Math.min(crossOffset / pitch, mLanes - 1);
+	}
+
+	/**
+	 * @return The main axis offset of a line from the start of the content.
+	 *         Only meaningful with uniform lines.
+	 */
+	long getLineOffset(int line) {
+		return (long) line * getLinePitch();
+	}
+
+	/**
+	 * @return The line found at a main axis offset from the start of the
+	 *         content, or -1 if lines are not uniform
+	 */
+	int getLineAt(long offset) {
+		final int pitch = getLinePitch();
+		if (mLineSize <= 0 || pitch <= 0) {
+			return -1;
+		}
+		if (offset <= 0) {
+			return 0;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, offset / pitch);
+	}
+
+	/**
+	 * Maps a pixel offset along the scroll axis to the first position that is
+	 * visible when the content is scrolled by that amount.
+	 *
+	 * @return The first visible position, or -1 if it cannot be computed
+	 */
+	int getFirstVisiblePosition(long offset, int itemCount, boolean stackFromBottom) {
+		final int line = getLineAt(offset);
+		if (line < 0 || itemCount <= 0) {
+			return -1;
+		}
+		final int lastLine = getLineCount(itemCount) - 1;
+		return getFirstPositionOfLine(Math.min(line, lastLine), itemCount, stackFromBottom);
+	}
+
+	/**
+	 * Computes the range of positions visible in a window of the content.
+	 *
+	 * @param offset Main axis offset of the start of the window
+	 * @param extent Size of the window along the main axis
+	 * @param outRange Receives the first and last visible positions
+	 * @return false if there is nothing visible or lines are not uniform
+	 */
+	boolean getVisibleRange(long offset, int extent, int itemCount, boolean stackFromBottom,
+			int[] outRange) {
+		final int first = getFirstVisiblePosition(offset, itemCount, stackFromBottom);
+		if (first < 0 || extent <= 0) {
+			return false;
+		}
+		// The last visible line is the one holding the last pixel of the window
+		final int lastLine = Math.min(getLineAt(offset + extent - 1), getLineCount(itemCount) - 1);
+		final int lastLineStart = getFirstPositionOfLine(lastLine, itemCount, stackFromBottom);
+		outRange[0] = first;
+		outRange[1] = getLineEnd(lastLineStart, itemCount, stackFromBottom);
+		return true;
+	}
+
+	/**
+	 * Computes the bounds of the cell for a position, in content coordinates
+	 * along the main axis and relative to crossStart along the cross axis.
+	 *
+	 * @param outCell Receives the bounds, indexed by the CELL_* constants
+	 * @return false if lines are not uniform
+	 */
+	boolean getCell(int position, int itemCount, boolean stackFromBottom, int crossStart,
+			int[] outCell) {
+		if (mLineSize <= 0 || position < 0 || position >= itemCount) {
+			return false;
+		}
+		final int line = getLine(position, itemCount, stackFromBottom);
+		final int lineStart = getLineStart(position, itemCount, stackFromBottom);
+		final int lineEnd = getLineEnd(position, itemCount, stackFromBottom);
+		final int crossOffset = getFirstLaneOffset(crossStart, lineEnd - lineStart + 1,
+				stackFromBottom) + getLaneOffset(stackFromBottom ? position - lineStart :
+						getLaneInLine(position, lineStart));
+		final long mainStart = getLineOffset(line);
+
+		outCell[CELL_MAIN_START] = (int) Math.min(Integer.MAX_VALUE, mainStart);
+		outCell[CELL_CROSS_START] = crossOffset;
+		outCell[CELL_MAIN_END] = (int) Math.min(Integer.MAX_VALUE, mainStart + mLineSize);
+		outCell[CELL_CROSS_END] = crossOffset + (stackFromBottom ? mLaneSize :
+				getCellCrossSize(position));
+		return true;
+	}
+
+	/**
+	 * Works out how far the children have to move towards the end of the
+	 * scroll axis when the last item is showing but does not reach the end
+	 * edge. This is the check that used to be done by correctTooHigh() and
+	 * correctTooLeft().
+	 *
+	 * @param firstPosition Position of the first child
+	 * @param childCount Number of children
+	 * @param firstStart Main axis start of the first child
+	 * @param lastEnd Main axis end of the last child
+	 * @param start Start edge of the area children are drawn in
+	 * @param end End edge of the area children are drawn in
+	 * @return The offset to apply, 0 if no correction is needed
+	 */
+	int getCorrectionTowardsEnd(int firstPosition, int childCount, int itemCount,
+			int firstStart, int lastEnd, int start, int end) {
+		final int lastPosition = firstPosition + childCount - 1;
+		if (childCount <= 0 || lastPosition != itemCount - 1) {
+			return 0;
+		}
+		// How far the end edge of the last child is from the end edge
+		int offset = end - lastEnd;
+
+		// Make sure we are 1) short of the end, and 2) either there are more
+		// lines before the first one or the first line is scrolled off the start
+		if (offset > 0 && (firstPosition > 0 || firstStart < start)) {
+			if (firstPosition == 0) {
+				// Don't pull the start too far in
+				offset = Math.min(offset, start - firstStart);
+			}
+			return offset;
+		}
+		return 0;
+	}
+
+	/**
+	 * Works out how far the children have to move towards the start of the
+	 * scroll axis when the first item is showing but does not reach the start
+	 * edge. This is the check that used to be done by correctTooLow() and
+	 * correctTooRight().
+	 *
+	 * @return The distance to move by, 0 if no correction is needed
+	 */
+	int getCorrectionTowardsStart(int firstPosition, int childCount, int itemCount,
+			int firstStart, int lastEnd, int start, int end) {
+		if (firstPosition != 0 || childCount <= 0) {
+			return 0;
+		}
+		// How far the start edge of the first child is from the start edge
+		int offset = firstStart - start;
+		final int lastPosition = firstPosition + childCount - 1;
+
+		// Make sure we are 1) past the start, and 2) either there are more
+		// lines after the last one or the last line is scrolled off the end
+		if (offset > 0 && (lastPosition < itemCount - 1 || lastEnd > end)) {
+			if (lastPosition == itemCount - 1) {
+				// Don't pull the end too far in
+				offset = Math.min(offset, lastEnd - end);
+			}
+			return offset;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Lane and offset of each item a staggered grid has laid out
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.Arrays;
+
+/**
+ * Remembers, by position, which lane a staggered {@link TwoWayGridView} put
+ * an item in and where along the scroll axis the item started. Items keep
+ * their lane when they scroll back into view, and a layout at any position
+ * can put the lanes back where they were from the offsets alone, without
+ * laying out the items before it.
+ *
+ * <p>Offsets are relative to an origin chosen by the grid and may be
+ * negative. Lanes are stored off by one so that an all zero array means no
+ * entries.</p>
+ */
+final class LaneIndex {
+	private static final int MIN_CAPACITY = 64;
+
+	private int[] mLanes = new int[MIN_CAPACITY];
+	private int[] mOffsets = new int[MIN_CAPACITY];
+
+	/**
+	 * One past the highest position with an entry
+	 */
+	private int mSize;
+
+	/**
+	 * @return The lane of position, or -1 if it has none
+	 */
+	int getLane(int position) {
+		return position >= 0 && position < mSize ? mLanes[position] - 1 : -1;
+	}
+
+	/**
+	 * @return The offset of position, only meaningful when it has a lane
+	 */
+	int getOffset(int position) {
+		return mOffsets[position];
+	}
+
+	void put(int position, int lane, int offset) {
+		ensureCapacity(position + 1);
+		mLanes[position] = lane + 1;
+		mOffsets[position] = offset;
+		if (position >= mSize) {
+			mSize = position + 1;
+		}
+	}
+
+	/**
+	 * Makes room for count items inserted at position. The items after them
+	 * keep their entries, the new ones have none.
+	 */
+	void insert(int position, int count) {
+		if (position >= mSize || count <= 0) {
+			return;
+		}
+		ensureCapacity(mSize + count);
+		System.arraycopy(mLanes, position, mLanes, position + count, mSize - position);
+		System.arraycopy(mOffsets, position, mOffsets, position + count, mSize - position);
+		Arrays.fill(mLanes, position, position + count, 0);
+		mSize += count;
+	}
+
+	/**
+	 * Drops the entries of count items removed at position, moving the
+	 * entries of the items after them back.
+	 */
+	void remove(int position, int count) {
+		if (position >= mSize || count <= 0) {
+			return;
+		}
+		final int end = Math.min(mSize, position + count);
+		System.arraycopy(mLanes, end, mLanes, position, mSize - end);
+		System.arraycopy(mOffsets, end, mOffsets, position, mSize - end);
+		final int size = mSize - (end - position);
+		Arrays.fill(mLanes, size, mSize, 0);
+		mSize = size;
+	}
+
+	/**
+	 * Drops the entries of position and every position after it.
+	 */
+	void clearFrom(int position) {
+		if (position < mSize) {
+			Arrays.fill(mLanes, Math.max(0, position), mSize, 0);
+			mSize = Math.max(0, position);
+		}
+	}
+
+	void clear() {
+		clearFrom(0);
+	}
+
+	private void ensureCapacity(int size) {
+		if (size > mLanes.length) {
+			int capacity = mLanes.length;
+			while (capacity < size) {
+				capacity <<= 1;
+			}
+			final int[] lanes = new int[capacity];
+			final int[] offsets = new int[capacity];
+			System.arraycopy(mLanes, 0, lanes, 0, mSize);
+			System.arraycopy(mOffsets, 0, offsets, 0, mSize);
+			mLanes = lanes;
+			mOffsets = offsets;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Open addressing map from item ids to positions
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.Arrays;
+
+/**
+ * Maps long keys to non negative int values without boxing either of them.
+ * Keys are kept in a single open addressing table with linear probing, so a
+ * lookup is a hash and usually one or two array reads.
+ *
+ * <p>Used by {@link TwoWayAdapterView} to look up the position of a stable
+ * item id. Values are stored off by one so that an all zero value array means an
+ * empty table and no separate "used" array is needed.</p>
+ */
+final class LongIntMap {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] mKeys;
+	private int[] mValues;
+	private int mSize;
+	private int mThreshold;
+
+	LongIntMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize How many mappings the table should hold before it
+	 *        has to grow
+	 */
+	LongIntMap(int expectedSize) {
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * @return The value mapped to key, or valueIfKeyNotFound
+	 */
+	int get(long key, int valueIfKeyNotFound) {
+		final long[] keys = mKeys;
+		final int[] values = mValues;
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != 0) {
+			if (keys[slot] == key) {
+				return values[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return valueIfKeyNotFound;
+	}
+
+	/**
+	 * Maps key to value, replacing any previous mapping for key.
+	 *
+	 * @param value A value of 0 or more
+	 */
+	void put(long key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must be >= 0: " + value);
+		}
+		final long[] keys = mKeys;
+		final int[] values = mValues;
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != 0) {
+			if (keys[slot] == key) {
+				values[slot] = value + 1;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value + 1;
+		if (++mSize > mThreshold) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	/**
+	 * Adds delta to every value from start up to but not including end.
+	 * Keys stay where they are, so this is a single pass over the table.
+	 */
+	void offsetValues(int start, int end, int delta) {
+		final int[] values = mValues;
+		for (int i = values.length - 1; i >= 0; i--) {
+			final int value = values[i] - 1;
+			if (value >= start && value < end) {
+				values[i] = value + delta + 1;
+			}
+		}
+	}
+
+	/**
+	 * Removes the mappings to values from start up to but not including
+	 * end. The table is built again without them, at its current size.
+	 */
+	void removeValues(int start, int end) {
+		final long[] oldKeys = mKeys;
+		final int[] oldValues = mValues;
+		allocate(oldKeys.length);
+		mSize = 0;
+		for (int i = oldKeys.length - 1; i >= 0; i--) {
+			final int value = oldValues[i] - 1;
+			if (value >= 0 && (value < start || value >= end)) {
+				put(oldKeys[i], value);
+			}
+		}
+	}
+
+	/**
+	 * Removes all mappings, keeping the table at its current size.
+	 */
+	void clear() {
+		if (mSize > 0) {
+			Arrays.fill(mValues, 0);
+			mSize = 0;
+		}
+	}
+
+	private void rehash(int capacity) {
+		final long[] oldKeys = mKeys;
+		final int[] oldValues = mValues;
+		allocate(capacity);
+
+		final long[] keys = mKeys;
+		final int[] values = mValues;
+		final int mask = capacity - 1;
+		for (int i = oldKeys.length - 1; i >= 0; i--) {
+			if (oldValues[i] != 0) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (values[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		mKeys = new long[capacity];
+		mValues = new int[capacity];
+		// Keep the load factor at 3/4 so probe sequences stay short
+		mThreshold = capacity - (capacity >>> 2);
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity - (capacity >>> 2) < expectedSize && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Spreads the bits of key so that sequential ids, the common case for
+	 * database backed adapters, do not cluster in the table.
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * First positions of the sections of a SectionIndexer
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import android.widget.SectionIndexer;
+
+/**
+ * Copies where each section of a {@link SectionIndexer} starts into a sorted
+ * int array, so that finding the section of a position is a binary search
+ * that does not call the indexer. The copy is made once after every data
+ * change instead of asking the indexer on every frame.
+ *
+ * <p>Sections are numbered here in the order they start, skipping empty
+ * sections and ones starting outside the data, so the numbers can differ
+ * from the indexer's own.</p>
+ */
+final class SectionIndex {
+	private int[] mStarts = new int[16];
+	private int[] mIndexerSections = new int[16];
+	private int mCount;
+	private boolean mStale = true;
+
+	/**
+	 * Makes the next {@link #update} read the sections again.
+	 */
+	void invalidate() {
+		mStale = true;
+	}
+
+	/**
+	 * Reads the section starts from indexer if they changed since the last
+	 * time.
+	 *
+	 * @param indexer The indexer, or null for no sections
+	 */
+	void update(SectionIndexer indexer, int itemCount) {
+		if (!mStale) {
+			return;
+		}
+		mStale = false;
+		mCount = 0;
+
+		final Object[] sections = indexer != null ? indexer.getSections() : null;
+		final int sectionCount = sections != null ? sections.length : 0;
+		if (mStarts.length < sectionCount) {
+			mStarts = new int[sectionCount];
+			mIndexerSections = new int[sectionCount];
+		}
+
+		int last = -1;
+		for (int i = 0; i < sectionCount; i++) {
+			final int start = indexer.getPositionForSection(i);
+			// Empty sections start where the next one does
+			if (start > last && start < itemCount) {
+				mStarts[mCount] = start;
+				mIndexerSections[mCount++] = i;
+				last = start;
+			}
+		}
+	}
+
+	int getSectionCount() {
+		return mCount;
+	}
+
+	int getSectionStart(int section) {
+		return mStarts[section];
+	}
+
+	/**
+	 * @return The number the indexer gave section, an index into its
+	 *         {@link SectionIndexer#getSections()}
+	 */
+	int getIndexerSection(int section) {
+		return mIndexerSections[section];
+	}
+
+	/**
+	 * @return The last section starting at or before position, or -1 if
+	 *         position comes before every section
+	 */
+	int getSectionForPosition(int position) {
+		final int[] starts = mStarts;
+		int low = 0;
+		int high = mCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (starts[mid] <= position) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * @return Whether a section starts at position
+	 */
+	boolean isSectionStart(int position) {
+		final int section = getSectionForPosition(position);
+		return section >= 0 && mStarts[section] == position;
+	}
+}
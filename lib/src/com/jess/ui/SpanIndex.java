@@ -0,0 +1,281 @@
+/*
+ * Lines of a grid whose items can cover more than one lane
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+/**
+ * Packs items that cover one or more lanes into lines, for
+ * {@link GridGeometry}. Items go into a line in order until the next one does
+ * not fit in the lanes left, which starts a new line.
+ *
+ * <p>The first position of every line packed so far is kept in an int array,
+ * so once a position has been packed its line is a binary search away. Lines
+ * are only packed as far as somebody asks, and only the lines from a changed
+ * position on are packed again after a change. When items only change in
+ * place, packing again stops at the first line past them that starts where
+ * it did before, since every line after it is the same as well.</p>
+ */
+final class SpanIndex {
+	private static final int MIN_CAPACITY = 64;
+
+	private TwoWayGridView.SpanSizeProvider mProvider;
+	private int mLanes = 1;
+
+	/**
+	 * First position of each line packed so far. The last line may still
+	 * take more items.
+	 */
+	private int[] mLineStarts = new int[MIN_CAPACITY];
+	private int mLineCount;
+
+	/**
+	 * The first position not packed yet
+	 */
+	private int mNextPosition;
+
+	/**
+	 * How many lanes the items packed into the last line cover
+	 */
+	private int mLastLineSpans;
+
+	/**
+	 * Line starts packed again by invalidateRange(), kept for the next call
+	 */
+	private int[] mRepacked = new int[MIN_CAPACITY];
+
+	void setProvider(TwoWayGridView.SpanSizeProvider provider) {
+		mProvider = provider;
+		clear();
+	}
+
+	TwoWayGridView.SpanSizeProvider getProvider() {
+		return mProvider;
+	}
+
+	void setLanes(int lanes) {
+		if (lanes != mLanes) {
+			mLanes = lanes;
+			clear();
+		}
+	}
+
+	/**
+	 * @return How many lanes the item at position covers, from 1 to the
+	 *         number of lanes
+	 */
+	int getSpan(int position) {
+		final int span = mProvider.getSpanSize(position);
+		if (span < 1) {
+			return 1;
+		}
+		return span > mLanes ? mLanes : span;
+	}
+
+	/**
+	 * @return The line holding position, which is clamped to the items
+	 */
+	int getLine(int position, int itemCount) {
+		if (itemCount <= 0) {
+			return 0;
+		}
+		position = Math.min(Math.max(0, position), itemCount - 1);
+		while (mNextPosition <= position) {
+			packNext();
+		}
+		return findLine(position);
+	}
+
+	/**
+	 * @return The first position of the line holding position
+	 */
+	int getLineStart(int position, int itemCount) {
+		if (itemCount <= 0) {
+			return 0;
+		}
+		return mLineStarts[getLine(position, itemCount)];
+	}
+
+	/**
+	 * @return The last position of the line holding position
+	 */
+	int getLineEnd(int position, int itemCount) {
+		if (itemCount <= 0) {
+			return -1;
+		}
+		final int line = getLine(position, itemCount);
+		// A line ends where the next one starts, which is only known once the
+		// item after it has been packed
+		while (line + 1 >= mLineCount && mNextPosition < itemCount) {
+			packNext();
+		}
+		return line + 1 < mLineCount ? mLineStarts[line + 1] - 1 : itemCount - 1;
+	}
+
+	/**
+	 * @return The first position of line, or itemCount past the last line
+	 */
+	int getFirstPositionOfLine(int line, int itemCount) {
+		if (line < 0) {
+			return 0;
+		}
+		while (line >= mLineCount && mNextPosition < itemCount) {
+			packNext();
+		}
+		return line < mLineCount ? mLineStarts[line] : itemCount;
+	}
+
+	/**
+	 * @return The number of lines itemCount items take. The first call after
+	 *         a change packs every item.
+	 */
+	int getLineCount(int itemCount) {
+		if (itemCount <= 0) {
+			return 0;
+		}
+		while (mNextPosition < itemCount) {
+			packNext();
+		}
+		return mLineCount;
+	}
+
+	/**
+	 * Forgets the lines from the one before position on, since an item that
+	 * changed size may now fit at the end of the line before its own.
+	 */
+	void invalidateFrom(int position) {
+		if (position >= mNextPosition || mLineCount == 0) {
+			// Nothing from position on was packed. The last line is still
+			// open, so it will take any new items that fit.
+			return;
+		}
+		final int line = Math.max(0, findLine(Math.max(0, position)) - 1);
+		mNextPosition = mLineStarts[line];
+		mLineCount = line;
+		// Lines before are closed, the next item starts a new one
+		mLastLineSpans = mLanes;
+	}
+
+	/**
+	 * Packs the lines holding the itemCount items from positionStart again,
+	 * after they changed in place, keeping the lines after them that come
+	 * out the same.
+	 */
+	void invalidateRange(int positionStart, int itemCount) {
+		final int end = positionStart + itemCount;
+		if (positionStart >= mNextPosition || mLineCount == 0 || end >= mNextPosition) {
+			// No packed line after the range to keep
+			invalidateFrom(positionStart);
+			return;
+		}
+
+		final int firstLine = Math.max(0, findLine(Math.max(0, positionStart)) - 1);
+		final int lanes = mLanes;
+		int[] repacked = mRepacked;
+		int count = 0;
+		int lineSpans = 0;
+		int oldLine = firstLine;
+		for (int position = mLineStarts[firstLine]; position < mNextPosition; position++) {
+			final int span = getSpan(position);
+			if (count == 0 || lineSpans + span > lanes) {
+				if (position >= end) {
+					while (oldLine < mLineCount && mLineStarts[oldLine] < position) {
+						oldLine++;
+					}
+					if (oldLine < mLineCount && mLineStarts[oldLine] == position) {
+						// Packing from here on comes out as it did before
+						spliceLines(firstLine, repacked, count, oldLine);
+						mRepacked = repacked;
+						return;
+					}
+				}
+				if (count == repacked.length) {
+					final int[] grown = new int[count << 1];
+					System.arraycopy(repacked, 0, grown, 0, count);
+					repacked = grown;
+				}
+				repacked[count++] = position;
+				lineSpans = 0;
+			}
+			lineSpans += span;
+		}
+
+		// Every packed line moved, the last one packed again is still open
+		mLineCount = firstLine;
+		ensureCapacity(firstLine + count);
+		System.arraycopy(repacked, 0, mLineStarts, firstLine, count);
+		mLineCount = firstLine + count;
+		mLastLineSpans = lineSpans;
+		mRepacked = repacked;
+	}
+
+	/**
+	 * Replaces the lines from firstLine up to keptLine with the count lines
+	 * in repacked, moving the lines from keptLine on after them.
+	 */
+	private void spliceLines(int firstLine, int[] repacked, int count, int keptLine) {
+		final int kept = mLineCount - keptLine;
+		ensureCapacity(firstLine + count + kept);
+		System.arraycopy(mLineStarts, keptLine, mLineStarts, firstLine + count, kept);
+		System.arraycopy(repacked, 0, mLineStarts, firstLine, count);
+		mLineCount = firstLine + count + kept;
+	}
+
+	private void ensureCapacity(int lines) {
+		if (lines > mLineStarts.length) {
+			final int[] starts = new int[Math.max(lines, mLineStarts.length << 1)];
+			System.arraycopy(mLineStarts, 0, starts, 0, mLineCount);
+			mLineStarts = starts;
+		}
+	}
+
+	void clear() {
+		mLineCount = 0;
+		mNextPosition = 0;
+		mLastLineSpans = 0;
+	}
+
+	/**
+	 * @return The last packed line starting at or before position
+	 */
+	private int findLine(int position) {
+		final int[] starts = mLineStarts;
+		int low = 0;
+		int high = mLineCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private void packNext() {
+		final int position = mNextPosition;
+		final int span = getSpan(position);
+		if (mLineCount == 0 || mLastLineSpans + span > mLanes) {
+			ensureCapacity(mLineCount + 1);
+			mLineStarts[mLineCount++] = position;
+			mLastLineSpans = 0;
+		}
+		mLastLineSpans += span;
+		mNextPosition = position + 1;
+	}
+}
@@ -45,12 +45,16 @@ import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.TransitionDrawable;
+import android.os.Build;
 import android.os.Debug;
 import android.os.Handler;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.HapticFeedbackConstants;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
@@ -65,6 +69,7 @@ import android.widget.Adapter;
 import android.widget.EditText;
 import android.widget.ListAdapter;
 import android.widget.Scroller;
+import android.widget.SectionIndexer;
 
 /**
  * Base class that can be used to implement virtualized lists of items. A list does
@@ -209,6 +214,11 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 */
 	ListAdapter mAdapter;
 
+	/**
+	 * Where the sections of the adapter start, when it is a SectionIndexer
+	 */
+	final SectionIndex mSectionIndex = new SectionIndex();
+
 	/**
 	 * Indicates whether the list selector should be drawn on top of the children or behind
 	 */
@@ -335,13 +345,34 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	/**
 	 * Whether or not to enable the fast scroll feature on this list
 	 */
-	//boolean mFastScrollEnabled;
+	boolean mFastScrollEnabled;
 
 	/**
 	 * Optional callback to notify client when scroll position has changed
 	 */
 	private OnScrollListener mOnScrollListener;
 
+	/**
+	 * How many lines before the end of the data the load-more listener is called when the
+	 * view is not flinging
+	 */
+	public static final int DEFAULT_LOAD_MORE_THRESHOLD = 4;
+
+	/**
+	 * How far ahead a fling towards the end moves the load-more threshold, in milliseconds
+	 * of the fling
+	 */
+	private static final int LOAD_MORE_LOOKAHEAD_MILLIS = 500;
+
+	private OnLoadMoreListener mOnLoadMoreListener;
+	private int mLoadMoreThreshold = DEFAULT_LOAD_MORE_THRESHOLD;
+
+	/**
+	 * The item count the load-more listener was last called with, so it is called once per
+	 * page
+	 */
+	private int mLoadMoreItemCount = INVALID_POSITION;
+
 	/**
 	 * Keeps track of our accessory window
 	 */
@@ -378,6 +409,100 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 */
 	int mResurrectToPosition = INVALID_POSITION;
 
+	/**
+	 * The children matched to the positions they will have after the item range changes
+	 * reported since the last layout, starting at mFirstPosition. A null entry is a position
+	 * whose view has to be bound again. Null when nothing is pending.
+	 */
+	private ArrayList<View> mPendingActiveViews;
+
+	/**
+	 * Pool shared with other views that receives the views the RecycleBin has no use for
+	 */
+	TwoWayViewPool mViewPool;
+
+	/**
+	 * Binds the items about to scroll into view after each scrolled frame
+	 */
+	private ViewPrefetcher mPrefetcher;
+
+	private boolean mItemPrefetchEnabled = true;
+
+	/**
+	 * Runs the fling and position scroller steps, one batch per display frame
+	 */
+	final FrameLoop mFrameLoop = new FrameLoop();
+
+	/**
+	 * How long binding the items exposed by a scroll may take per frame, 0 for no limit
+	 */
+	private long mFrameBindBudgetNanos;
+
+	/**
+	 * Set while fillGap() runs from a scroll, which is when binds may be put off
+	 */
+	boolean mFillingGap;
+	long mFillGapStartNanos;
+
+	private final BindStats mBindStats = new BindStats();
+
+	/**
+	 * Whether the last getAdapterView() call only asked for a light bind
+	 */
+	boolean mLastBindPartial;
+
+	/**
+	 * How many lines past the visible ones an adapter is asked to prepare in the direction of
+	 * a scroll
+	 */
+	static final int PREPARE_LINES_AHEAD = 3;
+
+	/**
+	 * 1 if the last scroll went towards the end of the data, -1 if towards the start
+	 */
+	int mScrollDirection = 1;
+
+	/**
+	 * The preparation window last reported to the adapter
+	 */
+	private int mPreparationFirst = INVALID_POSITION;
+	private int mPreparationLast = INVALID_POSITION;
+	private int mPreparationFirstVisible = INVALID_POSITION;
+	private int mPreparationLastVisible = INVALID_POSITION;
+	private int mPreparationDirection;
+
+	/**
+	 * Binds the children laid out unbound, a budget's worth per frame
+	 */
+	private final Runnable mDeferredBinder = new Runnable() {
+		public void run() {
+			bindDeferredChildren(mFrameBindBudgetNanos);
+		}
+	};
+
+	/**
+	 * Values of RecycleBin.mLastScrapMatch: the scrap view was bound to another item, to the
+	 * same position in the same data, or to the same stable id
+	 */
+	static final int SCRAP_MATCH_NONE = 0;
+	static final int SCRAP_MATCH_POSITION = 1;
+	static final int SCRAP_MATCH_ITEM_ID = 2;
+
+	/**
+	 * How far past each edge children are kept bound and attached
+	 */
+	int mExtraLayoutSpace;
+
+	/**
+	 * Filled by getChildrenExtent() in trackMotionScroll()
+	 */
+	private final int[] mChildrenExtent = new int[4];
+
+	/**
+	 * Children showing items that changed or were removed since the last layout
+	 */
+	private final ArrayList<View> mPendingScrapViews = new ArrayList<View>();
+
 	private ContextMenuInfo mContextMenuInfo = null;
 
 	/**
@@ -440,7 +565,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	/**
 	 * Helper object that renders and controls the fast scroll thumb.
 	 */
-	//private FastScroller mFastScroller;
+	private FastScroller mFastScroller;
 
 	//private boolean mGlobalLayoutListenerAddedFilter;
 
@@ -529,6 +654,24 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				int totalItemCount);
 	}
 
+	/**
+	 * Interface definition for a callback to be invoked when the list or grid
+	 * is about to run out of items.
+	 */
+	public interface OnLoadMoreListener {
+		/**
+		 * Called once the last visible item comes within the load-more
+		 * threshold of the end of the data. It is not called again until
+		 * the number of items changes. This is called while the view scrolls
+		 * or lays out, so start loading here and notify the adapter when
+		 * the items arrive.
+		 *
+		 * @param view The view that is running out of items
+		 * @param itemCount The number of items in the adapter
+		 */
+		public void onLoadMore(TwoWayAbsListView view, int itemCount);
+	}
+
 	public TwoWayAbsListView(Context context) {
 		super(context);
 		initAbsListView();
@@ -573,8 +716,13 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		int color = a.getColor(R.styleable.TwoWayAbsListView_cacheColorHint, 0);
 		setCacheColorHint(color);
 
-		//boolean enableFastScroll = a.getBoolean(R.styleable.JessAbsListView_fastScrollEnabled, false);
-		//setFastScrollEnabled(enableFastScroll);
+		boolean enableFastScroll = a.getBoolean(R.styleable.TwoWayAbsListView_fastScrollEnabled,
+				false);
+		setFastScrollEnabled(enableFastScroll);
+
+		int loadMoreThreshold = a.getInt(R.styleable.TwoWayAbsListView_loadMoreThreshold,
+				DEFAULT_LOAD_MORE_THRESHOLD);
+		setLoadMoreThreshold(loadMoreThreshold);
 
 		boolean smoothScrollbar = a.getBoolean(R.styleable.TwoWayAbsListView_smoothScrollbar, true);
 		setSmoothScrollbarEnabled(smoothScrollbar);
@@ -649,36 +797,65 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 * @see SectionIndexer
 	 * @see #isFastScrollEnabled()
 	 * @param enabled whether or not to enable fast scrolling
+	 *
+	 * @attr ref android.R.styleable#JessAbsListView_fastScrollEnabled
 	 */
-	/*
-    public void setFastScrollEnabled(boolean enabled) {
-        mFastScrollEnabled = enabled;
-        if (enabled) {
-            if (mFastScroller == null) {
-                mFastScroller = new FastScroller(getContext(), this);
-            }
-        } else {
-            if (mFastScroller != null) {
-                mFastScroller.stop();
-                mFastScroller = null;
-            }
-        }
-    }*/
+	public void setFastScrollEnabled(boolean enabled) {
+		mFastScrollEnabled = enabled;
+		if (enabled) {
+			if (mFastScroller == null) {
+				mFastScroller = new FastScroller(getContext(), this);
+			}
+		} else {
+			if (mFastScroller != null) {
+				mFastScroller.stop();
+				mFastScroller = null;
+			}
+		}
+	}
 
 	/**
 	 * Returns the current state of the fast scroll feature.
 	 * @see #setFastScrollEnabled(boolean)
 	 * @return true if fast scroll is enabled, false otherwise
 	 */
-	/*
-    @ViewDebug.ExportedProperty
-    public boolean isFastScrollEnabled() {
-        return mFastScrollEnabled;
-    }
+	@ViewDebug.ExportedProperty
+	public boolean isFastScrollEnabled() {
+		return mFastScrollEnabled;
+	}
 
-    protected boolean isVerticalScrollBarHidden() {
-        return mFastScroller != null && mFastScroller.isVisible();
-    }*/
+	/**
+	 * @return The section starts of the adapter, read again after a data change
+	 */
+	SectionIndex getSectionIndex() {
+		mSectionIndex.update(mAdapter instanceof SectionIndexer ? (SectionIndexer) mAdapter : null,
+				mItemCount);
+		return mSectionIndex;
+	}
+
+	/**
+	 * Lays the list out again with position at the leading edge. Only the
+	 * items around position are bound, none of the ones in between.
+	 */
+	void jumpToPosition(int position) {
+		if (mItemCount == 0) {
+			return;
+		}
+		mSyncPosition = Math.max(0, Math.min(position, mItemCount - 1));
+		mSpecificTop = mScrollVertically ? mListPadding.top : mListPadding.left;
+		mLayoutMode = LAYOUT_SYNC;
+		layoutChildren();
+		invalidate();
+	}
+
+	/**
+	 * Stops a fling or smooth scroll in progress.
+	 */
+	void stopScroll() {
+		if (mTouchHandler.mFlingRunnable != null) {
+			mTouchHandler.mFlingRunnable.endFling();
+		}
+	}
 
 	/**
 	 * When smooth scrollbar is enabled, the position and size of the scrollbar thumb
@@ -724,16 +901,136 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		invokeOnItemScrollListener();
 	}
 
+	/**
+	 * Set the listener that will be called when the view gets close to the end of its data,
+	 * to load the next page.
+	 *
+	 * @param l the load-more listener
+	 *
+	 * @see #setLoadMoreThreshold(int)
+	 */
+	public void setOnLoadMoreListener(OnLoadMoreListener l) {
+		mOnLoadMoreListener = l;
+		mLoadMoreItemCount = INVALID_POSITION;
+		checkLoadMore();
+	}
+
+	/**
+	 * Sets how many lines before the end of the data the load-more listener is called. A
+	 * fling towards the end moves the threshold further out, by as many lines as the fling
+	 * covers in half a second, so the next page has time to arrive.
+	 *
+	 * @param lines The number of lines, {@link #DEFAULT_LOAD_MORE_THRESHOLD} by default
+	 *
+	 * @attr ref android.R.styleable#JessAbsListView_loadMoreThreshold
+	 */
+	public void setLoadMoreThreshold(int lines) {
+		mLoadMoreThreshold = Math.max(0, lines);
+	}
+
+	/**
+	 * @return How many lines before the end of the data the load-more listener is called
+	 *
+	 * @see #setLoadMoreThreshold(int)
+	 */
+	public int getLoadMoreThreshold() {
+		return mLoadMoreThreshold;
+	}
+
 	/**
 	 * Notify our scroll listener (if there is one) of a change in scroll state
 	 */
 	void invokeOnItemScrollListener() {
-		//if (mFastScroller != null) {
-		//    mFastScroller.onScroll(this, mFirstPosition, getChildCount(), mItemCount);
-		//}
+		if (mFastScroller != null) {
+			mFastScroller.onScroll(mFirstPosition, getChildCount(), mItemCount);
+		}
 		if (mOnScrollListener != null) {
 			mOnScrollListener.onScroll(this, mFirstPosition, getChildCount(), mItemCount);
 		}
+		updatePreparationWindow();
+		checkLoadMore();
+	}
+
+	/**
+	 * Calls the load-more listener if the last visible item is within the threshold of the
+	 * end and it has not been called for this item count yet.
+	 */
+	void checkLoadMore() {
+		if (mOnLoadMoreListener == null || mDataChanged || mItemCount == 0
+				|| mItemCount == mLoadMoreItemCount) {
+			return;
+		}
+		final int childCount = getChildCount();
+		if (childCount == 0) {
+			return;
+		}
+
+		int lines = mLoadMoreThreshold;
+		final float velocity = mTouchHandler.getFlingVelocity();
+		if (velocity > 0 && mScrollDirection > 0) {
+			final View lastChild = getChildAt(childCount - 1);
+			final int lineSize = Math.max(1,
+					mScrollVertically ? lastChild.getHeight() : lastChild.getWidth());
+			lines += (int) (velocity * LOAD_MORE_LOOKAHEAD_MILLIS / 1000 / lineSize);
+		}
+
+		final int lanes = Math.max(1, getPrefetchLaneCount());
+		final int lastPosition = mFirstPosition + childCount - 1;
+		if (lastPosition >= mItemCount - 1 - lines * lanes) {
+			mLoadMoreItemCount = mItemCount;
+			if (DEBUG) Log.i(TAG, "checkLoadMore() itemCount: " + mItemCount + " lines: " + lines);
+			mOnLoadMoreListener.onLoadMore(this, mItemCount);
+		}
+	}
+
+	/**
+	 * Tells an adapter implementing {@link PreparationWindowListener} which positions the view
+	 * expects to show soon: the visible ones, PREPARE_LINES_AHEAD lines in the direction of
+	 * the scroll and one line behind, or two lines each side when not scrolling. Children kept
+	 * in the extra layout space are in the window but not among the visible ones.
+	 */
+	void updatePreparationWindow() {
+		if (!(mAdapter instanceof PreparationWindowListener)) {
+			return;
+		}
+		final int childCount = getChildCount();
+		if (childCount == 0 || mItemCount == 0) {
+			return;
+		}
+
+		final int lanes = Math.max(1, getPrefetchLaneCount());
+		final int direction = mTouchMode == TOUCH_MODE_SCROLL || mTouchMode == TOUCH_MODE_FLING ?
+				mScrollDirection : 0;
+		final int before = lanes * (direction < 0 ? PREPARE_LINES_AHEAD : direction > 0 ? 1 : 2);
+		final int after = lanes * (direction > 0 ? PREPARE_LINES_AHEAD : direction < 0 ? 1 : 2);
+		final int first = Math.max(0, mFirstPosition - before);
+		final int last = Math.min(mItemCount - 1, mFirstPosition + childCount - 1 + after);
+
+		int firstVisible = 0;
+		int lastVisible = childCount - 1;
+		if (mExtraLayoutSpace > 0) {
+			while (firstVisible < lastVisible && isOffScreen(getChildAt(firstVisible))) {
+				firstVisible++;
+			}
+			while (lastVisible > firstVisible && isOffScreen(getChildAt(lastVisible))) {
+				lastVisible--;
+			}
+		}
+		firstVisible += mFirstPosition;
+		lastVisible += mFirstPosition;
+
+		if (first != mPreparationFirst || last != mPreparationLast
+				|| firstVisible != mPreparationFirstVisible
+				|| lastVisible != mPreparationLastVisible
+				|| direction != mPreparationDirection) {
+			mPreparationFirst = first;
+			mPreparationLast = last;
+			mPreparationFirstVisible = firstVisible;
+			mPreparationLastVisible = lastVisible;
+			mPreparationDirection = direction;
+			((PreparationWindowListener) mAdapter).onPreparationWindowChanged(first, last,
+					firstVisible, lastVisible, direction);
+		}
 	}
 
 	/**
@@ -1062,6 +1359,10 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 * The list is empty. Clear everything out.
 	 */
 	void resetList() {
+		discardPendingItemChanges();
+		mPreparationFirst = INVALID_POSITION;
+		mPreparationLast = INVALID_POSITION;
+		mLoadMoreItemCount = INVALID_POSITION;
 		removeAllViewsInLayout();
 		mFirstPosition = 0;
 		mDataChanged = false;
@@ -1492,6 +1793,8 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	View obtainView(int position, boolean[] isScrap) {
 		isScrap[0] = false;
 		View scrapView;
+		// Stays true when a BoundViewReuse adapter lets a view be shown as it is
+		boolean keepBinding = true;
 
 		scrapView = mRecycler.getScrapView(position);
 
@@ -1502,7 +1805,16 @@ ViewTreeObserver.OnTouchModeChangeListener {
 						position, -1);
 			}
 
-			child = mAdapter.getView(position, scrapView, this);
+			final int match = mRecycler.mLastScrapMatch;
+			if (match != SCRAP_MATCH_NONE && mAdapter instanceof BoundViewReuse
+					&& ((BoundViewReuse) mAdapter).canReuseBoundView(position, scrapView,
+							match != SCRAP_MATCH_POSITION)) {
+				// Still showing this item, no need to bind it again
+				child = scrapView;
+			} else {
+				child = getAdapterView(position, scrapView);
+				keepBinding = false;
+			}
 
 			if (ViewDebug.TRACE_RECYCLER) {
 				ViewDebug.trace(child, ViewDebug.RecyclerTraceType.BIND_VIEW,
@@ -1523,7 +1835,8 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				child.onFinishTemporaryDetach();
 			}
 		} else {
-			child = mAdapter.getView(position, null, this);
+			child = getAdapterView(position, null);
+			keepBinding = false;
 			if (mCacheColorHint != 0) {
 				child.setDrawingCacheBackgroundColor(mCacheColorHint);
 			}
@@ -1533,9 +1846,288 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 		}
 
+		final ViewGroup.LayoutParams lp = child.getLayoutParams();
+		if (lp instanceof TwoWayAbsListView.LayoutParams) {
+			final TwoWayAbsListView.LayoutParams p = (TwoWayAbsListView.LayoutParams) lp;
+			p.deferredBind = false;
+			if (!keepBinding) {
+				p.partialBind = mLastBindPartial;
+			}
+			setBoundItem(p, position);
+		}
+
 		return child;
 	}
 
+	/**
+	 * Asks the adapter for the view of a position. While flinging, an adapter implementing
+	 * {@link TwoPhaseBinding} is asked for a light bind only, and mLastBindPartial is set so
+	 * the caller can mark the view for completion once scrolling stops.
+	 */
+	View getAdapterView(int position, View convertView) {
+		if (mTouchMode == TOUCH_MODE_FLING && mAdapter instanceof TwoPhaseBinding) {
+			mLastBindPartial = true;
+			return ((TwoPhaseBinding) mAdapter).getView(position, convertView, this,
+					OnScrollListener.SCROLL_STATE_FLING);
+		}
+		mLastBindPartial = false;
+		return mAdapter.getView(position, convertView, this);
+	}
+
+	/**
+	 * Called when scrolling stops, to do the binding put off while it was going on.
+	 */
+	void finishBindsForIdle() {
+		bindDeferredChildren(0);
+		completePartialBinds();
+		updatePreparationWindow();
+	}
+
+	/**
+	 * Lets a TwoPhaseBinding adapter complete the children it only bound lightly during a
+	 * fling.
+	 */
+	void completePartialBinds() {
+		if (!(mAdapter instanceof TwoPhaseBinding)) {
+			return;
+		}
+		final TwoPhaseBinding adapter = (TwoPhaseBinding) mAdapter;
+		boolean completed = false;
+		final int childCount = getChildCount();
+		for (int i = 0; i < childCount; i++) {
+			final View child = getChildAt(i);
+			final ViewGroup.LayoutParams lp = child.getLayoutParams();
+			if (lp instanceof TwoWayAbsListView.LayoutParams
+					&& ((TwoWayAbsListView.LayoutParams) lp).partialBind) {
+				((TwoWayAbsListView.LayoutParams) lp).partialBind = false;
+				adapter.completeBinding(mFirstPosition + i, child);
+				completed = true;
+			}
+		}
+		if (completed) {
+			// Whatever the full bind changed may have a different size
+			requestLayout();
+			invalidate();
+		}
+	}
+
+	/**
+	 * Gets a view for a position while filling the gap a scroll opened. Once the frame has
+	 * spent its bind budget, a recycled view is handed out without being bound; it is laid
+	 * out but not drawn, and bound on a later frame or when scrolling stops.
+	 *
+	 * @see #setFrameBindBudget(long)
+	 */
+	View obtainViewForFill(int position, boolean[] isScrap) {
+		if (mFillingGap && mFrameBindBudgetNanos > 0
+				&& System.nanoTime() - mFillGapStartNanos > mFrameBindBudgetNanos) {
+			final View scrap = mRecycler.getScrapView(position);
+			if (scrap != null) {
+				final ViewGroup.LayoutParams lp = scrap.getLayoutParams();
+				if (lp instanceof TwoWayAbsListView.LayoutParams) {
+					((TwoWayAbsListView.LayoutParams) lp).deferredBind = true;
+					isScrap[0] = true;
+					scrap.onFinishTemporaryDetach();
+					mBindStats.mDeferredBinds++;
+					mFrameLoop.postOnFrame(mDeferredBinder);
+					return scrap;
+				}
+				mRecycler.addScrapView(scrap);
+			}
+		}
+		return obtainView(position, isScrap);
+	}
+
+	/**
+	 * Sets how long filling in the items a scroll brings into view may spend binding them in
+	 * one frame. Items past the budget are laid out with an unbound recycled view, which is
+	 * not drawn, and bound on the following frames or as soon as scrolling stops. Only items
+	 * that can reuse a recycled view are put off; new views are always bound.
+	 *
+	 * @param budgetNanos The budget in nanoseconds, 0 to always bind every item right away,
+	 *        which is the default
+	 * @see #getBindStats()
+	 */
+	public void setFrameBindBudget(long budgetNanos) {
+		mFrameBindBudgetNanos = Math.max(0, budgetNanos);
+		if (mFrameBindBudgetNanos == 0) {
+			bindDeferredChildren(0);
+		}
+	}
+
+	/**
+	 * @return The bind budget per frame in nanoseconds, 0 if there is none
+	 */
+	public long getFrameBindBudget() {
+		return mFrameBindBudgetNanos;
+	}
+
+	/**
+	 * @return The counts of binds put off because of the frame bind budget
+	 */
+	public BindStats getBindStats() {
+		return mBindStats;
+	}
+
+	/**
+	 * Binds children that were laid out unbound, stopping once budgetNanos have been spent.
+	 * At least one child is bound per call; the rest wait for the next frame.
+	 *
+	 * @param budgetNanos How long binding may take, 0 to bind every waiting child
+	 */
+	void bindDeferredChildren(long budgetNanos) {
+		if (mAdapter == null) {
+			return;
+		}
+		final long start = System.nanoTime();
+		boolean bound = false;
+		boolean resized = false;
+		for (int i = 0; i < getChildCount(); i++) {
+			final View child = getChildAt(i);
+			final ViewGroup.LayoutParams lp = child.getLayoutParams();
+			if (!(lp instanceof TwoWayAbsListView.LayoutParams)
+					|| !((TwoWayAbsListView.LayoutParams) lp).deferredBind) {
+				continue;
+			}
+			if (bound && budgetNanos > 0 && System.nanoTime() - start > budgetNanos) {
+				mFrameLoop.postOnFrame(mDeferredBinder);
+				break;
+			}
+			resized |= bindDeferredChild(i, child, (TwoWayAbsListView.LayoutParams) lp);
+			bound = true;
+		}
+
+		if (resized) {
+			requestLayout();
+		} else if (bound) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * Binds a child that was laid out unbound, keeping it where it is.
+	 *
+	 * @return true if the child changed size or was replaced and the children need to be
+	 *         laid out again
+	 */
+	private boolean bindDeferredChild(int index, View child, TwoWayAbsListView.LayoutParams lp) {
+		final int position = mFirstPosition + index;
+		lp.deferredBind = false;
+		mBindStats.mCompletedBinds++;
+
+		final View bound = getAdapterView(position, child);
+		final boolean partial = mLastBindPartial;
+		final int left = child.getLeft();
+		final int top = child.getTop();
+		final int width = child.getWidth();
+		final int height = child.getHeight();
+
+		if (bound == child) {
+			lp.partialBind = partial;
+			setBoundItem(lp, position);
+			if (!child.isLayoutRequested()) {
+				return false;
+			}
+			measureDeferredChild(child, lp, width, height);
+			child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+			return child.getWidth() != width || child.getHeight() != height;
+		}
+
+		// The adapter did not reuse the view, so the new one takes its place
+		detachViewFromParent(index);
+		mRecycler.addScrapView(child);
+
+		TwoWayAbsListView.LayoutParams p;
+		final ViewGroup.LayoutParams boundParams = bound.getLayoutParams();
+		if (boundParams instanceof TwoWayAbsListView.LayoutParams) {
+			p = (TwoWayAbsListView.LayoutParams) boundParams;
+		} else {
+			p = new TwoWayAbsListView.LayoutParams(lp.width, lp.height, lp.viewType);
+		}
+		p.viewType = lp.viewType;
+		p.forceAdd = false;
+		p.deferredBind = false;
+		p.partialBind = partial;
+		p.measuredWidthSpec = lp.measuredWidthSpec;
+		p.measuredHeightSpec = lp.measuredHeightSpec;
+		setBoundItem(p, position);
+		addViewInLayout(bound, index, p, true);
+		measureDeferredChild(bound, p, width, height);
+		bound.layout(left, top, left + bound.getMeasuredWidth(), top + bound.getMeasuredHeight());
+		return true;
+	}
+
+	/**
+	 * Measures a child bound late with the specs it was laid out with, or to its old size if
+	 * those are not known.
+	 */
+	private void measureDeferredChild(View child, TwoWayAbsListView.LayoutParams lp, int width,
+			int height) {
+		if (lp.measuredWidthSpec != -1) {
+			child.measure(lp.measuredWidthSpec, lp.measuredHeightSpec);
+		} else {
+			child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+					MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+		}
+	}
+
+	/**
+	 * Records which item a child was bound to, so the RecycleBin can hand the same view back
+	 * when that item is needed again.
+	 */
+	void setBoundItem(TwoWayAbsListView.LayoutParams p, int position) {
+		if (p.deferredBind) {
+			// Still shows whatever it showed before
+			p.boundPosition = INVALID_POSITION;
+			p.boundItemId = INVALID_ROW_ID;
+			return;
+		}
+		p.boundPosition = position;
+		p.boundGeneration = mDataGeneration;
+		p.boundItemId = mAdapter.hasStableIds() ? mAdapter.getItemId(position) : INVALID_ROW_ID;
+	}
+
+	/**
+	 * Measures a child that is being laid out. When the adapter implements
+	 * {@link UniformItemSizes} for the child's type, a recycled child that was
+	 * last measured with the same specs and still has the size cached for them
+	 * is not measured again, unless it is a ViewGroup that requested a layout.
+	 *
+	 * @param recycled Whether the child already went through a layout pass
+	 *        as it is, so that its measured size can be trusted
+	 * @return true if the child was measured, false if it only needs to be
+	 *         laid out
+	 */
+	boolean measureChildForLayout(View child, TwoWayAbsListView.LayoutParams p,
+			int widthMeasureSpec, int heightMeasureSpec, boolean recycled) {
+		final int viewType = p.viewType;
+		final boolean uniform = mAdapter instanceof UniformItemSizes
+				&& ((UniformItemSizes) mAdapter).hasUniformSize(viewType);
+
+		// A ViewGroup requesting layout may be passing on a request from a
+		// child, which has to be measured and laid out for its new content
+		final boolean requestFromBelow = child instanceof ViewGroup && child.isLayoutRequested();
+		if (uniform && recycled && !requestFromBelow && p.measuredWidthSpec == widthMeasureSpec
+				&& p.measuredHeightSpec == heightMeasureSpec) {
+			final long size = mRecycler.getCachedMeasure(viewType, widthMeasureSpec,
+					heightMeasureSpec);
+			if (size != RecycleBin.NO_CACHED_MEASURE
+					&& child.getMeasuredWidth() == (int) (size >>> 32)
+					&& child.getMeasuredHeight() == (int) size) {
+				return false;
+			}
+		}
+
+		child.measure(widthMeasureSpec, heightMeasureSpec);
+		p.measuredWidthSpec = widthMeasureSpec;
+		p.measuredHeightSpec = heightMeasureSpec;
+		if (uniform) {
+			mRecycler.putCachedMeasure(viewType, widthMeasureSpec, heightMeasureSpec,
+					child.getMeasuredWidth(), child.getMeasuredHeight());
+		}
+		return true;
+	}
+
 	void positionSelector(View sel) {
 		final Rect selectorRect = mSelectorRect;
 		selectorRect.set(sel.getLeft(), sel.getTop(), sel.getRight(), sel.getBottom());
@@ -1594,9 +2186,9 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			rememberSyncState();
 		}
 
-		//if (mFastScroller != null) {
-		//    mFastScroller.onSizeChanged(w, h, oldw, oldh);
-		//}
+		if (mFastScroller != null) {
+			mFastScroller.onSizeChanged();
+		}
 	}
 
 	/**
@@ -1800,8 +2392,18 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		// Dismiss the popup in case onSaveInstanceState() was not invoked
 		//dismissPopup();
 
+		// Settle what the frame loop was running, as losing window focus does: a fling
+		// reports its idle state and no child is left unbound with nothing to bind it
+		mTouchHandler.cancelDrag();
+		stopScroll();
+		bindDeferredChildren(0);
+		mFrameLoop.cancel();
+
 		// Detach any view left in the scrap heap
 		mRecycler.clear();
+		if (mPrefetcher != null) {
+			removeCallbacks(mPrefetcher);
+		}
 
 		final ViewTreeObserver treeObserver = getViewTreeObserver();
 		if (treeObserver != null) {
@@ -2101,15 +2703,14 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		return mTouchHandler.onTouchEvent(ev);
 	}
 
-	/*
-    @Override
-    public void draw(Canvas canvas) {
-        super.draw(canvas);
-        if (mFastScroller != null) {
-            mFastScroller.draw(canvas);
-        }
-    }*/
-
+	@Override
+	public void draw(Canvas canvas) {
+		super.draw(canvas);
+		if (mFastScroller != null) {
+			mFastScroller.draw(canvas);
+		}
+	}
+
 	@Override
 	public boolean onInterceptTouchEvent(MotionEvent ev) {
 		return mTouchHandler.onInterceptTouchEvent(ev);
@@ -2146,6 +2747,9 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 * @param newState The new scroll state.
 	 */
 	void reportScrollStateChange(int newState) {
+		if (newState == OnScrollListener.SCROLL_STATE_IDLE) {
+			finishBindsForIdle();
+		}
 		if (newState != mLastScrollState) {
 			if (mOnScrollListener != null) {
 				mOnScrollListener.onScrollStateChanged(this, newState);
@@ -2223,6 +2827,35 @@ ViewTreeObserver.OnTouchModeChangeListener {
 	 */
 	abstract void fillGap(boolean down);
 
+	/**
+	 * Indexes into the array filled by getChildrenExtent()
+	 */
+	static final int EXTENT_START = 0;
+	static final int EXTENT_END = 1;
+	static final int EXTENT_FILLED_START = 2;
+	static final int EXTENT_FILLED_END = 3;
+
+	/**
+	 * Finds where the children begin and end along the scroll axis, for
+	 * trackMotionScroll(). Only called with at least one child.
+	 *
+	 * <p>EXTENT_START and EXTENT_END get the edges of the children reaching
+	 * furthest, EXTENT_FILLED_START and EXTENT_FILLED_END the edges up to
+	 * which children cover every lane. The two are the same for children
+	 * laid out line by line.</p>
+	 *
+	 * @param vertical true for the top and bottom edges, false for the left
+	 *        and right edges
+	 */
+	void getChildrenExtent(boolean vertical, int[] outExtent) {
+		final View first = getChildAt(0);
+		final View last = getChildAt(getChildCount() - 1);
+		outExtent[EXTENT_START] = outExtent[EXTENT_FILLED_START] =
+				vertical ? first.getTop() : first.getLeft();
+		outExtent[EXTENT_END] = outExtent[EXTENT_FILLED_END] =
+				vertical ? last.getBottom() : last.getRight();
+	}
+
 	void hideSelector() {
 		if (mSelectedPosition != INVALID_POSITION) {
 			if (mLayoutMode != LAYOUT_SPECIFIC) {
@@ -2311,6 +2944,284 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		invalidate();
 	}
 
+	@Override
+	boolean handleItemRangeChanged(int positionStart, int itemCount) {
+		if (!canHandleItemRangeChange(0)) {
+			return false;
+		}
+
+		final int first = mFirstPosition;
+		final int start = Math.max(positionStart, first);
+		final int end = Math.min(positionStart + itemCount, first + getPendingChildCount());
+		if (start < end) {
+			// Only the children showing the changed items need binding again
+			final ArrayList<View> pending = beginPendingItemChanges();
+			for (int position = start; position < end; position++) {
+				scrapPendingView(pending.set(position - first, null));
+			}
+			requestLayout();
+		}
+		return true;
+	}
+
+	@Override
+	boolean handleItemRangeInserted(int positionStart, int itemCount) {
+		if (!canHandleItemRangeChange(itemCount)) {
+			return false;
+		}
+
+		final int first = mFirstPosition;
+		if (positionStart < first) {
+			// Everything on screen just moves along
+			mFirstPosition = first + itemCount;
+		} else {
+			final int size = getPendingChildCount();
+			final int index = positionStart - first;
+			if (index < size) {
+				final ArrayList<View> pending = beginPendingItemChanges();
+				if (itemCount >= size - index) {
+					// The new items push the rest of the children off screen
+					for (int i = size - 1; i >= index; i--) {
+						scrapPendingView(pending.remove(i));
+					}
+					itemCount = size - index;
+				}
+				for (int i = 0; i < itemCount; i++) {
+					pending.add(index, null);
+				}
+			}
+		}
+
+		mOldItemCount = mItemCount;
+		mItemCount = mAdapter.getCount();
+		shiftPositions(positionStart, Integer.MAX_VALUE, mItemCount - mOldItemCount);
+		alignFirstPosition();
+		requestLayout();
+		return true;
+	}
+
+	@Override
+	boolean handleItemRangeRemoved(int positionStart, int itemCount) {
+		final int end = positionStart + itemCount;
+		if (!canHandleItemRangeChange(-itemCount) || mItemCount == itemCount
+				|| isSelectionBetween(positionStart, end - 1)) {
+			return false;
+		}
+
+		final int first = mFirstPosition;
+		final int size = getPendingChildCount();
+		final int start = Math.max(positionStart, first);
+		final int stop = Math.min(end, first + size);
+		if (start < stop) {
+			final ArrayList<View> pending = beginPendingItemChanges();
+			for (int position = stop - 1; position >= start; position--) {
+				scrapPendingView(pending.remove(position - first));
+			}
+		}
+		mFirstPosition = first - Math.max(0, Math.min(end, first) - positionStart);
+		if (mFirstPosition >= mItemCount - itemCount) {
+			// Nothing left to anchor the layout on
+			discardPendingItemChanges();
+			return false;
+		}
+
+		mOldItemCount = mItemCount;
+		mItemCount -= itemCount;
+		shiftPositions(positionStart, end - 1, INVALID_POSITION);
+		shiftPositions(end, Integer.MAX_VALUE, -itemCount);
+		alignFirstPosition();
+		requestLayout();
+		return true;
+	}
+
+	@Override
+	boolean handleItemMoved(int fromPosition, int toPosition) {
+		if (!canHandleItemRangeChange(0)
+				|| isSelectionBetween(Math.min(fromPosition, toPosition),
+						Math.max(fromPosition, toPosition))) {
+			return false;
+		}
+		if (fromPosition == toPosition) {
+			return true;
+		}
+
+		// Take the item out ...
+		final ArrayList<View> pending = beginPendingItemChanges();
+		int first = mFirstPosition;
+		View moved = null;
+		if (fromPosition < first) {
+			first--;
+		} else if (fromPosition - first < pending.size()) {
+			moved = pending.remove(fromPosition - first);
+		}
+
+		// ... and put it back, keeping its view if it stays on screen
+		if (toPosition < first) {
+			first++;
+			scrapPendingView(moved);
+		} else if (toPosition - first <= pending.size()) {
+			pending.add(toPosition - first, moved);
+		} else {
+			scrapPendingView(moved);
+		}
+		mFirstPosition = first;
+
+		mSyncPosition = movePosition(mSyncPosition, fromPosition, toPosition);
+		mResurrectToPosition = movePosition(mResurrectToPosition, fromPosition, toPosition);
+		mMotionPosition = movePosition(mMotionPosition, fromPosition, toPosition);
+		requestLayout();
+		return true;
+	}
+
+	/**
+	 * Moves mFirstPosition back to the start of its line when items added or removed before it
+	 * left it in the middle of one. The items it moves past get no view, so the next layout only
+	 * binds those and keeps the other children.
+	 */
+	private void alignFirstPosition() {
+		final int first = mFirstPosition;
+		final int lineStart = getLineStart(first);
+		if (lineStart >= first) {
+			return;
+		}
+		final ArrayList<View> pending = beginPendingItemChanges();
+		for (int position = lineStart; position < first; position++) {
+			pending.add(0, null);
+		}
+		mFirstPosition = lineStart;
+	}
+
+	/**
+	 * @return The first position of the line holding position, in the current data. Each item
+	 *         is a line of its own unless a subclass lays them out in lines.
+	 */
+	int getLineStart(int position) {
+		return position;
+	}
+
+	/**
+	 * @param delta How many items the change adds to the adapter
+	 * @return Whether a range change can be applied without laying out every child again
+	 */
+	private boolean canHandleItemRangeChange(int delta) {
+		// A full refresh is pending anyway, or the adapter and the view disagree on what changed
+		if (mAdapter == null || mDataChanged || mItemCount == 0
+				|| mAdapter.getCount() != mItemCount + delta) {
+			return false;
+		}
+		// Views bound ahead of time may show stale data or sit at the wrong position now
+		mRecycler.clearPreparedViews();
+		return true;
+	}
+
+	private boolean isSelectionBetween(int first, int last) {
+		return (mSelectedPosition >= first && mSelectedPosition <= last)
+				|| (mNextSelectedPosition >= first && mNextSelectedPosition <= last);
+	}
+
+	/**
+	 * Adds delta to the positions the view keeps track of that fall between first and last,
+	 * or sets them to {@link #INVALID_POSITION} if delta is INVALID_POSITION.
+	 */
+	private void shiftPositions(int first, int last, int delta) {
+		mSelectedPosition = shiftPosition(mSelectedPosition, first, last, delta);
+		mNextSelectedPosition = shiftPosition(mNextSelectedPosition, first, last, delta);
+		mSyncPosition = shiftPosition(mSyncPosition, first, last, delta);
+		mResurrectToPosition = shiftPosition(mResurrectToPosition, first, last, delta);
+		mMotionPosition = shiftPosition(mMotionPosition, first, last, delta);
+	}
+
+	private static int shiftPosition(int position, int first, int last, int delta) {
+		if (position < first || position > last) {
+			return position;
+		}
+		return delta == INVALID_POSITION ? INVALID_POSITION : position + delta;
+	}
+
+	private static int movePosition(int position, int from, int to) {
+		if (position == from) {
+			return to;
+		} else if (from < to && position > from && position <= to) {
+			return position - 1;
+		} else if (to < from && position >= to && position < from) {
+			return position + 1;
+		}
+		return position;
+	}
+
+	/**
+	 * @return How many children there will be before the next layout fills the gaps
+	 */
+	private int getPendingChildCount() {
+		return mPendingActiveViews != null ? mPendingActiveViews.size() : getChildCount();
+	}
+
+	/**
+	 * Like getChildAt(), but takes range changes that have not been laid out yet into account.
+	 *
+	 * @param index The position relative to mFirstPosition
+	 * @return The child that will show that position, or null if it has to be bound again
+	 */
+	View getChildForLayout(int index) {
+		final ArrayList<View> pending = mPendingActiveViews;
+		if (pending == null) {
+			return getChildAt(index);
+		}
+		return index < pending.size() ? pending.get(index) : null;
+	}
+
+	private ArrayList<View> beginPendingItemChanges() {
+		ArrayList<View> pending = mPendingActiveViews;
+		if (pending == null) {
+			final int childCount = getChildCount();
+			pending = new ArrayList<View>(childCount);
+			for (int i = 0; i < childCount; i++) {
+				pending.add(getChildAt(i));
+			}
+			mPendingActiveViews = pending;
+		}
+		return pending;
+	}
+
+	private void scrapPendingView(View child) {
+		if (child != null) {
+			mPendingScrapViews.add(child);
+		}
+	}
+
+	/**
+	 * Forgets about range changes that have not been laid out yet, because the next layout
+	 * rebinds every child anyway.
+	 */
+	void discardPendingItemChanges() {
+		mPendingActiveViews = null;
+		mPendingScrapViews.clear();
+	}
+
+	/**
+	 * Hands the children to the RecycleBin at the start of a layout that keeps them. When
+	 * ranges of items changed since the last layout, the children are matched to their new
+	 * positions first and the ones showing changed or removed items are scrapped.
+	 *
+	 * @param childCount Number of children
+	 * @param firstPosition Position of the first child after the changes
+	 */
+	void fillActiveViewsForLayout(int childCount, int firstPosition) {
+		final RecycleBin recycleBin = mRecycler;
+		final ArrayList<View> pending = mPendingActiveViews;
+		if (pending == null) {
+			recycleBin.fillActiveViews(childCount, firstPosition);
+			return;
+		}
+
+		recycleBin.fillActiveViews(pending, firstPosition);
+		final ArrayList<View> scrap = mPendingScrapViews;
+		for (int i = scrap.size() - 1; i >= 0; i--) {
+			recycleBin.addScrapView(scrap.get(i));
+		}
+		discardPendingItemChanges();
+	}
+
 	/**
 	 * Makes the item at the supplied position selected.
 	 *
@@ -3045,6 +3956,364 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		mRecycler.mRecyclerListener = listener;
 	}
 
+	/**
+	 * Attaches this view to a pool of item views shared with other views, so
+	 * views scrolled out of one of them can be reused by the others. All the
+	 * adapters of the views using a pool have to agree on their view types.
+	 *
+	 * @param pool The pool to use, or null to keep views to this view only
+	 *
+	 * @see TwoWayViewPool
+	 */
+	public void setRecycledViewPool(TwoWayViewPool pool) {
+		mViewPool = pool;
+	}
+
+	/**
+	 * @return The pool set with {@link #setRecycledViewPool(TwoWayViewPool)}, or null
+	 */
+	public TwoWayViewPool getRecycledViewPool() {
+		return mViewPool;
+	}
+
+	/**
+	 * Keeps the children that are less than px beyond either end of the
+	 * scroll axis bound and attached, without drawing them, so scrolling back
+	 * a little does not bind them again. Such children count towards
+	 * {@link #getFirstVisiblePosition()}, {@link #getChildCount()} and the
+	 * visible item count reported to the {@link OnScrollListener}.
+	 *
+	 * @param px The extra space in pixels, 0 to only keep what is on screen
+	 */
+	public void setExtraLayoutSpace(int px) {
+		px = Math.max(0, px);
+		if (px != mExtraLayoutSpace) {
+			mExtraLayoutSpace = px;
+			requestLayout();
+		}
+	}
+
+	/**
+	 * @return The extra space set with {@link #setExtraLayoutSpace(int)}
+	 */
+	public int getExtraLayoutSpace() {
+		return mExtraLayoutSpace;
+	}
+
+	/**
+	 * @return Whether child lies entirely beyond either end of the scroll axis
+	 */
+	private boolean isOffScreen(View child) {
+		return mScrollVertically
+				? child.getBottom() <= 0 || child.getTop() >= getHeight()
+				: child.getRight() <= 0 || child.getLeft() >= getWidth();
+	}
+
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		final ViewGroup.LayoutParams lp = child.getLayoutParams();
+		if (lp instanceof TwoWayAbsListView.LayoutParams
+				&& ((TwoWayAbsListView.LayoutParams) lp).deferredBind) {
+			// Still shows another item, leave the cell empty until it is bound
+			return false;
+		}
+		if (mExtraLayoutSpace > 0 && isOffScreen(child)) {
+			// Kept in the extra layout space
+			return false;
+		}
+		return super.drawChild(canvas, child, drawingTime);
+	}
+
+	/**
+	 * Sets whether the items about to scroll into view are bound while the
+	 * UI thread has time left after a scrolled frame. On by default.
+	 *
+	 * @param enabled false to only bind items once they are needed on screen
+	 */
+	public void setItemPrefetchEnabled(boolean enabled) {
+		mItemPrefetchEnabled = enabled;
+		if (!enabled) {
+			if (mPrefetcher != null) {
+				removeCallbacks(mPrefetcher);
+			}
+			mRecycler.clearPreparedViews();
+		}
+	}
+
+	/**
+	 * @return Whether items are bound ahead of scrolling
+	 * @see #setItemPrefetchEnabled(boolean)
+	 */
+	public boolean isItemPrefetchEnabled() {
+		return mItemPrefetchEnabled;
+	}
+
+	/**
+	 * Called by the touch handlers for every frame that scrolls the children.
+	 *
+	 * @param incrementalDelta How far the children moved, negative when moving towards the
+	 *        start of the list
+	 */
+	void onScrolledForPrefetch(int incrementalDelta) {
+		if (incrementalDelta != 0) {
+			// Children moving towards the start means the view is heading for the end
+			mScrollDirection = incrementalDelta < 0 ? 1 : -1;
+		}
+		if (!mItemPrefetchEnabled || incrementalDelta == 0) {
+			return;
+		}
+		if (mPrefetcher == null) {
+			mPrefetcher = new ViewPrefetcher();
+		}
+		mPrefetcher.onScrolled(incrementalDelta);
+	}
+
+	/**
+	 * @return How many items there are across a line of children, which is how many items
+	 *         the prefetcher binds for each line ahead
+	 */
+	int getPrefetchLaneCount() {
+		return 1;
+	}
+
+	/**
+	 * Measures and lays out a view bound by the prefetcher the way it will be when it is added
+	 * as a child, so that adding it later costs as little as possible.
+	 *
+	 * @param child The view
+	 * @param position The position it shows
+	 */
+	void prepareChild(View child, int position) {
+	}
+
+	/**
+	 * Runs the steps of scroll animations once per display frame. On API 16 and up the steps
+	 * run from a Choreographer frame callback, so they line up with vsync; before that they are
+	 * posted to run no sooner than a frame after the previous batch. A step posted while a batch
+	 * runs goes to the next frame, so a fling never moves the children twice in one frame.
+	 */
+	final class FrameLoop implements Runnable {
+		private static final long FRAME_MILLIS = 16;
+
+		private final ArrayList<Runnable> mSteps = new ArrayList<Runnable>(2);
+		private final ArrayList<Runnable> mRunning = new ArrayList<Runnable>(2);
+
+		/**
+		 * A FrameCallbackCompat once needed, kept as an Object so Choreographer is not loaded
+		 * before API 16
+		 */
+		private Object mFrameCallback;
+		private boolean mScheduled;
+		private long mLastFrameMillis;
+
+		/**
+		 * Runs step once in the next frame. Posting a step that is already waiting does
+		 * nothing.
+		 */
+		void postOnFrame(Runnable step) {
+			if (!mSteps.contains(step)) {
+				mSteps.add(step);
+			}
+			if (!mScheduled) {
+				mScheduled = true;
+				schedule();
+			}
+		}
+
+		/**
+		 * Stops a step from running, even if it belongs to the batch running now.
+		 */
+		void removeFromFrame(Runnable step) {
+			mSteps.remove(step);
+			mRunning.remove(step);
+		}
+
+		/**
+		 * Drops every waiting step.
+		 */
+		void cancel() {
+			mSteps.clear();
+			mRunning.clear();
+			if (mScheduled) {
+				mScheduled = false;
+				if (mFrameCallback != null) {
+					((FrameCallbackCompat) mFrameCallback).remove();
+				}
+				removeCallbacks(this);
+			}
+		}
+
+		private void schedule() {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				if (mFrameCallback == null) {
+					mFrameCallback = new FrameCallbackCompat(this);
+				}
+				((FrameCallbackCompat) mFrameCallback).post();
+			} else {
+				final long wait = mLastFrameMillis + FRAME_MILLIS - SystemClock.uptimeMillis();
+				postDelayed(this, Math.max(0, wait));
+			}
+		}
+
+		public void run() {
+			doFrame();
+		}
+
+		void doFrame() {
+			mScheduled = false;
+			mLastFrameMillis = SystemClock.uptimeMillis();
+
+			final ArrayList<Runnable> running = mRunning;
+			running.addAll(mSteps);
+			mSteps.clear();
+			while (!running.isEmpty()) {
+				running.remove(0).run();
+			}
+		}
+	}
+
+	/**
+	 * Hands Choreographer frames to a FrameLoop. Only created on API 16 and up.
+	 */
+	private static final class FrameCallbackCompat implements Choreographer.FrameCallback {
+		private final FrameLoop mLoop;
+
+		FrameCallbackCompat(FrameLoop loop) {
+			mLoop = loop;
+		}
+
+		void post() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		void remove() {
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+
+		public void doFrame(long frameTimeNanos) {
+			mLoop.doFrame();
+		}
+	}
+
+	/**
+	 * Binds the next lines in the scroll direction into the RecycleBin after a scrolled frame,
+	 * as long as there is time left before the next frame is due. How many lines ahead depends
+	 * on how fast the list is moving.
+	 */
+	final class ViewPrefetcher implements Runnable {
+		/**
+		 * Time between two frames
+		 */
+		private static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+		/**
+		 * How far ahead to bind, expressed as scrolling time at the current velocity
+		 */
+		private static final int LOOKAHEAD_MILLIS = 100;
+
+		/**
+		 * The most lines ever bound ahead
+		 */
+		private static final int MAX_LINES_AHEAD = 3;
+
+		private final boolean[] mPreparedIsScrap = new boolean[1];
+
+		/**
+		 * When the frame that scrolled last started
+		 */
+		private long mFrameStartNanos;
+
+		/**
+		 * When the frame before it scrolled, to estimate the velocity of a drag
+		 */
+		private long mLastScrollNanos;
+
+		/**
+		 * How fast the list moves in pixels per second
+		 */
+		private float mVelocity;
+
+		/**
+		 * True when new items come in at the end of the list
+		 */
+		private boolean mTowardsEnd;
+
+		/**
+		 * Running average of the time it takes to bind and measure one view
+		 */
+		private long mAverageBindNanos;
+
+		private boolean mPosted;
+
+		void onScrolled(int incrementalDelta) {
+			final long now = System.nanoTime();
+			mTowardsEnd = incrementalDelta < 0;
+
+			final float flingVelocity = mTouchHandler.getFlingVelocity();
+			if (flingVelocity > 0) {
+				mVelocity = flingVelocity;
+			} else if (mLastScrollNanos > 0 && now - mLastScrollNanos < FRAME_INTERVAL_NANOS * 6) {
+				mVelocity = Math.abs(incrementalDelta) * 1e9f / Math.max(1, now - mLastScrollNanos);
+			} else {
+				mVelocity = 0;
+			}
+			mLastScrollNanos = now;
+			mFrameStartNanos = now;
+
+			if (!mPosted) {
+				mPosted = true;
+				post(this);
+			}
+		}
+
+		public void run() {
+			mPosted = false;
+			final int childCount = getChildCount();
+			if (mAdapter == null || mDataChanged || childCount == 0
+					|| (mTouchMode != TOUCH_MODE_SCROLL && mTouchMode != TOUCH_MODE_FLING)) {
+				return;
+			}
+
+			final int lanes = Math.max(1, getPrefetchLaneCount());
+			final View edgeChild = getChildAt(mTowardsEnd ? childCount - 1 : 0);
+			final int lineSize = Math.max(1, mScrollVertically ? edgeChild.getHeight() : edgeChild.getWidth());
+			final int lines = Math.min(MAX_LINES_AHEAD,
+					1 + (int) (mVelocity * LOOKAHEAD_MILLIS / 1000 / lineSize));
+
+			final int firstPosition = mFirstPosition;
+			final int lastPosition = firstPosition + childCount - 1;
+			final RecycleBin recycleBin = mRecycler;
+			// Let go of views bound for places the list is no longer heading to
+			recycleBin.prunePreparedViews(firstPosition - MAX_LINES_AHEAD * lanes,
+					lastPosition + MAX_LINES_AHEAD * lanes);
+
+			final int count = lanes * lines;
+			final long deadline = mFrameStartNanos + FRAME_INTERVAL_NANOS;
+			for (int i = 1; i <= count; i++) {
+				final int position = mTowardsEnd ? lastPosition + i : firstPosition - i;
+				if (position < 0 || position >= mItemCount) {
+					break;
+				}
+				if (recycleBin.hasPreparedView(position)) {
+					continue;
+				}
+
+				final long start = System.nanoTime();
+				if (start + mAverageBindNanos > deadline) {
+					// Whatever is left is bound when it scrolls into view
+					break;
+				}
+
+				final View child = obtainView(position, mPreparedIsScrap);
+				prepareChild(child, position);
+				recycleBin.addPreparedView(position, child, mPreparedIsScrap[0]);
+
+				final long took = System.nanoTime() - start;
+				mAverageBindNanos = mAverageBindNanos == 0 ? took : (mAverageBindNanos * 3 + took) / 4;
+			}
+		}
+	}
+
 	/**
 	 * TwoWayAbsListView extends LayoutParams to provide a place to hold the view type.
 	 */
@@ -3069,31 +4338,196 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		boolean recycledHeaderFooter;
 
 		/**
-		 * When an TwoWayAbsListView is measured with an AT_MOST measure spec, it needs
-		 * to obtain children views to measure itself. When doing so, the children
-		 * are not attached to the window, but put in the recycler which assumes
-		 * they've been attached before. Setting this flag will force the reused
-		 * view to be attached to the window rather than just attached to the
-		 * parent.
+		 * When an TwoWayAbsListView is measured with an AT_MOST measure spec, it needs
+		 * to obtain children views to measure itself. When doing so, the children
+		 * are not attached to the window, but put in the recycler which assumes
+		 * they've been attached before. Setting this flag will force the reused
+		 * view to be attached to the window rather than just attached to the
+		 * parent.
+		 */
+		@ViewDebug.ExportedProperty
+		boolean forceAdd;
+
+		/**
+		 * The position the view was last bound to, or INVALID_POSITION
+		 */
+		int boundPosition = INVALID_POSITION;
+
+		/**
+		 * The stable id of the item the view was last bound to, or INVALID_ROW_ID
+		 */
+		long boundItemId = INVALID_ROW_ID;
+
+		/**
+		 * The data generation boundPosition belongs to
+		 */
+		int boundGeneration;
+
+		/**
+		 * The measure specs the view was last measured with by measureChildForLayout(),
+		 * -1 (not a valid spec) until then
+		 */
+		int measuredWidthSpec = -1;
+		int measuredHeightSpec = -1;
+
+		/**
+		 * Set while the view is a child that was laid out without being bound to its position
+		 * because the frame had spent its bind budget. It is not drawn until it is bound.
+		 */
+		boolean deferredBind;
+
+		/**
+		 * Set when a TwoPhaseBinding adapter only did its light bind on the view during a fling
+		 */
+		boolean partialBind;
+
+		public LayoutParams(Context c, AttributeSet attrs) {
+			super(c, attrs);
+		}
+
+		public LayoutParams(int w, int h) {
+			super(w, h);
+		}
+
+		public LayoutParams(int w, int h, int viewType) {
+			super(w, h);
+			this.viewType = viewType;
+		}
+
+		public LayoutParams(ViewGroup.LayoutParams source) {
+			super(source);
+		}
+	}
+
+	/**
+	 * Interface an adapter can implement to let the view show a recycled view
+	 * that is known to have been bound to the same item without calling
+	 * {@link android.widget.Adapter#getView(int, View, ViewGroup)} again.
+	 */
+	public static interface BoundViewReuse {
+		/**
+		 * Called when the scrap heap holds a view that was bound to the item
+		 * now needed.
+		 *
+		 * @param position The position to show
+		 * @param convertView The recycled view
+		 * @param dataChanged false if convertView was bound to position and
+		 *        nothing changed since; true if the data set changed and
+		 *        only the stable id of the item is known to match
+		 * @return true to show convertView as it is, false to have getView()
+		 *         bind it again
+		 */
+		boolean canReuseBoundView(int position, View convertView, boolean dataChanged);
+	}
+
+	/**
+	 * Interface an adapter can implement to say that binding a view of some
+	 * type to a different item never changes its size. A recycled view of
+	 * such a type that is given the same measure specs it was last measured
+	 * with is then laid out at its old size without being measured again.
+	 * A view that is a ViewGroup and requested a layout is still measured,
+	 * since the request may have come from a child whose content changed.
+	 *
+	 * <p>Binding a ViewGroup cell usually changes a child, so in practice this
+	 * only saves work for cells that are a single View, such as an
+	 * ImageView. For a grid of cells with a layout inside, use
+	 * {@link TwoWayGridView#setFixedCellSize(boolean)}, which measures them
+	 * with exact specs taken from the first cell of their type.</p>
+	 */
+	public static interface UniformItemSizes {
+		/**
+		 * @param viewType A view type returned by
+		 *        {@link android.widget.Adapter#getItemViewType(int)}
+		 * @return true if views of viewType always measure to the same size
+		 *         for the same measure specs
+		 */
+		boolean hasUniformSize(int viewType);
+	}
+
+	/**
+	 * Interface an adapter can implement to hear which positions the view is
+	 * about to show, so it can get their data ready off the UI thread and have
+	 * {@link android.widget.Adapter#getView(int, View, ViewGroup)} only apply
+	 * it. The window covers the visible positions and a few lines past them,
+	 * mostly in the direction the view is scrolling, and is reported again
+	 * every time it changes. Work for positions that left it can be dropped.
+	 *
+	 * @see TwoWayItemPreparer
+	 */
+	public static interface PreparationWindowListener {
+		/**
+		 * Called on the UI thread when the window of positions changes.
+		 *
+		 * @param first The first position of the window
+		 * @param last The last position of the window, inclusive
+		 * @param firstVisible The first position on screen
+		 * @param lastVisible The last position on screen, inclusive
+		 * @param direction 1 when scrolling towards the end of the data, -1
+		 *        when scrolling towards the start, 0 when not scrolling
+		 */
+		void onPreparationWindowChanged(int first, int last, int firstVisible, int lastVisible,
+				int direction);
+	}
+
+	/**
+	 * Interface an adapter can implement to bind views in two steps: a light
+	 * bind while the view is flinging, when nobody can read the items going
+	 * by, and the rest once scrolling stops. The
+	 * {@link android.widget.Adapter#getView(int, View, ViewGroup)} of the
+	 * adapter is still used whenever the view is not flinging.
+	 */
+	public static interface TwoPhaseBinding {
+		/**
+		 * Like {@link android.widget.Adapter#getView(int, View, ViewGroup)},
+		 * called instead of it while the view is flinging.
+		 *
+		 * @param scrollState The scroll state the view is in, currently always
+		 *        {@link OnScrollListener#SCROLL_STATE_FLING}
+		 * @return The view for position, set up as much as is worth seeing
+		 *         at fling speed
+		 */
+		View getView(int position, View convertView, ViewGroup parent, int scrollState);
+
+		/**
+		 * Called when the view stops scrolling for every child that only had
+		 * the light bind, to do the rest of the work.
+		 *
+		 * @param position The position the view shows
+		 * @param view The view returned by the light bind
 		 */
-		@ViewDebug.ExportedProperty
-		boolean forceAdd;
+		void completeBinding(int position, View view);
+	}
 
-		public LayoutParams(Context c, AttributeSet attrs) {
-			super(c, attrs);
-		}
+	/**
+	 * Counts of the binds a view put off because of its frame bind budget.
+	 *
+	 * @see TwoWayAbsListView#setFrameBindBudget(long)
+	 */
+	public static class BindStats {
+		int mDeferredBinds;
+		int mCompletedBinds;
 
-		public LayoutParams(int w, int h) {
-			super(w, h);
+		/**
+		 * @return How many items were laid out unbound because a frame spent its budget
+		 */
+		public int getDeferredBindCount() {
+			return mDeferredBinds;
 		}
 
-		public LayoutParams(int w, int h, int viewType) {
-			super(w, h);
-			this.viewType = viewType;
+		/**
+		 * @return How many of those were bound later while still on screen. The others
+		 *         were scrolled away first or rebound by a layout.
+		 */
+		public int getCompletedDeferredBindCount() {
+			return mCompletedBinds;
 		}
 
-		public LayoutParams(ViewGroup.LayoutParams source) {
-			super(source);
+		/**
+		 * Sets both counts back to 0.
+		 */
+		public void reset() {
+			mDeferredBinds = 0;
+			mCompletedBinds = 0;
 		}
 	}
 
@@ -3151,10 +4585,42 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 		private ArrayList<View> mCurrentScrap;
 
+		/**
+		 * How the view last returned by getScrapView() matched the position asked for, one
+		 * of the SCRAP_MATCH_* constants
+		 */
+		int mLastScrapMatch = SCRAP_MATCH_NONE;
+
+		/**
+		 * Views bound ahead of time by the ViewPrefetcher, by the position they show. Views
+		 * that were already children once sit in mPreparedViews as if they were scrap; new
+		 * ones are marked forceAdd.
+		 */
+		private final SparseArray<View> mPreparedViews = new SparseArray<View>();
+
+		/**
+		 * Returned by getCachedMeasure() when there is no entry
+		 */
+		static final long NO_CACHED_MEASURE = -1L;
+
+		/**
+		 * Number of (widthSpec, heightSpec) pairs remembered for each view type
+		 */
+		private static final int MEASURE_CACHE_ENTRIES = 4;
+
+		/**
+		 * Sizes measured for views of types with a uniform size, by view type. Each array holds
+		 * MEASURE_CACHE_ENTRIES entries of {widthSpec, heightSpec, width, height}, the most
+		 * recent one first; unused entries have a width of -1.
+		 */
+		private final SparseArray<int[]> mMeasureCache = new SparseArray<int[]>();
+
 		public void setViewTypeCount(int viewTypeCount) {
 			if (viewTypeCount < 1) {
 				throw new IllegalArgumentException("Can't have a viewTypeCount < 1");
 			}
+			// A new adapter, so its types may measure differently
+			mMeasureCache.clear();
 			//noinspection unchecked
 			ArrayList<View>[] scrapViews = new ArrayList[viewTypeCount];
 			for (int i = 0; i < viewTypeCount; i++) {
@@ -3188,15 +4654,128 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			return viewType >= 0;
 		}
 
+		/**
+		 * Keeps a view that was bound for position before it was needed.
+		 *
+		 * @param wasScrap Whether the view came from the scrap heap
+		 */
+		void addPreparedView(int position, View view, boolean wasScrap) {
+			if (!wasScrap) {
+				// It has never been a child, so it has to be added rather than attached
+				TwoWayAbsListView.LayoutParams lp = (TwoWayAbsListView.LayoutParams) view.getLayoutParams();
+				if (lp != null) {
+					lp.forceAdd = true;
+				}
+			}
+			final View old = mPreparedViews.get(position);
+			if (old != null) {
+				addScrapView(old);
+			}
+			mPreparedViews.put(position, view);
+		}
+
+		boolean hasPreparedView(int position) {
+			return mPreparedViews.get(position) != null;
+		}
+
+		/**
+		 * @return The view bound ahead of time for position, or null. The view is removed
+		 *         from the RecycleBin and can be used like a view from the scrap heap.
+		 */
+		View getPreparedView(int position) {
+			final View view = mPreparedViews.get(position);
+			if (view != null) {
+				mPreparedViews.delete(position);
+			}
+			return view;
+		}
+
+		/**
+		 * Moves the views bound ahead of time for positions outside first to last to the
+		 * scrap heap.
+		 */
+		void prunePreparedViews(int first, int last) {
+			final SparseArray<View> prepared = mPreparedViews;
+			for (int i = prepared.size() - 1; i >= 0; i--) {
+				final int position = prepared.keyAt(i);
+				if (position < first || position > last) {
+					final View view = prepared.valueAt(i);
+					prepared.delete(position);
+					addScrapView(view);
+				}
+			}
+		}
+
+		/**
+		 * Moves all the views bound ahead of time to the scrap heap.
+		 */
+		void clearPreparedViews() {
+			final SparseArray<View> prepared = mPreparedViews;
+			final int count = prepared.size();
+			for (int i = 0; i < count; i++) {
+				addScrapView(prepared.valueAt(i));
+			}
+			prepared.clear();
+		}
+
+		/**
+		 * @return The width and height measured for a view of the type with these specs, packed
+		 *         as (width << 32) | height, or NO_CACHED_MEASURE
+		 */
+		long getCachedMeasure(int viewType, int widthMeasureSpec, int heightMeasureSpec) {
+			final int[] entries = mMeasureCache.get(viewType);
+			if (entries != null) {
+				for (int i = 0; i < entries.length; i += 4) {
+					if (entries[i + 2] >= 0 && entries[i] == widthMeasureSpec
+							&& entries[i + 1] == heightMeasureSpec) {
+						return ((long) entries[i + 2] << 32) | (entries[i + 3] & 0xffffffffL);
+					}
+				}
+			}
+			return NO_CACHED_MEASURE;
+		}
+
+		/**
+		 * Remembers the size a view of the type measured to with these specs, dropping the
+		 * oldest entry for the type if it has no room left.
+		 */
+		void putCachedMeasure(int viewType, int widthMeasureSpec, int heightMeasureSpec,
+				int width, int height) {
+			int[] entries = mMeasureCache.get(viewType);
+			if (entries == null) {
+				entries = new int[MEASURE_CACHE_ENTRIES * 4];
+				for (int i = 0; i < entries.length; i += 4) {
+					entries[i + 2] = -1;
+				}
+				mMeasureCache.put(viewType, entries);
+			}
+
+			// Move everything before the matching entry, or the last one, down one slot
+			int end = entries.length - 4;
+			for (int i = 0; i < entries.length; i += 4) {
+				if (entries[i + 2] < 0 || (entries[i] == widthMeasureSpec
+						&& entries[i + 1] == heightMeasureSpec)) {
+					end = i;
+					break;
+				}
+			}
+			System.arraycopy(entries, 0, entries, 4, end);
+			entries[0] = widthMeasureSpec;
+			entries[1] = heightMeasureSpec;
+			entries[2] = width;
+			entries[3] = height;
+		}
+
 		/**
 		 * Clears the scrap heap.
 		 */
 		void clear() {
+			clearPreparedViews();
 			if (mViewTypeCount == 1) {
 				final ArrayList<View> scrap = mCurrentScrap;
 				final int scrapCount = scrap.size();
 				for (int i = 0; i < scrapCount; i++) {
-					removeDetachedView(scrap.remove(scrapCount - 1 - i), false);
+					releaseScrapView(scrap.remove(scrapCount - 1 - i));
 				}
 			} else {
 				final int typeCount = mViewTypeCount;
@@ -3204,7 +4783,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					final ArrayList<View> scrap = mScrapViews[i];
 					final int scrapCount = scrap.size();
 					for (int j = 0; j < scrapCount; j++) {
-						removeDetachedView(scrap.remove(scrapCount - 1 - j), false);
+						releaseScrapView(scrap.remove(scrapCount - 1 - j));
 					}
 				}
 			}
@@ -3236,6 +4815,36 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 		}
 
+		/**
+		 * Fill ActiveViews with the supplied views, which are children of the
+		 * TwoWayAbsListView in the order of the positions they now show. Null entries are
+		 * positions that have no view to reuse.
+		 *
+		 * @param views The views, starting with the one at firstActivePosition
+		 * @param firstActivePosition The position of the first view that will be stored in
+		 *        mActiveViews
+		 */
+		void fillActiveViews(List<View> views, int firstActivePosition) {
+			final int count = views.size();
+			if (mActiveViews.length < count) {
+				mActiveViews = new View[count];
+			}
+			mFirstActivePosition = firstActivePosition;
+
+			final View[] activeViews = mActiveViews;
+			for (int i = 0; i < count; i++) {
+				final View child = views.get(i);
+				activeViews[i] = null;
+				if (child != null) {
+					TwoWayAbsListView.LayoutParams lp = (TwoWayAbsListView.LayoutParams) child.getLayoutParams();
+					// Don't put header or footer views into the scrap heap
+					if (lp != null && lp.viewType != ITEM_VIEW_TYPE_HEADER_OR_FOOTER) {
+						activeViews[i] = child;
+					}
+				}
+			}
+		}
+
 		/**
 		 * Get the view corresponding to the specified position. The view will be removed from
 		 * mActiveViews if it is found.
@@ -3255,17 +4864,17 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		}
 
 		/**
-		 * @return A view from the ScrapViews collection. These are unordered.
+		 * @return A view from the ScrapViews collection, or from the shared pool if there is
+		 *         none. These are unordered.
 		 */
 		View getScrapView(int position) {
+			mLastScrapMatch = SCRAP_MATCH_NONE;
 			ArrayList<View> scrapViews;
 			if (mViewTypeCount == 1) {
 				scrapViews = mCurrentScrap;
 				int size = scrapViews.size();
 				if (size > 0) {
-					return scrapViews.remove(size - 1);
-				} else {
-					return null;
+					return removeBestScrapView(scrapViews, position);
 				}
 			} else {
 				int whichScrap = mAdapter.getItemViewType(position);
@@ -3273,11 +4882,60 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					scrapViews = mScrapViews[whichScrap];
 					int size = scrapViews.size();
 					if (size > 0) {
-						return scrapViews.remove(size - 1);
+						return removeBestScrapView(scrapViews, position);
 					}
 				}
 			}
-			return null;
+			return getPooledView(position);
+		}
+
+		/**
+		 * Takes the view that was last bound to position out of a scrap pile, or failing
+		 * that the one bound to the same stable id, or failing that the last one added.
+		 */
+		private View removeBestScrapView(ArrayList<View> scrapViews, int position) {
+			final int generation = mDataGeneration;
+			final boolean stableIds = mAdapter.hasStableIds();
+			long itemId = INVALID_ROW_ID;
+			int idMatch = -1;
+
+			for (int i = scrapViews.size() - 1; i >= 0; i--) {
+				final TwoWayAbsListView.LayoutParams lp =
+						(TwoWayAbsListView.LayoutParams) scrapViews.get(i).getLayoutParams();
+				if (lp == null) {
+					continue;
+				}
+				if (lp.boundPosition == position && lp.boundGeneration == generation) {
+					mLastScrapMatch = SCRAP_MATCH_POSITION;
+					return scrapViews.remove(i);
+				}
+				if (stableIds && idMatch < 0 && lp.boundItemId != INVALID_ROW_ID) {
+					if (itemId == INVALID_ROW_ID) {
+						itemId = mAdapter.getItemId(position);
+					}
+					if (lp.boundItemId == itemId) {
+						idMatch = i;
+					}
+				}
+			}
+
+			if (idMatch >= 0) {
+				mLastScrapMatch = SCRAP_MATCH_ITEM_ID;
+				return scrapViews.remove(idMatch);
+			}
+			return scrapViews.remove(scrapViews.size() - 1);
+		}
+
+		/**
+		 * @return A view from the shared pool for the type of the item at position, or null
+		 */
+		private View getPooledView(int position) {
+			final TwoWayViewPool pool = mViewPool;
+			if (pool == null) {
+				return null;
+			}
+			final int viewType = mAdapter.getItemViewType(position);
+			return shouldRecycleViewType(viewType) ? pool.getRecycledView(viewType) : null;
 		}
 
 		/**
@@ -3374,7 +5032,29 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				final int extras = size - maxViews;
 				size--;
 				for (int j = 0; j < extras; j++) {
-					removeDetachedView(scrapPile.remove(size--), false);
+					releaseScrapView(scrapPile.remove(size--));
+				}
+			}
+		}
+
+		/**
+		 * Lets go of a scrap view this RecycleBin has no room for, handing it to the shared
+		 * pool if there is one.
+		 */
+		private void releaseScrapView(View scrap) {
+			removeDetachedView(scrap, false);
+
+			final TwoWayViewPool pool = mViewPool;
+			if (pool != null) {
+				TwoWayAbsListView.LayoutParams lp = (TwoWayAbsListView.LayoutParams) scrap.getLayoutParams();
+				if (lp != null && shouldRecycleViewType(lp.viewType)) {
+					// The next view to use it has to add it as a new child and measure it for its
+					// own cell size
+					lp.forceAdd = true;
+					lp.boundPosition = INVALID_POSITION;
+					lp.boundItemId = INVALID_ROW_ID;
+					scrap.forceLayout();
+					pool.putRecycledView(lp.viewType, scrap);
 				}
 			}
 		}
@@ -3453,6 +5133,14 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		 */
 		int mMotionCorrection;
 
+		/**
+		 * @return How fast the current fling moves the list in pixels per second, or 0 when
+		 *         the list is not flinging
+		 */
+		float getFlingVelocity() {
+			return mFlingRunnable != null ? mFlingRunnable.getVelocity() : 0;
+		}
+
 		public void onWindowFocusChanged(boolean hasWindowFocus) {
 
 			final int touchMode = isInTouchMode() ? TOUCH_MODE_ON : TOUCH_MODE_OFF;
@@ -3460,7 +5148,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			if (!hasWindowFocus) {
 				setChildrenDrawingCacheEnabled(false);
 				if (mFlingRunnable != null) {
-					removeCallbacks(mFlingRunnable);
+					mFrameLoop.removeFromFrame(mFlingRunnable);
 					// let the fling runnable report it's new state which
 					// should be idle
 					mFlingRunnable.endFling();
@@ -3558,6 +5246,9 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		 * @param newState The new scroll state.
 		 */
 		void reportScrollStateChange(int newState) {
+			if (newState == OnScrollListener.SCROLL_STATE_IDLE) {
+				finishBindsForIdle();
+			}
 			if (newState != mLastScrollState) {
 				if (mOnScrollListener != null) {
 					mOnScrollListener.onScrollStateChanged(TwoWayAbsListView.this, newState);
@@ -3695,19 +5386,31 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 			abstract void startScroll(int distance, int duration);
 
+			/**
+			 * @return The current speed of the fling in pixels per second, or 0 if it is over
+			 *         or the platform cannot tell
+			 */
+			float getVelocity() {
+				if (mTouchMode != TOUCH_MODE_FLING || mScroller.isFinished()
+						|| Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+					return 0;
+				}
+				return Math.abs(mScroller.getCurrVelocity());
+			}
+
 			protected void endFling() {
 				mTouchMode = TOUCH_MODE_REST;
 
 				reportScrollStateChange(OnScrollListener.SCROLL_STATE_IDLE);
 				clearScrollingCache();
 
-				removeCallbacks(this);
+				mFrameLoop.removeFromFrame(this);
 				
 				if (mCheckFlywheel != null) {
 					removeCallbacks(mCheckFlywheel);
 				}
 				if (mPositionScroller != null) {
-					removeCallbacks(mPositionScroller);
+					mFrameLoop.removeFromFrame(mPositionScroller);
 				}
 
 				mScroller.abortAnimation();
@@ -3716,6 +5419,58 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			public abstract void run();
 		}
 
+		/**
+		 * Position along the scroll axis of the last ACTION_MOVE that has not been applied yet,
+		 * or Integer.MIN_VALUE
+		 */
+		int mPendingDragMotion = Integer.MIN_VALUE;
+
+		/**
+		 * Applies the moves received since the last frame as a single scroll
+		 */
+		final Runnable mDragStep = new Runnable() {
+			public void run() {
+				flushDrag();
+			}
+		};
+
+		/**
+		 * Queues a drag to motion for the next frame. Moves arriving before then replace it, so
+		 * however often the touch screen reports, the children are moved once per frame.
+		 * The velocity tracker still sees every event, historical samples included.
+		 */
+		void postDrag(int motion) {
+			mPendingDragMotion = motion;
+			mFrameLoop.postOnFrame(mDragStep);
+		}
+
+		/**
+		 * Applies a queued drag right away.
+		 */
+		void flushDrag() {
+			final int motion = mPendingDragMotion;
+			if (motion == Integer.MIN_VALUE) {
+				return;
+			}
+			cancelDrag();
+			if (mTouchMode == TOUCH_MODE_SCROLL) {
+				applyDrag(motion);
+			}
+		}
+
+		/**
+		 * Forgets a queued drag.
+		 */
+		void cancelDrag() {
+			mPendingDragMotion = Integer.MIN_VALUE;
+			mFrameLoop.removeFromFrame(mDragStep);
+		}
+
+		/**
+		 * Scrolls the children so the point first touched follows the finger to motion.
+		 */
+		abstract void applyDrag(int motion);
+
 		abstract class PositionScroller implements Runnable {
 			protected static final int SCROLL_DURATION = 400;
 
@@ -3724,6 +5479,12 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			protected static final int MOVE_DOWN_BOUND = 3;
 			protected static final int MOVE_UP_BOUND = 4;
 
+			/**
+			 * A target more than this many screens of items away is not scrolled to all the
+			 * way; the view is laid out near it first.
+			 */
+			protected static final int TELEPORT_THRESHOLD_SCREENS = 3;
+
 			protected boolean mVertical;
 			protected int mMode;
 			protected int mTargetPos;
@@ -3752,6 +5513,16 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					return;
 				}
 
+				final int visibleCount = lastPos - firstPos + 1;
+				if (viewTravelCount > visibleCount * TELEPORT_THRESHOLD_SCREENS && !mDataChanged) {
+					teleport(position, mMode == MOVE_DOWN_POS, visibleCount);
+					if (mMode == MOVE_DOWN_POS) {
+						viewTravelCount = position - (mFirstPosition + getChildCount() - 1) + 1;
+					} else {
+						viewTravelCount = mFirstPosition - position + 1;
+					}
+				}
+
 				if (viewTravelCount > 0) {
 					mScrollDuration = SCROLL_DURATION / viewTravelCount;
 				} else {
@@ -3761,7 +5532,28 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mBoundPos = INVALID_POSITION;
 				mLastSeenPos = INVALID_POSITION;
 
-				post(this);
+				mFrameLoop.postOnFrame(this);
+			}
+
+			/**
+			 * Lays the view out again around a position about a screen short of position, so
+			 * that the animation only has that last screen to cover and the items in between
+			 * are never bound. Only used without a bound position, which has to stay on screen.
+			 *
+			 * @param down Whether position is after the visible items
+			 * @param visibleCount How many items are on screen
+			 */
+			private void teleport(int position, boolean down, int visibleCount) {
+				int landing = down ? position - visibleCount * 2 : position + visibleCount;
+				landing = Math.max(0, Math.min(landing, mItemCount - 1));
+
+				if (mFlingRunnable != null) {
+					mFlingRunnable.endFling();
+				}
+				mSyncPosition = landing;
+				mSpecificTop = mScrollVertically ? mListPadding.top : mListPadding.left;
+				mLayoutMode = LAYOUT_SYNC;
+				layoutChildren();
 			}
 
 			void start(int position, int boundPosition) {
@@ -3820,11 +5612,11 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mBoundPos = boundPosition;
 				mLastSeenPos = INVALID_POSITION;
 
-				post(this);
+				mFrameLoop.postOnFrame(this);
 			}
 
 			void stop() {
-				removeCallbacks(this);
+				mFrameLoop.removeFromFrame(this);
 			}
 
 			public abstract void run();
@@ -3858,6 +5650,38 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		 */
 		int mMotionViewNewTop;
 
+		@Override
+		void applyDrag(int y) {
+			if (y == mLastY) {
+				return;
+			}
+			final int deltaY = y - mMotionY - mMotionCorrection;
+			int incrementalDeltaY = mLastY != Integer.MIN_VALUE ? y - mLastY : deltaY;
+
+			// No need to do all this work if we're not going to move anyway
+			boolean atEdge = false;
+			if (incrementalDeltaY != 0) {
+				atEdge = trackMotionScroll(deltaY, incrementalDeltaY);
+			}
+
+			// Check to see if we have bumped into the scroll limit
+			if (atEdge && getChildCount() > 0) {
+				// Treat this like we're starting a new scroll from the current
+				// position. This will let the user start scrolling back into
+				// content immediately rather than needing to scroll back to the
+				// point where they hit the limit first.
+				int motionPosition = findMotionRowY(y);
+				if (motionPosition >= 0) {
+					final View motionView = getChildAt(motionPosition - mFirstPosition);
+					mMotionViewOriginalTop = motionView.getTop();
+				}
+				mMotionY = y;
+				mMotionPosition = motionPosition;
+				invalidate();
+			}
+			mLastY = y;
+		}
+
 		@Override
 		public boolean onTouchEvent(MotionEvent ev) {
 			if (!isEnabled()) {
@@ -3866,13 +5690,12 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				return isClickable() || isLongClickable();
 			}
 
-			/*
-            if (mFastScroller != null) {
-                boolean intercepted = mFastScroller.onTouchEvent(ev);
-                if (intercepted) {
-                    return true;
-                }
-            }*/
+			if (mFastScroller != null) {
+				boolean intercepted = mFastScroller.onTouchEvent(ev);
+				if (intercepted) {
+					return true;
+				}
+			}
 
 			final int action = ev.getAction();
 
@@ -3886,6 +5709,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 			switch (action) {
 			case MotionEvent.ACTION_DOWN: {
+				cancelDrag();
 				final int x = (int) ev.getX();
 				final int y = (int) ev.getY();
 				int motionPosition = pointToPosition(x, y);
@@ -3950,33 +5774,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 						}
 					}
 
-					if (y != mLastY) {
-						deltaY -= mMotionCorrection;
-						int incrementalDeltaY = mLastY != Integer.MIN_VALUE ? y - mLastY : deltaY;
-
-						// No need to do all this work if we're not going to move anyway
-						boolean atEdge = false;
-						if (incrementalDeltaY != 0) {
-							atEdge = trackMotionScroll(deltaY, incrementalDeltaY);
-						}
-
-						// Check to see if we have bumped into the scroll limit
-						if (atEdge && getChildCount() > 0) {
-							// Treat this like we're starting a new scroll from the current
-							// position. This will let the user start scrolling back into
-							// content immediately rather than needing to scroll back to the
-							// point where they hit the limit first.
-							int motionPosition = findMotionRowY(y);
-							if (motionPosition >= 0) {
-								final View motionView = getChildAt(motionPosition - mFirstPosition);
-								mMotionViewOriginalTop = motionView.getTop();
-							}
-							mMotionY = y;
-							mMotionPosition = motionPosition;
-							invalidate();
-						}
-						mLastY = y;
-					}
+					postDrag(y);
 					break;
 				}
 
@@ -3984,6 +5782,9 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 
 			case MotionEvent.ACTION_UP: {
+				// Moves that have not had their frame yet still count
+				flushDrag();
+
 				switch (mTouchMode) {
 				case TOUCH_MODE_DOWN:
 				case TOUCH_MODE_TAP:
@@ -4106,6 +5907,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 
 			case MotionEvent.ACTION_CANCEL: {
+				cancelDrag();
 				mTouchMode = TOUCH_MODE_REST;
 				setPressed(false);
 				View motionView = TwoWayAbsListView.this.getChildAt(mMotionPosition - mFirstPosition);
@@ -4140,13 +5942,12 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			int action = ev.getAction();
 			View v;
 
-			/*
-            if (mFastScroller != null) {
-                boolean intercepted = mFastScroller.onInterceptTouchEvent(ev);
-                if (intercepted) {
-                    return true;
-                }
-            }*/
+			if (mFastScroller != null) {
+				boolean intercepted = mFastScroller.onInterceptTouchEvent(ev);
+				if (intercepted) {
+					return true;
+				}
+			}
 
 			switch (action) {
 				case MotionEvent.ACTION_DOWN: {
@@ -4210,20 +6011,29 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		@Override
 		boolean trackMotionScroll(int deltaY, int incrementalDeltaY) {
 			if (DEBUG) Log.i(TAG, "trackMotionScroll() - deltaY: " + deltaY + " incrDeltaY: " + incrementalDeltaY);
+			if (mPendingActiveViews != null) {
+				// Match the children to the adapter again before moving them
+				layoutChildren();
+			}
+			onScrolledForPrefetch(incrementalDeltaY);
 			final int childCount = getChildCount();
 			if (childCount == 0) {
 				return true;
 			}
 
-			final int firstTop = getChildAt(0).getTop();
-			final int lastBottom = getChildAt(childCount - 1).getBottom();
+			final int[] extent = mChildrenExtent;
+			getChildrenExtent(true, extent);
+			final int firstTop = extent[EXTENT_START];
+			final int lastBottom = extent[EXTENT_END];
 
 			final Rect listPadding = mListPadding;
 
 			// FIXME account for grid vertical spacing too?
-			final int spaceAbove = listPadding.top - firstTop;
+			final int extraSpace = mExtraLayoutSpace;
 			final int end = getHeight() - listPadding.bottom;
-			final int spaceBelow = lastBottom - end;
+			// How much of the area children are kept in is covered past each edge
+			final int spaceAbove = listPadding.top - extraSpace - extent[EXTENT_FILLED_START];
+			final int spaceBelow = extent[EXTENT_FILLED_END] - (end + extraSpace);
 
 			final int height = getHeight() - getPaddingBottom() - getPaddingTop();
 			if (deltaY < 0) {
@@ -4266,7 +6076,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			int count = 0;
 
 			if (down) {
-				final int top = listPadding.top - incrementalDeltaY;
+				final int top = listPadding.top - extraSpace - incrementalDeltaY;
 				for (int i = 0; i < childCount; i++) {
 					final View child = getChildAt(i);
 					if (child.getBottom() >= top) {
@@ -4286,7 +6096,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					}
 				}
 			} else {
-				final int bottom = getHeight() - listPadding.bottom - incrementalDeltaY;
+				final int bottom = getHeight() - listPadding.bottom + extraSpace - incrementalDeltaY;
 				for (int i = childCount - 1; i >= 0; i--) {
 					final View child = getChildAt(i);
 					if (child.getTop() <= bottom) {
@@ -4325,7 +6135,13 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 			final int absIncrementalDeltaY = Math.abs(incrementalDeltaY);
 			if (spaceAbove < absIncrementalDeltaY || spaceBelow < absIncrementalDeltaY) {
-				fillGap(down);
+				mFillingGap = true;
+				mFillGapStartNanos = System.nanoTime();
+				try {
+					fillGap(down);
+				} finally {
+					mFillingGap = false;
+				}
 			}
 
 			if (!inTouchMode && mSelectedPosition != INVALID_POSITION) {
@@ -4430,7 +6246,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 
 			mResurrectToPosition = INVALID_POSITION;
-			removeCallbacks(mFlingRunnable);
+			mFrameLoop.removeFromFrame(mFlingRunnable);
 			mTouchMode = TOUCH_MODE_REST;
 			clearScrollingCache();
 			mSpecificTop = selectedTop;
@@ -4479,7 +6295,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mScroller.fling(0, initialY, 0, initialVelocity,
 						0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
 				mTouchMode = TOUCH_MODE_FLING;
-				post(this);
+				mFrameLoop.postOnFrame(this);
 
 				if (PROFILE_FLINGING) {
 					if (!mFlingProfilingStarted) {
@@ -4495,7 +6311,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mLastFlingY = initialY;
 				mScroller.startScroll(0, initialY, 0, distance, duration);
 				mTouchMode = TOUCH_MODE_FLING;
-				post(this);
+				mFrameLoop.postOnFrame(this);
 			}
 
 			@Override
@@ -4544,7 +6360,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					if (more && !atEnd) {
 						invalidate();
 						mLastFlingY = y;
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else {
 						endFling();
 
@@ -4609,7 +6425,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (lastPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -4624,7 +6440,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					mLastSeenPos = lastPos;
 					if (lastPos < mTargetPos) {
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					}
 					break;
 				}
@@ -4641,7 +6457,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (nextPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -4655,7 +6471,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 						mLastSeenPos = nextPos;
 
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else  {
 						if (nextViewTop > extraScroll) {
 							smoothScrollBy(nextViewTop - extraScroll, mScrollDuration);
@@ -4667,7 +6483,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				case MOVE_UP_POS: {
 					if (firstPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -4683,7 +6499,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					mLastSeenPos = firstPos;
 
 					if (firstPos > mTargetPos) {
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					}
 					break;
 				}
@@ -4697,7 +6513,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (lastPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -4708,7 +6524,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					mLastSeenPos = lastPos;
 					if (lastPos > mBoundPos) {
 						smoothScrollBy(-(lastViewPixelsShowing - mExtraScroll), mScrollDuration);
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else {
 						final int bottom = listHeight - mExtraScroll;
 						final int lastViewBottom = lastViewTop + lastViewHeight;
@@ -4770,13 +6586,12 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			int action = ev.getAction();
 			View v;
 
-			/*
-            if (mFastScroller != null) {
-                boolean intercepted = mFastScroller.onInterceptTouchEvent(ev);
-                if (intercepted) {
-                    return true;
-                }
-            }*/
+			if (mFastScroller != null) {
+				boolean intercepted = mFastScroller.onInterceptTouchEvent(ev);
+				if (intercepted) {
+					return true;
+				}
+			}
 
 			switch (action) {
 				case MotionEvent.ACTION_DOWN: {
@@ -4831,6 +6646,38 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		}
 
 
+		@Override
+		void applyDrag(int x) {
+			if (x == mLastX) {
+				return;
+			}
+			final int deltaX = x - mMotionX - mMotionCorrection;
+			int incrementalDeltaX = mLastX != Integer.MIN_VALUE ? x - mLastX : deltaX;
+
+			// No need to do all this work if we're not going to move anyway
+			boolean atEdge = false;
+			if (incrementalDeltaX != 0) {
+				atEdge = trackMotionScroll(deltaX, incrementalDeltaX);
+			}
+
+			// Check to see if we have bumped into the scroll limit
+			if (atEdge && getChildCount() > 0) {
+				// Treat this like we're starting a new scroll from the current
+				// position. This will let the user start scrolling back into
+				// content immediately rather than needing to scroll back to the
+				// point where they hit the limit first.
+				int motionPosition = findMotionRowX(x);
+				if (motionPosition >= 0) {
+					final View motionView = getChildAt(motionPosition - mFirstPosition);
+					mMotionViewOriginalLeft = motionView.getLeft();
+				}
+				mMotionX = x;
+				mMotionPosition = motionPosition;
+				invalidate();
+			}
+			mLastX = x;
+		}
+
 		@Override
 		public boolean onTouchEvent(MotionEvent ev) {
 			if (!isEnabled()) {
@@ -4839,13 +6686,12 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				return isClickable() || isLongClickable();
 			}
 
-			/*
-            if (mFastScroller != null) {
-                boolean intercepted = mFastScroller.onTouchEvent(ev);
-                if (intercepted) {
-                    return true;
-                }
-            }*/
+			if (mFastScroller != null) {
+				boolean intercepted = mFastScroller.onTouchEvent(ev);
+				if (intercepted) {
+					return true;
+				}
+			}
 
 			final int action = ev.getAction();
 
@@ -4859,6 +6705,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 			switch (action) {
 				case MotionEvent.ACTION_DOWN: {
+					cancelDrag();
 					final int x = (int) ev.getX();
 					final int y = (int) ev.getY();
 					int motionPosition = pointToPosition(x, y);
@@ -4923,33 +6770,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 							}
 						}
 	
-						if (x != mLastX) {
-							deltaX -= mMotionCorrection;
-							int incrementalDeltaX = mLastX != Integer.MIN_VALUE ? x - mLastX : deltaX;
-	
-							// No need to do all this work if we're not going to move anyway
-							boolean atEdge = false;
-							if (incrementalDeltaX != 0) {
-								atEdge = trackMotionScroll(deltaX, incrementalDeltaX);
-							}
-	
-							// Check to see if we have bumped into the scroll limit
-							if (atEdge && getChildCount() > 0) {
-								// Treat this like we're starting a new scroll from the current
-								// position. This will let the user start scrolling back into
-								// content immediately rather than needing to scroll back to the
-								// point where they hit the limit first.
-								int motionPosition = findMotionRowX(x);
-								if (motionPosition >= 0) {
-									final View motionView = getChildAt(motionPosition - mFirstPosition);
-									mMotionViewOriginalLeft = motionView.getLeft();
-								}
-								mMotionX = x;
-								mMotionPosition = motionPosition;
-								invalidate();
-							}
-							mLastX = x;
-						}
+						postDrag(x);
 						break;
 					}
 	
@@ -4957,6 +6778,9 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				}
 	
 				case MotionEvent.ACTION_UP: {
+					// Moves that have not had their frame yet still count
+					flushDrag();
+
 					switch (mTouchMode) {
 					case TOUCH_MODE_DOWN:
 					case TOUCH_MODE_TAP:
@@ -5079,6 +6903,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				}
 	
 				case MotionEvent.ACTION_CANCEL: {
+					cancelDrag();
 					mTouchMode = TOUCH_MODE_REST;
 					setPressed(false);
 					View motionView = TwoWayAbsListView.this.getChildAt(mMotionPosition - mFirstPosition);
@@ -5188,7 +7013,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			}
 
 			mResurrectToPosition = INVALID_POSITION;
-			removeCallbacks(mFlingRunnable);
+			mFrameLoop.removeFromFrame(mFlingRunnable);
 			mTouchMode = TOUCH_MODE_REST;
 			clearScrollingCache();
 			mSpecificTop = selectedLeft;
@@ -5209,20 +7034,29 @@ ViewTreeObserver.OnTouchModeChangeListener {
 		@Override
 		boolean trackMotionScroll(int delta, int incrementalDelta) {
 			if (DEBUG) Log.i(TAG, "trackMotionScroll() - deltaX: " + delta + " incrDeltaX: " + incrementalDelta);
+			if (mPendingActiveViews != null) {
+				// Match the children to the adapter again before moving them
+				layoutChildren();
+			}
+			onScrolledForPrefetch(incrementalDelta);
 			final int childCount = getChildCount();
 			if (childCount == 0) {
 				return true;
 			}
 
-			final int firstLeft = getChildAt(0).getLeft();
-			final int lastRight = getChildAt(childCount - 1).getRight();
+			final int[] extent = mChildrenExtent;
+			getChildrenExtent(false, extent);
+			final int firstLeft = extent[EXTENT_START];
+			final int lastRight = extent[EXTENT_END];
 
 			final Rect listPadding = mListPadding;
 
 			// FIXME account for grid horizontal spacing too?
-			final int spaceAbove = listPadding.left - firstLeft;
+			final int extraSpace = mExtraLayoutSpace;
 			final int end = getWidth() - listPadding.right;
-			final int spaceBelow = lastRight - end;
+			// How much of the area children are kept in is covered past each edge
+			final int spaceAbove = listPadding.left - extraSpace - extent[EXTENT_FILLED_START];
+			final int spaceBelow = extent[EXTENT_FILLED_END] - (end + extraSpace);
 
 			final int width = getWidth() - getPaddingRight() - getPaddingLeft();
 			if (delta < 0) {
@@ -5267,7 +7101,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 			int count = 0;
 
 			if (down) {
-				final int left = listPadding.left - incrementalDelta;
+				final int left = listPadding.left - extraSpace - incrementalDelta;
 				for (int i = 0; i < childCount; i++) {
 					final View child = getChildAt(i);
 					if (child.getRight() >= left) {
@@ -5287,7 +7121,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					}
 				}
 			} else {
-				final int right = getWidth() - listPadding.right - incrementalDelta;
+				final int right = getWidth() - listPadding.right + extraSpace - incrementalDelta;
 				for (int i = childCount - 1; i >= 0; i--) {
 					final View child = getChildAt(i);
 					if (child.getLeft() <= right) {
@@ -5326,7 +7160,13 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 			final int absIncrementalDelta = Math.abs(incrementalDelta);
 			if (spaceAbove < absIncrementalDelta|| spaceBelow < absIncrementalDelta) {
-				fillGap(down);
+				mFillingGap = true;
+				mFillGapStartNanos = System.nanoTime();
+				try {
+					fillGap(down);
+				} finally {
+					mFillingGap = false;
+				}
 			}
 
 			if (!inTouchMode && mSelectedPosition != INVALID_POSITION) {
@@ -5364,7 +7204,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mScroller.fling(initialX, 0, initialVelocity, 0,
 						0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
 				mTouchMode = TOUCH_MODE_FLING;
-				post(this);
+				mFrameLoop.postOnFrame(this);
 
 				if (PROFILE_FLINGING) {
 					if (!mFlingProfilingStarted) {
@@ -5380,7 +7220,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				mLastFlingX = initialX;
 				mScroller.startScroll(initialX, 0, distance, 0, duration);
 				mTouchMode = TOUCH_MODE_FLING;
-				post(this);
+				mFrameLoop.postOnFrame(this);
 			}
 
 			@Override
@@ -5429,7 +7269,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					if (more && !atEnd) {
 						invalidate();
 						mLastFlingX = x;
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else {
 						endFling();
 
@@ -5495,7 +7335,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (lastPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -5510,7 +7350,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					mLastSeenPos = lastPos;
 					if (lastPos < mTargetPos) {
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					}
 					break;
 				}
@@ -5527,7 +7367,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (nextPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -5541,7 +7381,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 						mLastSeenPos = nextPos;
 
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else  {
 						if (nextViewLeft > extraScroll) {
 							smoothScrollBy(nextViewLeft - extraScroll, mScrollDuration);
@@ -5553,7 +7393,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 				case MOVE_UP_POS: {
 					if (firstPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -5569,7 +7409,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					mLastSeenPos = firstPos;
 
 					if (firstPos > mTargetPos) {
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					}
 					break;
 				}
@@ -5583,7 +7423,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 
 					if (lastPos == mLastSeenPos) {
 						// No new views, let things keep going.
-						post(this);
+						mFrameLoop.postOnFrame(this);
 						return;
 					}
 
@@ -5594,7 +7434,7 @@ ViewTreeObserver.OnTouchModeChangeListener {
 					mLastSeenPos = lastPos;
 					if (lastPos > mBoundPos) {
 						smoothScrollBy(-(lastViewPixelsShowing - mExtraScroll), mScrollDuration);
-						post(this);
+						mFrameLoop.postOnFrame(this);
 					} else {
 						final int right = listWidth - mExtraScroll;
 						final int lastViewRight = lastViewLeft + lastViewWidth;
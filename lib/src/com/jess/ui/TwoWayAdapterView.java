@@ -142,6 +142,14 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 	 */
 	static final int SYNC_MAX_DURATION_MILLIS = 100;
 
+	/**
+	 * The position of every item id, for adapters with stable ids that do
+	 * not implement {@link ItemIdIndex}. Built in one pass the first time
+	 * {@link #findSyncPosition()} needs it after a full data change, kept up
+	 * to date by range notifications, and null until then.
+	 */
+	private LongIntMap mItemIdPositions;
+
 	/**
 	 * Indicates that this view is currently being laid out.
 	 */
@@ -206,6 +214,12 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 	 */
 	int mOldItemCount;
 
+	/**
+	 * Incremented whenever the adapter reports a change of any kind, so a position recorded
+	 * in one generation is only known to show the same data within that generation
+	 */
+	int mDataGeneration;
+
 	/**
 	 * Represents an invalid position. All valid positions are in the range 0 to 1 less than the
 	 * number of items in the current adapter.
@@ -409,6 +423,62 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 		return mOnItemSelectedListener;
 	}
 
+	/**
+	 * Interface an adapter with stable ids can implement when it already
+	 * knows where each id is, for instance because it keeps its own index.
+	 * The view then finds the item to stay on after a data change with a
+	 * single call. Otherwise the view reads every id once after a full data
+	 * change and keeps a table of their positions.
+	 */
+	public interface ItemIdIndex {
+		/**
+		 * @param id An id returned by {@link Adapter#getItemId(int)}
+		 * @return The position of the item with that id in the current data,
+		 *         or {@link TwoWayAdapterView#INVALID_POSITION} if there is none
+		 */
+		int getPositionForItemId(long id);
+	}
+
+	/**
+	 * A {@link DataSetObserver} that can also be told which items changed.
+	 * Adapters that know what they changed, such as {@link TwoWayBaseAdapter},
+	 * call the range methods instead of {@link #onChanged()} so the view only
+	 * has to bind the items that are on screen and actually changed. Each
+	 * range method falls back to {@link #onChanged()} unless overridden.
+	 *
+	 * <p>The adapter must already reflect the change when these are called.</p>
+	 */
+	public static abstract class ItemRangeObserver extends DataSetObserver {
+		/**
+		 * The items in the range now show different data, but none were added,
+		 * removed or moved.
+		 */
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			onChanged();
+		}
+
+		/**
+		 * itemCount items were inserted, the first of them at positionStart.
+		 */
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			onChanged();
+		}
+
+		/**
+		 * The itemCount items that used to start at positionStart were removed.
+		 */
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			onChanged();
+		}
+
+		/**
+		 * The item at fromPosition is now at toPosition.
+		 */
+		public void onItemMoved(int fromPosition, int toPosition) {
+			onChanged();
+		}
+	}
+
 	/**
 	 * Extra menu information provided to the
 	 * {@link android.view.View.OnCreateContextMenuListener#onCreateContextMenu(ContextMenu, View, ContextMenuInfo) }
@@ -801,12 +871,22 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 		dispatchThawSelfOnly(container);
 	}
 
-	class AdapterDataSetObserver extends DataSetObserver {
+	class AdapterDataSetObserver extends ItemRangeObserver {
 
 		private Parcelable mInstanceState = null;
 
 		@Override
 		public void onChanged() {
+			clearItemPositions();
+			onDataSetChanged();
+		}
+
+		/**
+		 * Treats a change as a change to every item, except that the index of item ids is
+		 * kept when it was already brought up to date with the change.
+		 */
+		private void onDataSetChanged() {
+			mDataGeneration++;
 			mDataChanged = true;
 			mOldItemCount = mItemCount;
 			mItemCount = getAdapter().getCount();
@@ -826,6 +906,8 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 
 		@Override
 		public void onInvalidated() {
+			clearItemPositions();
+			mDataGeneration++;
 			mDataChanged = true;
 
 			if (TwoWayAdapterView.this.getAdapter().hasStableIds()) {
@@ -848,11 +930,78 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 			requestLayout();
 		}
 
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			mDataGeneration++;
+			updateItemPositions(positionStart, itemCount, 0);
+			if (!handleItemRangeChanged(positionStart, itemCount)) {
+				onDataSetChanged();
+			}
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			mDataGeneration++;
+			updateItemPositions(positionStart, itemCount, itemCount);
+			if (!handleItemRangeInserted(positionStart, itemCount)) {
+				onDataSetChanged();
+			}
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			mDataGeneration++;
+			updateItemPositions(positionStart, itemCount, -itemCount);
+			if (!handleItemRangeRemoved(positionStart, itemCount)) {
+				onDataSetChanged();
+			}
+		}
+
+		@Override
+		public void onItemMoved(int fromPosition, int toPosition) {
+			mDataGeneration++;
+			moveItemPosition(fromPosition, toPosition);
+			if (!handleItemMoved(fromPosition, toPosition)) {
+				onDataSetChanged();
+			}
+		}
+
 		public void clearSavedState() {
 			mInstanceState = null;
 		}
 	}
 
+	/**
+	 * Called when the adapter reports that a range of items changed. Subclasses
+	 * that can update only the affected children do so and return true.
+	 *
+	 * @return false to treat the change like any other data set change
+	 */
+	boolean handleItemRangeChanged(int positionStart, int itemCount) {
+		return false;
+	}
+
+	/**
+	 * @see #handleItemRangeChanged(int, int)
+	 */
+	boolean handleItemRangeInserted(int positionStart, int itemCount) {
+		return false;
+	}
+
+	/**
+	 * @see #handleItemRangeChanged(int, int)
+	 */
+	boolean handleItemRangeRemoved(int positionStart, int itemCount) {
+		return false;
+	}
+
+	/**
+	 * @see #handleItemRangeChanged(int, int)
+	 */
+	boolean handleItemMoved(int fromPosition, int toPosition) {
+		return false;
+	}
+
 	private class SelectionNotifier extends Handler implements Runnable {
 		public void run() {
 			if (mDataChanged) {
@@ -1010,7 +1159,9 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 	}
 
 	/**
-	 * Searches the adapter for a position matching mSyncRowId. The search starts at mSyncPosition
+	 * Searches the adapter for a position matching mSyncRowId. When the adapter has stable ids,
+	 * the position it reports through {@link ItemIdIndex}, or the one the view's own index of
+	 * every id holds, is tried first. Otherwise the search starts at mSyncPosition
 	 * and then alternates between moving up and moving down until 1) we find the right position, or
 	 * 2) we run out of time, or 3) we have looked at every position
 	 *
@@ -1036,6 +1187,20 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 		seed = Math.max(0, seed);
 		seed = Math.min(count - 1, seed);
 
+		// Get the item ID locally (instead of getItemIdAtPosition), so
+		// we need the adapter
+		T adapter = getAdapter();
+		if (adapter == null) {
+			return INVALID_POSITION;
+		}
+
+		if (adapter.hasStableIds()) {
+			final int indexed = findIndexedPosition(adapter, idToMatch, count);
+			if (indexed != INVALID_POSITION) {
+				return indexed;
+			}
+		}
+
 		long endTime = SystemClock.uptimeMillis() + SYNC_MAX_DURATION_MILLIS;
 
 		long rowId;
@@ -1055,13 +1220,6 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 		// True when we have looked at the last item in the data
 		boolean hitLast;
 
-		// Get the item ID locally (instead of getItemIdAtPosition), so
-		// we need the adapter
-		T adapter = getAdapter();
-		if (adapter == null) {
-			return INVALID_POSITION;
-		}
-
 		while (SystemClock.uptimeMillis() <= endTime) {
 			rowId = adapter.getItemId(seed);
 			if (rowId == idToMatch) {
@@ -1096,6 +1254,80 @@ public abstract class TwoWayAdapterView<T extends Adapter> extends ViewGroup {
 		return INVALID_POSITION;
 	}
 
+	/**
+	 * Looks up id without searching the data set. Without an {@link ItemIdIndex} the view
+	 * indexes every id itself, reading them all once after a full data change. The answer is
+	 * checked against the adapter, since an adapter that reported a change wrongly can leave
+	 * the index behind.
+	 *
+	 * @return The position of id, or {@link #INVALID_POSITION} if it is not known
+	 */
+	private int findIndexedPosition(T adapter, long id, int count) {
+		int position;
+		if (adapter instanceof ItemIdIndex) {
+			position = ((ItemIdIndex) adapter).getPositionForItemId(id);
+		} else {
+			if (mItemIdPositions == null) {
+				final LongIntMap positions = new LongIntMap(count);
+				for (int i = 0; i < count; i++) {
+					positions.put(adapter.getItemId(i), i);
+				}
+				mItemIdPositions = positions;
+			}
+			position = mItemIdPositions.get(id, INVALID_POSITION);
+		}
+
+		if (position >= 0 && position < count && adapter.getItemId(position) == id) {
+			return position;
+		}
+		return INVALID_POSITION;
+	}
+
+	/**
+	 * Drops the index of item ids, to be built again when it is next needed.
+	 */
+	void clearItemPositions() {
+		mItemIdPositions = null;
+	}
+
+	/**
+	 * Brings the index of item ids up to date with a range notification, if it has been built.
+	 * Ids of the items that changed or arrived are read from the adapter, the positions of the
+	 * items after them are shifted without reading anything.
+	 */
+	private void updateItemPositions(int positionStart, int itemCount, int delta) {
+		final LongIntMap positions = mItemIdPositions;
+		if (positions == null) {
+			return;
+		}
+		final Adapter adapter = getAdapter();
+		if (delta < 0) {
+			positions.removeValues(positionStart, positionStart + itemCount);
+			positions.offsetValues(positionStart + itemCount, Integer.MAX_VALUE, delta);
+			return;
+		}
+		if (delta > 0) {
+			positions.offsetValues(positionStart, Integer.MAX_VALUE, delta);
+		}
+		final int end = Math.min(positionStart + itemCount, adapter.getCount());
+		for (int position = positionStart; position < end; position++) {
+			positions.put(adapter.getItemId(position), position);
+		}
+	}
+
+	private void moveItemPosition(int fromPosition, int toPosition) {
+		final LongIntMap positions = mItemIdPositions;
+		if (positions == null || fromPosition == toPosition) {
+			return;
+		}
+		if (fromPosition < toPosition) {
+			positions.offsetValues(fromPosition + 1, toPosition + 1, -1);
+		} else {
+			positions.offsetValues(toPosition, fromPosition, 1);
+		}
+		positions.put(getAdapter().getItemId(toPosition), toPosition);
+	}
+
 	/**
 	 * Find a position that can be selected (i.e., is not a separator).
 	 *
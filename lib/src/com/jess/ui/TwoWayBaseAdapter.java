@@ -0,0 +1,133 @@
+/*
+ * A BaseAdapter that can report which of its items changed
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.ArrayList;
+
+import android.database.DataSetObserver;
+import android.widget.BaseAdapter;
+
+/**
+ * A {@link BaseAdapter} with notifications for individual items. A
+ * {@link TwoWayGridView} told that a range of items changed only binds the
+ * children showing those items again, where {@link #notifyDataSetChanged()}
+ * makes it bind every child.
+ *
+ * <p>Observers that are not a {@link TwoWayAdapterView.ItemRangeObserver}
+ * get {@link DataSetObserver#onChanged()} for every range notification.</p>
+ */
+public abstract class TwoWayBaseAdapter extends BaseAdapter {
+	private final ArrayList<DataSetObserver> mObservers = new ArrayList<DataSetObserver>();
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		super.registerDataSetObserver(observer);
+		synchronized (mObservers) {
+			mObservers.add(observer);
+		}
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		super.unregisterDataSetObserver(observer);
+		synchronized (mObservers) {
+			mObservers.remove(observer);
+		}
+	}
+
+	/**
+	 * Notifies the attached observers that the item at position shows
+	 * different data.
+	 */
+	public void notifyItemChanged(int position) {
+		notifyItemRangeChanged(position, 1);
+	}
+
+	/**
+	 * Notifies the attached observers that the items in the range show
+	 * different data. No items were added, removed or moved.
+	 */
+	public void notifyItemRangeChanged(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TwoWayAdapterView.ItemRangeObserver) {
+					((TwoWayAdapterView.ItemRangeObserver) observer)
+							.onItemRangeChanged(positionStart, itemCount);
+				} else {
+					observer.onChanged();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the attached observers that itemCount items were inserted,
+	 * the first of them at positionStart.
+	 */
+	public void notifyItemRangeInserted(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TwoWayAdapterView.ItemRangeObserver) {
+					((TwoWayAdapterView.ItemRangeObserver) observer)
+							.onItemRangeInserted(positionStart, itemCount);
+				} else {
+					observer.onChanged();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the attached observers that the itemCount items that started
+	 * at positionStart were removed.
+	 */
+	public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TwoWayAdapterView.ItemRangeObserver) {
+					((TwoWayAdapterView.ItemRangeObserver) observer)
+							.onItemRangeRemoved(positionStart, itemCount);
+				} else {
+					observer.onChanged();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the attached observers that the item at fromPosition moved to
+	 * toPosition.
+	 */
+	public void notifyItemMoved(int fromPosition, int toPosition) {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TwoWayAdapterView.ItemRangeObserver) {
+					((TwoWayAdapterView.ItemRangeObserver) observer)
+							.onItemMoved(fromPosition, toPosition);
+				} else {
+					observer.onChanged();
+				}
+			}
+		}
+	}
+}
@@ -38,9 +38,11 @@ package com.jess.ui;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.SoundEffectConstants;
@@ -48,6 +50,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.GridLayoutAnimationController;
 import android.widget.ListAdapter;
+import android.widget.SectionIndexer;
 
 
 /**
@@ -88,6 +91,53 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 	private final Rect mTempRect = new Rect();
 
+	private final GridGeometry mGeometry = new GridGeometry();
+
+	private boolean mFixedCellSize;
+
+	private static final long INVALID_SCROLL_OFFSET = -1;
+
+	/**
+	 * An offset given to scrollToOffsetPx() before there was a layout to
+	 * measure lines from
+	 */
+	private long mPendingScrollOffset = INVALID_SCROLL_OFFSET;
+
+	/**
+	 * Measured cell width and height by view type and span, see
+	 * getFixedCellKey(), only filled in while mFixedCellSize is set
+	 */
+	private final SparseIntArray mFixedCellWidths = new SparseIntArray();
+	private final SparseIntArray mFixedCellHeights = new SparseIntArray();
+
+	private boolean mStaggered;
+
+	/**
+	 * Lines of the items packed by span size, used by mGeometry while a
+	 * SpanSizeProvider is set
+	 */
+	private final SpanIndex mSpanIndex = new SpanIndex();
+	private SpanSizeProvider mSpanSizeProvider;
+
+	private boolean mStickySectionHeaders;
+	private final SpanSizeProvider mSectionSpans = new SectionSpanSizeProvider();
+
+	/**
+	 * The copy of a section header drawn pinned to the leading edge, and
+	 * what it was bound to. Only bound again when the section, the data or
+	 * the size across the grid changes.
+	 */
+	private View mPinnedHeader;
+	private int mPinnedHeaderPosition = INVALID_POSITION;
+	private int mPinnedHeaderType;
+	private int mPinnedHeaderGeneration;
+	private int mPinnedHeaderCrossSize;
+
+	/**
+	 * Lane and offset of the items laid out while mStaggered is set
+	 */
+	private final LaneIndex mLaneIndex = new LaneIndex();
+
 	protected GridBuilder mGridBuilder = null;
 
 	public TwoWayGridView(Context context) {
@@ -139,12 +189,34 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			setGravity(index);
 		}
 
+		setFixedCellSize(a.getBoolean(R.styleable.TwoWayGridView_fixedCellSize, false));
+		setStaggered(a.getBoolean(R.styleable.TwoWayGridView_staggered, false));
+		setStickySectionHeaders(a.getBoolean(R.styleable.TwoWayGridView_stickySectionHeaders,
+				false));
+
 		a.recycle();
 		setupGridType();
 	}
 
+	/**
+	 * Tells a TwoWayGridView how many lanes, columns when scrolling
+	 * vertically and rows when scrolling horizontally, each item covers.
+	 *
+	 * @see TwoWayGridView#setSpanSizeProvider(SpanSizeProvider)
+	 */
+	public interface SpanSizeProvider {
+		/**
+		 * @param position An adapter position
+		 * @return How many lanes the item covers. Values below 1 count as 1
+		 *         and values over the number of lanes as a full line.
+		 */
+		int getSpanSize(int position);
+	}
+
 	private void setupGridType() {
-		if (mScrollVertically) {
+		if (mStaggered) {
+			mGridBuilder = new StaggeredGridBuilder(mScrollVertically);
+		} else if (mScrollVertically) {
 			mGridBuilder = new VerticalGridBuilder();
 		} else {
 			mGridBuilder = new HorizontalGridBuilder();
@@ -168,7 +240,14 @@ public class TwoWayGridView extends TwoWayAbsListView {
 		}
 
 		resetList();
+		clearItemPositions();
 		mRecycler.clear();
+		clearFixedCellSizes();
+		mLaneIndex.clear();
+		mSpanIndex.clear();
+		mSectionIndex.invalidate();
+		mPinnedHeader = null;
+		mPinnedHeaderPosition = INVALID_POSITION;
 		mAdapter = adapter;
 
 		mOldSelectedPosition = INVALID_POSITION;
@@ -225,195 +304,811 @@ public class TwoWayGridView extends TwoWayAbsListView {
 		mGridBuilder.fillGap(down);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The children are laid out line by line, so the line under the point
+	 * is found from the child offsets and the cell from the lane size, without
+	 * looking at every child.</p>
+	 */
 	@Override
-	int findMotionRowY(int y) {
+	public int pointToPosition(int x, int y) {
 		final int childCount = getChildCount();
-		if (childCount > 0) {
+		if (childCount == 0 || mDataChanged || mStaggered) {
+			return super.pointToPosition(x, y);
+		}
 
-			final int numColumns = mNumColumns;
-			if (!mStackFromBottom) {
-				for (int i = 0; i < childCount; i += numColumns) {
-					if (y <= getChildAt(i).getBottom()) {
-						return mFirstPosition + i;
-					}
-				}
-			} else {
-				for (int i = childCount - 1; i >= 0; i -= numColumns) {
-					if (y >= getChildAt(i).getTop()) {
-						return mFirstPosition + i;
-					}
-				}
-			}
+		final boolean vertical = mScrollVertically;
+		final int firstLine = mGeometry.getLine(mFirstPosition, mItemCount, mStackFromBottom);
+		final int lineCount = getVisibleLineCount(firstLine, childCount);
+		final int line = findLastLineStartingBefore(vertical ? y : x, firstLine, lineCount,
+				vertical);
+
+		// Cells on a line can have different sizes and are aligned to the edge
+		// the line was filled from, so the point may belong to a neighbour
+		int position = hitTestLine(line, x, y, firstLine, childCount, vertical);
+		if (position == INVALID_POSITION && line > 0) {
+			position = hitTestLine(line - 1, x, y, firstLine, childCount, vertical);
 		}
-		return INVALID_POSITION;
+		if (position == INVALID_POSITION && line < lineCount - 1) {
+			position = hitTestLine(line + 1, x, y, firstLine, childCount, vertical);
+		}
+		return position;
 	}
 
-	@Override
-	int findMotionRowX(int x) {
-		final int childCount = getChildCount();
-		if (childCount > 0) {
-
-			final int numRows = mNumRows;
-			if (!mStackFromBottom) {
-				for (int i = 0; i < childCount; i += numRows) {
-					if (x <= getChildAt(i).getRight()) {
-						return mFirstPosition + i;
-					}
-				}
-			} else {
-				for (int i = childCount - 1; i >= 0; i -= numRows) {
-					if (x >= getChildAt(i).getLeft()) {
-						return mFirstPosition + i;
-					}
-				}
-			}
+	/**
+	 * Tells the grid that every item of a view type has the same size. The
+	 * grid then measures the first item of each type with the usual specs and
+	 * gives every later item of that type the same size with exact specs,
+	 * without measuring item 0 again in onMeasure(). Items that are already
+	 * that size and have not requested a layout are only positioned.
+	 *
+	 * <p>This covers cells with a layout inside, which
+	 * {@link TwoWayAbsListView.UniformItemSizes} measures in full whenever
+	 * binding them changed a child.</p>
+	 *
+	 * @param fixedCellSize true if items of a type never change size
+	 *
+	 * @attr ref android.R.styleable#JessGridView_fixedCellSize
+	 */
+	public void setFixedCellSize(boolean fixedCellSize) {
+		if (fixedCellSize != mFixedCellSize) {
+			mFixedCellSize = fixedCellSize;
+			clearFixedCellSizes();
+			requestLayoutIfNecessary();
 		}
-		return INVALID_POSITION;
 	}
 
+	/**
+	 * @return Whether items of a view type are assumed to all have the same size
+	 */
+	public boolean hasFixedCellSize() {
+		return mFixedCellSize;
+	}
 
-
-	@Override
-	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-		if ((mScrollVertically && !(mGridBuilder instanceof VerticalGridBuilder))
-			|| (!mScrollVertically && !(mGridBuilder instanceof HorizontalGridBuilder)) ) {
+	/**
+	 * Lays the items out in staggered lanes, like a masonry wall. Items are
+	 * still given the lane size across the scroll axis but keep their own
+	 * size along it, and each item goes to the lane that ends first, so the
+	 * lanes do not line up. An item keeps its lane when it scrolls back into
+	 * view. Since there are no lines, the arrow keys move the selection
+	 * through the items in adapter order.
+	 *
+	 * @param staggered true to lay items out in staggered lanes, false to lay
+	 *        them out in lines
+	 *
+	 * @attr ref android.R.styleable#JessGridView_staggered
+	 */
+	public void setStaggered(boolean staggered) {
+		if (staggered != mStaggered) {
+			mStaggered = staggered;
+			mLaneIndex.clear();
+			updateSpanIndex();
 			setupGridType();
+			requestLayoutIfNecessary();
 		}
-		// Sets up mListPadding
-		mGridBuilder.onMeasure(widthMeasureSpec, heightMeasureSpec);
 	}
 
-	//TODO implement horizontal support
-	@Override
-	protected void attachLayoutAnimationParameters(View child,
-			ViewGroup.LayoutParams params, int index, int count) {
+	/**
+	 * Lets items cover more than one lane, so a banner can take a whole line
+	 * of a four column grid or a tile two columns of it. Items go on a line
+	 * in adapter order until the next one does not fit, which starts a new
+	 * line. Where lines start is remembered, so finding the line of a
+	 * position does not walk the items before it again; only the lines from
+	 * an item the adapter reports as changed on are worked out again.
+	 *
+	 * <p>Spans are ignored while the grid stacks from the bottom or lays
+	 * items out in staggered lanes. Call this again with the same provider
+	 * if span sizes change without the adapter reporting it.</p>
+	 *
+	 * @param provider The span size of each item, or null for one lane each
+	 */
+	public void setSpanSizeProvider(SpanSizeProvider provider) {
+		mSpanSizeProvider = provider;
+		mSpanIndex.clear();
+		updateSpanIndex();
+		requestLayoutIfNecessary();
+	}
 
-		GridLayoutAnimationController.AnimationParameters animationParams =
-			(GridLayoutAnimationController.AnimationParameters) params.layoutAnimationParameters;
+	/**
+	 * @return The span size provider, or null if every item covers one lane
+	 */
+	public SpanSizeProvider getSpanSizeProvider() {
+		return mSpanSizeProvider;
+	}
 
-		if (animationParams == null) {
-			animationParams = new GridLayoutAnimationController.AnimationParameters();
-			params.layoutAnimationParameters = animationParams;
+	/**
+	 * Hands mSpanIndex to mGeometry when spans apply to the current layout.
+	 */
+	private void updateSpanIndex() {
+		final SpanSizeProvider provider = mStickySectionHeaders ? mSectionSpans :
+				mSpanSizeProvider;
+		if (mSpanIndex.getProvider() != provider) {
+			mSpanIndex.setProvider(provider);
 		}
+		final boolean spans = provider != null && !mStackFromBottom && !mStaggered;
+		mGeometry.setSpanIndex(spans ? mSpanIndex : null);
+	}
 
-		animationParams.count = count;
-		animationParams.index = index;
-		animationParams.columnsCount = mNumColumns;
-		animationParams.rowsCount = count / mNumColumns;
+	/**
+	 * Shows section headers on a line of their own and keeps the header of
+	 * the section at the start of the grid pinned to the leading edge, the
+	 * top when scrolling vertically and the left when scrolling
+	 * horizontally, until the next header pushes it out.
+	 *
+	 * <p>The adapter has to implement {@link SectionIndexer}; the item at
+	 * {@link SectionIndexer#getPositionForSection(int)} is the header of each
+	 * section. The pinned header is a separate view bound by the adapter
+	 * whenever another section reaches the edge, and drawn over the children.
+	 * Headers only take a whole line where spans apply, see
+	 * {@link #setSpanSizeProvider(SpanSizeProvider)}.</p>
+	 *
+	 * @param sticky true to pin section headers
+	 *
+	 * @attr ref android.R.styleable#JessGridView_stickySectionHeaders
+	 */
+	public void setStickySectionHeaders(boolean sticky) {
+		if (sticky != mStickySectionHeaders) {
+			mStickySectionHeaders = sticky;
+			mPinnedHeader = null;
+			mPinnedHeaderPosition = INVALID_POSITION;
+			updateSpanIndex();
+			requestLayoutIfNecessary();
+		}
+	}
 
-		if (!mStackFromBottom) {
-			animationParams.column = index % mNumColumns;
-			animationParams.row = index / mNumColumns;
-		} else {
-			final int invertedIndex = count - 1 - index;
+	/**
+	 * @return Whether section headers are pinned to the leading edge
+	 */
+	public boolean hasStickySectionHeaders() {
+		return mStickySectionHeaders;
+	}
 
-			animationParams.column = mNumColumns - 1 - (invertedIndex % mNumColumns);
-			animationParams.row = animationParams.rowsCount - 1 - invertedIndex / mNumColumns;
+	/**
+	 * Gives section headers a whole line, and every other item the span
+	 * from the app's provider if there is one.
+	 */
+	private class SectionSpanSizeProvider implements SpanSizeProvider {
+		public int getSpanSize(int position) {
+			if (getSectionIndex().isSectionStart(position)) {
+				// Clamped to the number of lanes
+				return Integer.MAX_VALUE;
+			}
+			return mSpanSizeProvider != null ? mSpanSizeProvider.getSpanSize(position) : 1;
 		}
 	}
 
 	@Override
-	protected void layoutChildren() {
-		final boolean blockLayoutRequests = mBlockLayoutRequests;
-		if (!blockLayoutRequests) {
-			mBlockLayoutRequests = true;
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		if (mStickySectionHeaders) {
+			drawPinnedHeader(canvas);
 		}
+	}
 
-		try {
-			super.layoutChildren();
-
-			invalidate();
+	/**
+	 * Draws the header of the section at the leading edge over the children,
+	 * unless the header itself is showing there. This only looks up the
+	 * section with a binary search and the children by index, so it costs
+	 * the same however far the grid is scrolled.
+	 *
+	 * <p>The first child is not always at the edge: with extra layout space
+	 * there are children laid out before it, so the section is the one of
+	 * the first child that reaches past the edge.</p>
+	 */
+	private void drawPinnedHeader(Canvas canvas) {
+		final int childCount = getChildCount();
+		if (childCount == 0 || mDataChanged || !(mAdapter instanceof SectionIndexer)) {
+			return;
+		}
 
-			if (mAdapter == null) {
-				resetList();
-				invokeOnItemScrollListener();
-				return;
+		final boolean vertical = mScrollVertically;
+		final int edge = vertical ? mListPadding.top : mListPadding.left;
+		int firstVisible = 0;
+		while (firstVisible < childCount - 1) {
+			final View child = getChildAt(firstVisible);
+			if ((vertical ? child.getBottom() : child.getRight()) > edge) {
+				break;
 			}
+			firstVisible++;
+		}
 
-			mGridBuilder.layoutChildren();
+		final SectionIndex sections = getSectionIndex();
+		final int section = sections.getSectionForPosition(mFirstPosition + firstVisible);
+		if (section < 0) {
+			return;
+		}
 
-		} finally {
-			if (!blockLayoutRequests) {
-				mBlockLayoutRequests = false;
+		final int headerPosition = sections.getSectionStart(section);
+		final int headerIndex = headerPosition - mFirstPosition;
+		if (headerIndex >= 0 && headerIndex < childCount) {
+			final View child = getChildAt(headerIndex);
+			if ((vertical ? child.getTop() : child.getLeft()) >= edge) {
+				return;
 			}
 		}
-	}
 
+		final View header = getPinnedHeader(headerPosition);
+		int offset = edge;
+		if (section + 1 < sections.getSectionCount()) {
+			final int nextIndex = sections.getSectionStart(section + 1) - mFirstPosition;
+			if (nextIndex >= 0 && nextIndex < childCount) {
+				// The next header pushes this one out
+				final View next = getChildAt(nextIndex);
+				offset = Math.min(offset, vertical ? next.getTop() - header.getHeight() :
+						next.getLeft() - header.getWidth());
+			}
+		}
 
+		final int saveCount = canvas.save();
+		canvas.clipRect(mListPadding.left, mListPadding.top, getWidth() - mListPadding.right,
+				getHeight() - mListPadding.bottom);
+		if (vertical) {
+			canvas.translate(mListPadding.left, offset);
+		} else {
+			canvas.translate(offset, mListPadding.top);
+		}
+		header.draw(canvas);
+		canvas.restoreToCount(saveCount);
+	}
 
 	/**
-	 * Sets the currently selected item
-	 * 
-	 * @param position Index (starting at 0) of the data item to be selected.
-	 * 
-	 * If in touch mode, the item will not be selected but it will still be positioned
-	 * appropriately.
+	 * @return The pinned header view bound to position, bound and measured
+	 *         again only if it was showing something else
 	 */
-	@Override
-	public void setSelection(int position) {
-		if (!isInTouchMode()) {
-			setNextSelectedPositionInt(position);
+	private View getPinnedHeader(int position) {
+		final boolean vertical = mScrollVertically;
+		final int crossSize = vertical ? getWidth() - mListPadding.left - mListPadding.right :
+				getHeight() - mListPadding.top - mListPadding.bottom;
+		if (mPinnedHeader != null && mPinnedHeaderPosition == position
+				&& mPinnedHeaderGeneration == mDataGeneration
+				&& mPinnedHeaderCrossSize == crossSize) {
+			return mPinnedHeader;
+		}
+
+		final int viewType = mAdapter.getItemViewType(position);
+		final View convertView = mPinnedHeader != null && mPinnedHeaderType == viewType ?
+				mPinnedHeader : null;
+		final View header = mAdapter.getView(position, convertView, this);
+
+		final ViewGroup.LayoutParams p = header.getLayoutParams();
+		final int crossSpec = MeasureSpec.makeMeasureSpec(crossSize, MeasureSpec.EXACTLY);
+		if (vertical) {
+			header.measure(crossSpec, ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0,
+					p != null ? p.height : ViewGroup.LayoutParams.WRAP_CONTENT));
 		} else {
-			mResurrectToPosition = position;
+			header.measure(ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0,
+					p != null ? p.width : ViewGroup.LayoutParams.WRAP_CONTENT), crossSpec);
 		}
-		mLayoutMode = LAYOUT_SET_SELECTION;
-		requestLayout();
+		header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+
+		mPinnedHeader = header;
+		mPinnedHeaderPosition = position;
+		mPinnedHeaderType = viewType;
+		mPinnedHeaderGeneration = mDataGeneration;
+		mPinnedHeaderCrossSize = crossSize;
+		return header;
 	}
 
 	/**
-	 * Makes the item at the supplied position selected.
+	 * @return Whether items are laid out in staggered lanes
+	 */
+	public boolean isStaggered() {
+		return mStaggered;
+	}
+
+	private void clearFixedCellSizes() {
+		mFixedCellWidths.clear();
+		mFixedCellHeights.clear();
+		updateFixedLineSize();
+	}
+
+	/**
+	 * Measures a child in fixed cell size mode. The first child of a view
+	 * type and span is measured with the specs given and its size is
+	 * remembered for them, later ones are measured exactly to that size if
+	 * they need to be measured at all.
 	 *
-	 * @param position the position of the new selection
+	 * @param span How many lanes the child covers
+	 * @return true if the child was measured, false if it already has the
+	 *         size of its type and span and only needs to be positioned
+	 */
+	private boolean measureFixedCell(View child, int viewType, int span, int widthMeasureSpec,
+			int heightMeasureSpec) {
+		final int key = getFixedCellKey(viewType, span);
+		final int index = mFixedCellWidths.indexOfKey(key);
+		if (index < 0) {
+			child.measure(widthMeasureSpec, heightMeasureSpec);
+			mFixedCellWidths.put(key, child.getMeasuredWidth());
+			mFixedCellHeights.put(key, child.getMeasuredHeight());
+			updateFixedLineSize();
+			return true;
+		}
+
+		final int width = mFixedCellWidths.valueAt(index);
+		final int height = mFixedCellHeights.get(key);
+		if (!child.isLayoutRequested() && child.getMeasuredWidth() == width
+				&& child.getMeasuredHeight() == height) {
+			return false;
+		}
+		child.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+		return true;
+	}
+
+	/**
+	 * @return The key fixed cell sizes are kept under. A cell covering more
+	 *         lanes is wider across the scroll axis, so the span is part of it.
+	 */
+	private static int getFixedCellKey(int viewType, int span) {
+		return (viewType << 16) | (span & 0xffff);
+	}
+
+	/**
+	 * @return The size along the scroll axis of the cell at position, or -1
+	 *         if no cell of its type and span has been measured in fixed cell
+	 *         size mode
 	 */
+	private int getFixedCellLength(int position) {
+		final SparseIntArray sizes = mScrollVertically ? mFixedCellHeights : mFixedCellWidths;
+		return sizes.get(getFixedCellKey(mAdapter.getItemViewType(position),
+				mGeometry.getSpan(position)), -1);
+	}
+
+	/**
+	 * Tells the geometry the line size when every cell measured so far in
+	 * fixed cell size mode has the same size along the scroll axis.
+	 */
+	private void updateFixedLineSize() {
+		final SparseIntArray sizes = mScrollVertically ? mFixedCellHeights : mFixedCellWidths;
+		final int spacing = mScrollVertically ? mVerticalSpacing : mHorizontalSpacing;
+		int lineSize = sizes.size() > 0 ? sizes.valueAt(0) : 0;
+		for (int i = sizes.size() - 1; i > 0; i--) {
+			if (sizes.valueAt(i) != lineSize) {
+				lineSize = 0;
+				break;
+			}
+		}
+		mGeometry.setLineSize(lineSize, spacing);
+	}
+
 	@Override
-	void setSelectionInt(int position) {
-		mGridBuilder.setSelectionInt(position);
+	int getPrefetchLaneCount() {
+		return mScrollVertically ? mNumColumns : mNumRows;
 	}
 
 	@Override
-	public boolean onKeyDown(int keyCode, KeyEvent event) {
-		return commonKey(keyCode, 1, event);
+	void prepareChild(View child, int position) {
+		mGridBuilder.prepareChild(child, position);
 	}
 
 	@Override
-	public boolean onKeyMultiple(int keyCode, int repeatCount, KeyEvent event) {
-		return commonKey(keyCode, repeatCount, event);
+	boolean handleItemRangeChanged(int positionStart, int itemCount) {
+		mSpanIndex.invalidateRange(positionStart, itemCount);
+		mSectionIndex.invalidate();
+		return super.handleItemRangeChanged(positionStart, itemCount);
 	}
 
 	@Override
-	public boolean onKeyUp(int keyCode, KeyEvent event) {
-		return commonKey(keyCode, 1, event);
+	boolean handleItemRangeInserted(int positionStart, int itemCount) {
+		mSpanIndex.invalidateFrom(positionStart);
+		mLaneIndex.insert(positionStart, itemCount);
+		mSectionIndex.invalidate();
+		return super.handleItemRangeInserted(positionStart, itemCount);
 	}
 
-	private boolean commonKey(int keyCode, int count, KeyEvent event) {
-		if (mAdapter == null) {
-			return false;
+	@Override
+	boolean handleItemRangeRemoved(int positionStart, int itemCount) {
+		mSpanIndex.invalidateFrom(positionStart);
+		mLaneIndex.remove(positionStart, itemCount);
+		mSectionIndex.invalidate();
+		return super.handleItemRangeRemoved(positionStart, itemCount);
+	}
+
+	@Override
+	boolean handleItemMoved(int fromPosition, int toPosition) {
+		mSpanIndex.invalidateFrom(Math.min(fromPosition, toPosition));
+		mLaneIndex.remove(fromPosition, 1);
+		mLaneIndex.insert(toPosition, 1);
+		mSectionIndex.invalidate();
+		return super.handleItemMoved(fromPosition, toPosition);
+	}
+
+	@Override
+	int getLineStart(int position) {
+		if (mGridBuilder instanceof StaggeredGridBuilder) {
+			// Items are laid out one by one, each lane on its own
+			return position;
 		}
+		return mGeometry.getLineStart(position, mItemCount, mStackFromBottom);
+	}
 
-		if (mDataChanged) {
-			layoutChildren();
+	@Override
+	void getChildrenExtent(boolean vertical, int[] outExtent) {
+		if (mGridBuilder instanceof StaggeredGridBuilder) {
+			((StaggeredGridBuilder) mGridBuilder).getChildrenExtent(outExtent);
+		} else {
+			super.getChildrenExtent(vertical, outExtent);
 		}
+	}
 
-		boolean handled = false;
-		int action = event.getAction();
+	@Override
+	int findMotionRowY(int y) {
+		return findMotionLine(y, true);
+	}
 
-		if (action != KeyEvent.ACTION_UP) {
-			if (mSelectedPosition < 0) {
-				switch (keyCode) {
-				case KeyEvent.KEYCODE_DPAD_UP:
-				case KeyEvent.KEYCODE_DPAD_DOWN:
-				case KeyEvent.KEYCODE_DPAD_LEFT:
-				case KeyEvent.KEYCODE_DPAD_RIGHT:
-				case KeyEvent.KEYCODE_DPAD_CENTER:
-				case KeyEvent.KEYCODE_SPACE:
-				case KeyEvent.KEYCODE_ENTER:
-					resurrectSelection();
-					return true;
+	@Override
+	int findMotionRowX(int x) {
+		return findMotionLine(x, false);
+	}
+
+	/**
+	 * Shared by findMotionRowY() and findMotionRowX(). Without stackFromBottom
+	 * this is the first line whose leading child ends at or after offset,
+	 * otherwise the last line whose trailing child starts at or before it.
+	 * The line is guessed from the pitch of the first two lines, which is
+	 * right straight away when the cells all have the same size, and binary
+	 * searched otherwise.
+	 */
+	private int findMotionLine(int offset, boolean vertical) {
+		final int childCount = getChildCount();
+		if (childCount == 0) {
+			return INVALID_POSITION;
+		}
+
+		if (mStaggered) {
+			// There are no lines, so look for a child spanning offset
+			for (int i = 0; i < childCount; i++) {
+				final View child = getChildAt(i);
+				final int start = vertical ? child.getTop() : child.getLeft();
+				final int end = vertical ? child.getBottom() : child.getRight();
+				if (offset >= start && offset <= end) {
+					return mFirstPosition + i;
 				}
 			}
+			return INVALID_POSITION;
+		}
 
-			switch (keyCode) {
+		final int firstLine = mGeometry.getLine(mFirstPosition, mItemCount, mStackFromBottom);
+		final int lineCount = getVisibleLineCount(firstLine, childCount);
+		int line = guessLine(offset, firstLine, lineCount, vertical);
+
+		if (!mStackFromBottom) {
+			if (!lineEndsAfter(line, offset, firstLine, vertical)
+					|| (line > 0 && lineEndsAfter(line - 1, offset, firstLine, vertical))) {
+				int low = 0;
+				int high = lineCount;
+				while (low < high) {
+					final int mid = (low + high) >>> 1;
+					if (lineEndsAfter(mid, offset, firstLine, vertical)) {
+						high = mid;
+					} else {
+						low = mid + 1;
+					}
+				}
+				if (low == lineCount) {
+					return INVALID_POSITION;
+				}
+				line = low;
+			}
+			return mFirstPosition + getLineFirstChild(firstLine, line);
+		} else {
+			if (!lineStartsBefore(line, offset, firstLine, childCount, vertical)
+					|| (line < lineCount - 1
+							&& lineStartsBefore(line + 1, offset, firstLine, childCount, vertical))) {
+				int low = -1;
+				int high = lineCount - 1;
+				while (low < high) {
+					final int mid = (low + high + 1) >>> 1;
+					if (lineStartsBefore(mid, offset, firstLine, childCount, vertical)) {
+						low = mid;
+					} else {
+						high = mid - 1;
+					}
+				}
+				if (low < 0) {
+					return INVALID_POSITION;
+				}
+				line = low;
+			}
+			return mFirstPosition + getLineLastChild(firstLine, line, childCount);
+		}
+	}
+
+	/**
+	 * @return Whether the leading child of a visible line ends at or after offset
+	 */
+	private boolean lineEndsAfter(int line, int offset, int firstLine, boolean vertical) {
+		final View child = getChildAt(getLineFirstChild(firstLine, line));
+		return offset <= (vertical ? child.getBottom() : child.getRight());
+	}
+
+	/**
+	 * @return Whether the trailing child of a visible line starts at or before offset
+	 */
+	private boolean lineStartsBefore(int line, int offset, int firstLine, int childCount,
+			boolean vertical) {
+		final View child = getChildAt(getLineLastChild(firstLine, line, childCount));
+		return offset >= (vertical ? child.getTop() : child.getLeft());
+	}
+
+	/**
+	 * @return The last visible line whose leading child starts at or before
+	 *         offset, or the first line if there is none
+	 */
+	private int findLastLineStartingBefore(int offset, int firstLine, int lineCount,
+			boolean vertical) {
+		final int guess = guessLine(offset, firstLine, lineCount, vertical);
+		if (getLineStartOffset(guess, firstLine, vertical) <= offset
+				&& (guess == lineCount - 1
+						|| getLineStartOffset(guess + 1, firstLine, vertical) > offset)) {
+			return guess;
+		}
+
+		int low = 0;
+		int high = lineCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (getLineStartOffset(mid, firstLine, vertical) <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Guesses which visible line holds offset, assuming every line is as far
+	 * from the next as the first one is from the second.
+	 */
+	private int guessLine(int offset, int firstLine, int lineCount, boolean vertical) {
+		if (lineCount < 2) {
+			return 0;
+		}
+		final int start = getLineStartOffset(0, firstLine, vertical);
+		final int pitch = getLineStartOffset(1, firstLine, vertical) - start;
+		if (pitch <= 0 || offset <= start) {
+			return 0;
+		}
+		return Math.min((offset - start) / pitch, lineCount - 1);
+	}
+
+	/**
+	 * @return The main axis start of the leading child of a visible line
+	 */
+	private int getLineStartOffset(int line, int firstLine, boolean vertical) {
+		final View child = getChildAt(getLineFirstChild(firstLine, line));
+		return vertical ? child.getTop() : child.getLeft();
+	}
+
+	/**
+	 * Looks for the child on a visible line that contains a point. The lane
+	 * under the point is tried first and the rest of the line after it.
+	 */
+	private int hitTestLine(int line, int x, int y, int firstLine, int childCount,
+			boolean vertical) {
+		final int start = getLineFirstChild(firstLine, line);
+		final int end = getLineLastChild(firstLine, line, childCount);
+		final int origin = mGeometry.getFirstLaneOffset(
+				vertical ? mListPadding.left : mListPadding.top, end - start + 1, mStackFromBottom);
+		final int lane = mGeometry.getLaneAt((vertical ? x : y) - origin);
+		final int candidate = lane >= 0 ? start + lane : -1;
+
+		if (candidate >= 0 && candidate <= end && childContains(candidate, x, y)) {
+			return mFirstPosition + candidate;
+		}
+		for (int i = start; i <= end; i++) {
+			if (i != candidate && childContains(i, x, y)) {
+				return mFirstPosition + i;
+			}
+		}
+		return INVALID_POSITION;
+	}
+
+	private boolean childContains(int index, int x, int y) {
+		final View child = getChildAt(index);
+		if (child.getVisibility() != View.VISIBLE) {
+			return false;
+		}
+		final Rect frame = mTempRect;
+		child.getHitRect(frame);
+		return frame.contains(x, y);
+	}
+
+	/**
+	 * @return How many lines, full or partial, the children are laid out in
+	 */
+	private int getVisibleLineCount(int firstLine, int childCount) {
+		final int lastLine = mGeometry.getLine(mFirstPosition + childCount - 1, mItemCount,
+				mStackFromBottom);
+		return Math.max(1, lastLine - firstLine + 1);
+	}
+
+	/**
+	 * @return The index of the first child on a visible line
+	 */
+	private int getLineFirstChild(int firstLine, int line) {
+		final int index = mGeometry.getFirstPositionOfLine(firstLine + line, mItemCount,
+				mStackFromBottom) - mFirstPosition;
+		return Math.min(Math.max(0, index), getChildCount() - 1);
+	}
+
+	/**
+	 * @return The index of the last child on a visible line
+	 */
+	private int getLineLastChild(int firstLine, int line, int childCount) {
+		final int index = mGeometry.getFirstPositionOfLine(firstLine + line + 1, mItemCount,
+				mStackFromBottom) - mFirstPosition - 1;
+		return Math.min(Math.max(0, index), childCount - 1);
+	}
+
+
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		if (mGridBuilder instanceof StaggeredGridBuilder) {
+			if (!mStaggered
+					|| ((StaggeredGridBuilder) mGridBuilder).isVertical() != mScrollVertically) {
+				setupGridType();
+			}
+		} else if (mStaggered
+				|| (mScrollVertically && !(mGridBuilder instanceof VerticalGridBuilder))
+				|| (!mScrollVertically && !(mGridBuilder instanceof HorizontalGridBuilder)) ) {
+			setupGridType();
+		}
+		// Sets up mListPadding
+		mGridBuilder.onMeasure(widthMeasureSpec, heightMeasureSpec);
+	}
+
+	//TODO implement horizontal support
+	@Override
+	protected void attachLayoutAnimationParameters(View child,
+			ViewGroup.LayoutParams params, int index, int count) {
+
+		GridLayoutAnimationController.AnimationParameters animationParams =
+			(GridLayoutAnimationController.AnimationParameters) params.layoutAnimationParameters;
+
+		if (animationParams == null) {
+			animationParams = new GridLayoutAnimationController.AnimationParameters();
+			params.layoutAnimationParameters = animationParams;
+		}
+
+		animationParams.count = count;
+		animationParams.index = index;
+		animationParams.columnsCount = mNumColumns;
+		animationParams.rowsCount = count / mNumColumns;
+
+		if (!mStackFromBottom) {
+			animationParams.column = index % mNumColumns;
+			animationParams.row = index / mNumColumns;
+		} else {
+			final int invertedIndex = count - 1 - index;
+
+			animationParams.column = mNumColumns - 1 - (invertedIndex % mNumColumns);
+			animationParams.row = animationParams.rowsCount - 1 - invertedIndex / mNumColumns;
+		}
+	}
+
+	@Override
+	protected void layoutChildren() {
+		final boolean blockLayoutRequests = mBlockLayoutRequests;
+		if (!blockLayoutRequests) {
+			mBlockLayoutRequests = true;
+		}
+
+		try {
+			super.layoutChildren();
+
+			invalidate();
+
+			if (mAdapter == null) {
+				resetList();
+				invokeOnItemScrollListener();
+				return;
+			}
+
+			if (mDataChanged) {
+				// Any item may have a new span size or start a section
+				mSpanIndex.clear();
+				mSectionIndex.invalidate();
+			}
+
+			mGridBuilder.layoutChildren();
+
+			if (mPendingScrollOffset != INVALID_SCROLL_OFFSET && getChildCount() > 0) {
+				// The lines just laid out give the line size the offset needs
+				final long offset = mPendingScrollOffset;
+				mPendingScrollOffset = INVALID_SCROLL_OFFSET;
+				if (syncToOffset(offset)) {
+					mGridBuilder.layoutChildren();
+				}
+			}
+
+		} finally {
+			if (!blockLayoutRequests) {
+				mBlockLayoutRequests = false;
+			}
+		}
+	}
+
+
+
+	/**
+	 * Sets the currently selected item
+	 * 
+	 * @param position Index (starting at 0) of the data item to be selected.
+	 * 
+	 * If in touch mode, the item will not be selected but it will still be positioned
+	 * appropriately.
+	 */
+	@Override
+	public void setSelection(int position) {
+		if (!isInTouchMode()) {
+			setNextSelectedPositionInt(position);
+		} else {
+			mResurrectToPosition = position;
+		}
+		mLayoutMode = LAYOUT_SET_SELECTION;
+		requestLayout();
+	}
+
+	/**
+	 * Makes the item at the supplied position selected.
+	 *
+	 * @param position the position of the new selection
+	 */
+	@Override
+	void setSelectionInt(int position) {
+		mGridBuilder.setSelectionInt(position);
+	}
+
+	@Override
+	public boolean onKeyDown(int keyCode, KeyEvent event) {
+		return commonKey(keyCode, 1, event);
+	}
+
+	@Override
+	public boolean onKeyMultiple(int keyCode, int repeatCount, KeyEvent event) {
+		return commonKey(keyCode, repeatCount, event);
+	}
+
+	@Override
+	public boolean onKeyUp(int keyCode, KeyEvent event) {
+		return commonKey(keyCode, 1, event);
+	}
+
+	private boolean commonKey(int keyCode, int count, KeyEvent event) {
+		if (mAdapter == null) {
+			return false;
+		}
+
+		if (mDataChanged) {
+			layoutChildren();
+		}
+
+		boolean handled = false;
+		int action = event.getAction();
+
+		if (action != KeyEvent.ACTION_UP) {
+			if (mSelectedPosition < 0) {
+				switch (keyCode) {
+				case KeyEvent.KEYCODE_DPAD_UP:
+				case KeyEvent.KEYCODE_DPAD_DOWN:
+				case KeyEvent.KEYCODE_DPAD_LEFT:
+				case KeyEvent.KEYCODE_DPAD_RIGHT:
+				case KeyEvent.KEYCODE_DPAD_CENTER:
+				case KeyEvent.KEYCODE_SPACE:
+				case KeyEvent.KEYCODE_ENTER:
+					resurrectSelection();
+					return true;
+				}
+			}
+
+			switch (keyCode) {
 			case KeyEvent.KEYCODE_DPAD_LEFT:
 				if (!event.isAltPressed()) {
 					handled = mGridBuilder.arrowScroll(FOCUS_LEFT);
@@ -709,134 +1404,851 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 	@Override
 	protected int computeVerticalScrollExtent() {
-		final int count = getChildCount();
-		if (count > 0 && mScrollVertically) {
-			final int numColumns = mNumColumns;
-			final int rowCount = (count + numColumns - 1) / numColumns;
-
-			int extent = rowCount * 100;
+		return mScrollVertically ? computeScrollExtent() : 0;
+	}
 
-			View view = getChildAt(0);
-			final int top = view.getTop();
-			int height = view.getHeight();
-			if (height > 0) {
-				extent += (top * 100) / height;
-			}
+	@Override
+	protected int computeVerticalScrollOffset() {
+		return mScrollVertically ? computeScrollOffset() : 0;
+	}
 
-			view = getChildAt(count - 1);
-			final int bottom = view.getBottom();
-			height = view.getHeight();
-			if (height > 0) {
-				extent -= ((bottom - getHeight()) * 100) / height;
-			}
+	@Override
+	protected int computeVerticalScrollRange() {
+		return mScrollVertically ? computeScrollRange() : 0;
+	}
 
-			return extent;
-		}
-		return 0;
+	@Override
+	protected int computeHorizontalScrollExtent() {
+		return !mScrollVertically ? computeScrollExtent() : 0;
 	}
 
 	@Override
-	protected int computeVerticalScrollOffset() {
-		if (mFirstPosition >= 0 && getChildCount() > 0 && mScrollVertically) {
-			final View view = getChildAt(0);
-			final int top = view.getTop();
-			int height = view.getHeight();
-			if (height > 0) {
-				final int numColumns = mNumColumns;
-				final int whichRow = mFirstPosition / numColumns;
-				final int rowCount = (mItemCount + numColumns - 1) / numColumns;
-				return Math.max(whichRow * 100 - (top * 100) / height +
-						(int) ((float) getScrollY() / getHeight() * rowCount * 100), 0);
-			}
-		}
-		return 0;
+	protected int computeHorizontalScrollOffset() {
+		return !mScrollVertically ? computeScrollOffset() : 0;
 	}
 
 	@Override
-	protected int computeVerticalScrollRange() {
-		// TODO: Account for vertical spacing too
-		if (!mScrollVertically) {
+	protected int computeHorizontalScrollRange() {
+		return !mScrollVertically ? computeScrollRange() : 0;
+	}
+
+	/**
+	 * Returns how far the content is scrolled along the scroll axis, in
+	 * pixels from the start of the first line. With a fixed cell size this is
+	 * exact; otherwise the line size is taken from the lines on screen, which
+	 * is exact when every line has the same size.
+	 *
+	 * @return The scroll offset in pixels, 0 if nothing is laid out
+	 */
+	public long getScrollOffsetPx() {
+		final int childCount = getChildCount();
+		final int pitch = getLinePitch();
+		if (childCount == 0 || mFirstPosition < 0 || pitch <= 0) {
 			return 0;
 		}
-		final int numColumns = mNumColumns;
-		final int rowCount = (mItemCount + numColumns - 1) / numColumns;
-		return Math.max(rowCount * 100, 0);
+		final View first = getChildAt(0);
+		final int start = mScrollVertically ? first.getTop() - mListPadding.top :
+				first.getLeft() - mListPadding.left;
+		final int line = mGeometry.getLine(mFirstPosition, mItemCount, mStackFromBottom);
+		return Math.max(0, (long) line * pitch - start);
 	}
 
-	@Override
-	protected int computeHorizontalScrollExtent() {
-		final int count = getChildCount();
-		if (count > 0 && !mScrollVertically) {
-			final int numRows = mNumRows;
-			final int columnCount = (count + numRows - 1) / numRows;
+	/**
+	 * Scrolls the content so that {@link #getScrollOffsetPx()} returns
+	 * offset, or as close to it as the ends of the content allow. If nothing
+	 * has been laid out yet to learn the line size from, the offset is
+	 * applied by the next layout, which makes this usable to restore a
+	 * scroll position.
+	 *
+	 * @param offset The scroll offset in pixels
+	 */
+	public void scrollToOffsetPx(long offset) {
+		mPendingScrollOffset = INVALID_SCROLL_OFFSET;
+		if (!syncToOffset(offset)) {
+			mPendingScrollOffset = Math.max(0, offset);
+		}
+		requestLayout();
+	}
 
-			int extent = columnCount * 100;
+	/**
+	 * Sets up a LAYOUT_SYNC layout that puts the line at offset at the start
+	 * of the grid.
+	 *
+	 * @return false if the line size is not known yet
+	 */
+	private boolean syncToOffset(long offset) {
+		final int pitch = getLinePitch();
+		final int lineCount = mGeometry.getLineCount(mItemCount);
+		if (pitch <= 0 || lineCount == 0) {
+			return false;
+		}
+		offset = Math.max(0, offset);
+		final int line = (int) Math.min(offset / pitch, lineCount - 1);
+		// Past the last line the layout pins the content to the end anyway
+		final long intoLine = Math.min(offset - (long) line * pitch, pitch);
+		mSyncPosition = mGeometry.getFirstPositionOfLine(line, mItemCount, mStackFromBottom);
+		mSpecificTop = (mScrollVertically ? mListPadding.top : mListPadding.left) - (int) intoLine;
+		mLayoutMode = LAYOUT_SYNC;
+		return true;
+	}
+
+	/**
+	 * @return The distance between the starts of two lines, or 0 if it is
+	 *         not known. Without a fixed cell size this is the average over
+	 *         the lines on screen.
+	 */
+	private int getLinePitch() {
+		if (mGeometry.hasUniformLines()) {
+			return mGeometry.getLinePitch();
+		}
+		final int childCount = getChildCount();
+		if (childCount == 0 || mFirstPosition < 0) {
+			return 0;
+		}
+		final int firstLine = mGeometry.getLine(mFirstPosition, mItemCount, mStackFromBottom);
+		final int lines = getVisibleLineCount(firstLine, childCount);
+		final View first = getChildAt(0);
+		final View last = getChildAt(childCount - 1);
+		final int span = mScrollVertically ?
+				last.getBottom() - first.getTop() + mVerticalSpacing :
+				last.getRight() - first.getLeft() + mHorizontalSpacing;
+		return Math.max(0, span / lines);
+	}
+
+	/**
+	 * @return The length of the content along the scroll axis in pixels,
+	 *         padding included, or 0 if it is not known
+	 */
+	private long getContentLengthPx() {
+		final int pitch = getLinePitch();
+		final int lineCount = mGeometry.getLineCount(mItemCount);
+		if (pitch <= 0 || lineCount == 0) {
+			return 0;
+		}
+		final long length = (long) lineCount * pitch;
+		if (mScrollVertically) {
+			return length - mVerticalSpacing + mListPadding.top + mListPadding.bottom;
+		}
+		return length - mHorizontalSpacing + mListPadding.left + mListPadding.right;
+	}
+
+	private int computeScrollExtent() {
+		if (getChildCount() == 0) {
+			return 0;
+		}
+		return scaleForScrollbar(mScrollVertically ? getHeight() : getWidth());
+	}
+
+	private int computeScrollOffset() {
+		return scaleForScrollbar(getScrollOffsetPx());
+	}
+
+	private int computeScrollRange() {
+		return scaleForScrollbar(getContentLengthPx());
+	}
+
+	/**
+	 * Scroll bars work in ints, so with content longer than Integer.MAX_VALUE
+	 * pixels every value handed to them is divided down by the same amount.
+	 */
+	private int scaleForScrollbar(long px) {
+		final long length = getContentLengthPx();
+		if (length <= Integer.MAX_VALUE) {
+			return (int) px;
+		}
+		return (int) (px / (length / Integer.MAX_VALUE + 1));
+	}
+
+	private abstract class GridBuilder {
+
+		protected abstract View makeAndAddView(int position, int y, boolean flow, int childrenLeft,
+				boolean selected, int where);
+
+		protected abstract void fillGap(boolean down);
+
+
+		protected abstract void onMeasure(int widthMeasureSpec, int heightMeasureSpec);
+
+		protected abstract void layoutChildren();
+
+		protected abstract void setSelectionInt(int position);
+
+		protected abstract void prepareChild(View child, int position);
+
+		protected abstract boolean arrowScroll(int direction);
+
+		protected abstract boolean isCandidateSelection(int childIndex, int direction);
+	}
+
+	/**
+	 * Lays out items whose size along the scroll axis differs in lanes that
+	 * do not line up. Each new item goes to the lane that ends first, so the
+	 * lanes stay close to the same length; scrolling back reuses the lane an
+	 * item was first given, which mLaneIndex remembers by position. Measuring
+	 * and placing a single cell is left to the uniform builder for the same
+	 * axis, so cells are recycled and bound exactly as in a regular grid.
+	 */
+	private class StaggeredGridBuilder extends GridBuilder {
+		/**
+		 * How many lines of items past the anchor of a layout are looked at
+		 * to put the lanes back where they were
+		 */
+		private static final int LANE_RESTORE_LINES = 4;
+
+		private final boolean mVertical;
+		private final GridBuilder mCells;
+
+		/**
+		 * Along the scroll axis, where the next item laid out towards the
+		 * start of each lane ends and where the next one laid out towards
+		 * the end starts, spacing included
+		 */
+		private int[] mLaneStarts = new int[0];
+		private int[] mLaneEnds = new int[0];
+
+		/**
+		 * Where the children reach towards either end, from readLanes()
+		 */
+		private int mChildrenStart;
+		private int mChildrenEnd;
+
+		/**
+		 * Screen offset along the scroll axis of offset 0 in mLaneIndex
+		 */
+		private int mOrigin;
+
+		/**
+		 * The lane count mLaneIndex was filled with
+		 */
+		private int mIndexedLanes = -1;
+
+		StaggeredGridBuilder(boolean vertical) {
+			mVertical = vertical;
+			mCells = vertical ? new VerticalGridBuilder() : new HorizontalGridBuilder();
+		}
+
+		boolean isVertical() {
+			return mVertical;
+		}
+
+		@Override
+		protected View makeAndAddView(int position, int offset, boolean flow, int crossOffset,
+				boolean selected, int where) {
+			return mCells.makeAndAddView(position, offset, flow, crossOffset, selected, where);
+		}
+
+		@Override
+		protected void fillGap(boolean down) {
+			readLanes();
+			if (down) {
+				fillDown(mFirstPosition + getChildCount());
+				correctTooHigh();
+			} else {
+				fillUp(mFirstPosition - 1);
+				correctTooLow();
+			}
+		}
+
+		/**
+		 * Fills the lanes from pos towards the end, each item going to the
+		 * lane it had before or, the first time, to the lane that ends first.
+		 *
+		 * @return The view that is currently selected, if it was laid out
+		 */
+		private View fillDown(int pos) {
+			if (DEBUG) Log.i(TAG, "fillDown() pos: " + pos + " mFirstPosition: " + mFirstPosition);
+			View selectedView = null;
+
+			final int end = getEndLimit() + mExtraLayoutSpace;
+			final int spacing = getSpacing();
+			final int[] laneStarts = mLaneStarts;
+			final int[] laneEnds = mLaneEnds;
+
+			while (pos < mItemCount && laneEnds[getFirstEndingLane()] < end) {
+				int lane = mLaneIndex.getLane(pos);
+				if (lane < 0 || lane >= laneEnds.length) {
+					lane = getFirstEndingLane();
+				}
+				final boolean selected = pos == mSelectedPosition;
+				final View child = makeAndAddView(pos, laneEnds[lane], true,
+						getLaneCrossOffset(lane), selected, -1);
+				final int childStart = getStart(child);
+				mLaneIndex.put(pos, lane, childStart - mOrigin);
+				laneStarts[lane] = Math.min(laneStarts[lane], childStart - spacing);
+				laneEnds[lane] = getEnd(child) + spacing;
+				if (selected) {
+					selectedView = child;
+				}
+				pos++;
+			}
+
+			return selectedView;
+		}
+
+		/**
+		 * Fills the lanes from pos towards the start. Items that were laid out
+		 * before go back to their lane; others go to the lane with the most
+		 * room left.
+		 *
+		 * @return The view that is currently selected, if it was laid out
+		 */
+		private View fillUp(int pos) {
+			if (DEBUG) Log.i(TAG, "fillUp() pos: " + pos + " mFirstPosition: " + mFirstPosition);
+			View selectedView = null;
+
+			final int start = getStartLimit() - mExtraLayoutSpace;
+			final int spacing = getSpacing();
+			final int[] laneStarts = mLaneStarts;
+			final int[] laneEnds = mLaneEnds;
+
+			while (pos >= 0 && laneStarts[getLastStartingLane()] > start) {
+				int lane = mLaneIndex.getLane(pos);
+				if (lane < 0 || lane >= laneStarts.length) {
+					lane = getLastStartingLane();
+				}
+				final boolean selected = pos == mSelectedPosition;
+				final View child = makeAndAddView(pos, laneStarts[lane], false,
+						getLaneCrossOffset(lane), selected, 0);
+				final int childStart = getStart(child);
+				mLaneIndex.put(pos, lane, childStart - mOrigin);
+				laneStarts[lane] = childStart - spacing;
+				laneEnds[lane] = Math.max(laneEnds[lane], getEnd(child) + spacing);
+				if (selected) {
+					selectedView = child;
+				}
+				mFirstPosition = pos;
+				pos--;
+			}
+
+			return selectedView;
+		}
+
+		/**
+		 * Lays out the item at position starting at start, and the items
+		 * around it. When the index knows where the items after position
+		 * were, each lane starts where its first item did, which gives back
+		 * the same layout without laying out anything before position.
+		 *
+		 * @return The view that is currently selected, if it was laid out
+		 */
+		private View fillFrom(int position, int start) {
+			final int lanes = mGeometry.getLanes();
+			ensureLaneArrays(lanes);
+			final int[] laneStarts = mLaneStarts;
+			final int[] laneEnds = mLaneEnds;
+			final int spacing = getSpacing();
+			final LaneIndex index = mLaneIndex;
+
+			for (int i = 0; i < lanes; i++) {
+				laneEnds[i] = Integer.MIN_VALUE;
+			}
+			if (index.getLane(position) >= 0) {
+				mOrigin = start - index.getOffset(position);
+				final int last = Math.min(mItemCount, position + lanes * LANE_RESTORE_LINES);
+				int found = 0;
+				for (int pos = position; pos < last && found < lanes; pos++) {
+					final int lane = index.getLane(pos);
+					if (lane < 0 || lane >= lanes) {
+						break;
+					}
+					if (laneEnds[lane] == Integer.MIN_VALUE) {
+						laneEnds[lane] = mOrigin + index.getOffset(pos);
+						found++;
+					}
+				}
+			} else {
+				mOrigin = start;
+			}
+			for (int i = 0; i < lanes; i++) {
+				if (laneEnds[i] == Integer.MIN_VALUE) {
+					laneEnds[i] = start;
+				}
+				laneStarts[i] = laneEnds[i] - spacing;
+			}
+
+			mFirstPosition = position;
+			final View sel = fillDown(position);
+			final View above = fillUp(position - 1);
+			return sel != null ? sel : above;
+		}
+
+		/**
+		 * Moves the children towards the end if the last item ends before
+		 * the end of the grid while there is content before the start.
+		 */
+		private void correctTooHigh() {
+			final int childCount = getChildCount();
+			if (childCount == 0 || mFirstPosition + childCount != mItemCount) {
+				return;
+			}
+			readLanes();
+			final int startLimit = getStartLimit();
+			int offset = getEndLimit() - mChildrenEnd;
+			if (offset > 0 && (mFirstPosition > 0 || mChildrenStart < startLimit)) {
+				if (mFirstPosition == 0) {
+					offset = Math.min(offset, startLimit - mChildrenStart);
+				}
+				offsetChildren(offset);
+				if (mFirstPosition > 0) {
+					readLanes();
+					fillUp(mFirstPosition - 1);
+				}
+				correctTooLow();
+			}
+		}
+
+		/**
+		 * Moves the children towards the start if the first item starts after
+		 * the start of the grid, and lines the lanes up again if they reached
+		 * the first item out of step, which happens after a layout that
+		 * started in the middle of the data.
+		 */
+		private void correctTooLow() {
+			final int childCount = getChildCount();
+			if (childCount == 0 || mFirstPosition != 0) {
+				return;
+			}
+			readLanes();
+			if (!lanesAligned()) {
+				realign(Math.min(mChildrenStart, getStartLimit()));
+				readLanes();
+			}
+			final int endLimit = getEndLimit();
+			int offset = mChildrenStart - getStartLimit();
+			if (offset > 0 && (childCount < mItemCount || mChildrenEnd > endLimit)) {
+				if (childCount == mItemCount) {
+					offset = Math.min(offset, mChildrenEnd - endLimit);
+				}
+				offsetChildren(-offset);
+				if (mFirstPosition + getChildCount() < mItemCount) {
+					readLanes();
+					fillDown(mFirstPosition + getChildCount());
+				}
+			}
+		}
+
+		/**
+		 * @return Whether the first item of each lane is item 0 to lanes - 1
+		 *         in order and they all start together, as in a layout that
+		 *         started from item 0. Only called with mFirstPosition at 0.
+		 */
+		private boolean lanesAligned() {
+			final int count = Math.min(mGeometry.getLanes(), getChildCount());
+			final int start = getStart(getChildAt(0));
+			for (int i = 0; i < count; i++) {
+				if (getChildLane(i) != i || getStart(getChildAt(i)) != start) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Throws away the lanes remembered for every item and lays the
+		 * children out again from item 0 at start.
+		 */
+		private void realign(int start) {
+			if (DEBUG) Log.i(TAG, "realign() start: " + start);
+			final int childCount = getChildCount();
+			final RecycleBin recycleBin = mRecycler;
+			for (int i = 0; i < childCount; i++) {
+				recycleBin.addScrapView(getChildAt(i));
+			}
+			detachAllViewsFromParent();
+			mLaneIndex.clear();
+			fillFrom(0, start);
+		}
+
+		/**
+		 * Sets mLaneStarts, mLaneEnds, mChildrenStart, mChildrenEnd and
+		 * mOrigin from the children. A lane without children gets the next
+		 * item laid out in either direction.
+		 */
+		private void readLanes() {
+			final int lanes = mGeometry.getLanes();
+			ensureLaneArrays(lanes);
+			final int[] laneStarts = mLaneStarts;
+			final int[] laneEnds = mLaneEnds;
+			final int spacing = getSpacing();
+			final int childCount = getChildCount();
+
+			for (int i = 0; i < lanes; i++) {
+				laneStarts[i] = Integer.MAX_VALUE;
+				laneEnds[i] = Integer.MIN_VALUE;
+			}
+
+			int childrenStart = Integer.MAX_VALUE;
+			int childrenEnd = Integer.MIN_VALUE;
+			for (int i = 0; i < childCount; i++) {
+				final View child = getChildAt(i);
+				final int lane = getChildLane(i);
+				final int start = getStart(child);
+				final int end = getEnd(child);
+				laneStarts[lane] = Math.min(laneStarts[lane], start);
+				laneEnds[lane] = Math.max(laneEnds[lane], end);
+				childrenStart = Math.min(childrenStart, start);
+				childrenEnd = Math.max(childrenEnd, end);
+			}
+			if (childCount == 0) {
+				childrenStart = childrenEnd = getStartLimit();
+			}
+
+			for (int i = 0; i < lanes; i++) {
+				if (laneStarts[i] == Integer.MAX_VALUE) {
+					laneStarts[i] = childrenEnd;
+					laneEnds[i] = childrenStart;
+				} else {
+					laneStarts[i] -= spacing;
+					laneEnds[i] += spacing;
+				}
+			}
+			mChildrenStart = childrenStart;
+			mChildrenEnd = childrenEnd;
+
+			if (childCount > 0) {
+				final int start = getStart(getChildAt(0));
+				mOrigin = mLaneIndex.getLane(mFirstPosition) >= 0 ?
+						start - mLaneIndex.getOffset(mFirstPosition) : start;
+			}
+		}
+
+		/**
+		 * Reads the lanes once for all four edges.
+		 *
+		 * @see TwoWayAbsListView#getChildrenExtent(boolean, int[])
+		 */
+		void getChildrenExtent(int[] outExtent) {
+			readLanes();
+			final int spacing = getSpacing();
+			outExtent[EXTENT_START] = mChildrenStart;
+			outExtent[EXTENT_END] = mChildrenEnd;
+			outExtent[EXTENT_FILLED_START] = mLaneStarts[getLastStartingLane()] + spacing;
+			outExtent[EXTENT_FILLED_END] = mLaneEnds[getFirstEndingLane()] - spacing;
+		}
+
+		private void ensureLaneArrays(int lanes) {
+			if (mLaneStarts.length != lanes) {
+				mLaneStarts = new int[lanes];
+				mLaneEnds = new int[lanes];
+			}
+		}
+
+		/**
+		 * @return The lane whose next item would start closest to the start
+		 *         of the grid, the first of them on a tie
+		 */
+		private int getFirstEndingLane() {
+			final int[] laneEnds = mLaneEnds;
+			int lane = 0;
+			for (int i = 1; i < laneEnds.length; i++) {
+				if (laneEnds[i] < laneEnds[lane]) {
+					lane = i;
+				}
+			}
+			return lane;
+		}
+
+		/**
+		 * @return The lane with the most room before its first child, the
+		 *         last of them on a tie
+		 */
+		private int getLastStartingLane() {
+			final int[] laneStarts = mLaneStarts;
+			int lane = laneStarts.length - 1;
+			for (int i = lane - 1; i >= 0; i--) {
+				if (laneStarts[i] > laneStarts[lane]) {
+					lane = i;
+				}
+			}
+			return lane;
+		}
+
+		/**
+		 * @return The lane of a child, from the index or, if the index does
+		 *         not have its position, from where the child is
+		 */
+		private int getChildLane(int childIndex) {
+			final int lanes = mGeometry.getLanes();
+			int lane = mLaneIndex.getLane(mFirstPosition + childIndex);
+			if (lane < 0 || lane >= lanes) {
+				final View child = getChildAt(childIndex);
+				final int cross = mVertical ? child.getLeft() : child.getTop();
+				lane = mGeometry.getLaneAt(cross - getLaneCrossOffset(0));
+				lane = Math.min(Math.max(0, lane), lanes - 1);
+			}
+			return lane;
+		}
+
+		private int getLaneCrossOffset(int lane) {
+			final int crossStart = mVertical ? mListPadding.left : mListPadding.top;
+			return mGeometry.getFirstLaneOffset(crossStart, mGeometry.getLanes(), false)
+					+ mGeometry.getLaneOffset(lane);
+		}
+
+		private int getStartLimit() {
+			return mVertical ? mListPadding.top : mListPadding.left;
+		}
+
+		private int getEndLimit() {
+			return mVertical ? getHeight() - mListPadding.bottom : getWidth() - mListPadding.right;
+		}
+
+		private int getSpacing() {
+			return mVertical ? mVerticalSpacing : mHorizontalSpacing;
+		}
+
+		private int getStart(View child) {
+			return mVertical ? child.getTop() : child.getLeft();
+		}
+
+		private int getEnd(View child) {
+			return mVertical ? child.getBottom() : child.getRight();
+		}
+
+		private void offsetChildren(int offset) {
+			if (mVertical) {
+				offsetChildrenTopAndBottom(offset);
+			} else {
+				offsetChildrenLeftAndRight(offset);
+			}
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			mCells.onMeasure(widthMeasureSpec, heightMeasureSpec);
+			final int lanes = mGeometry.getLanes();
+			if (lanes != mIndexedLanes) {
+				// Every item would go to a different lane now
+				mLaneIndex.clear();
+				mIndexedLanes = lanes;
+			}
+		}
+
+		@Override
+		protected void layoutChildren() {
+			final int startLimit = getStartLimit();
+			final int endLimit = getEndLimit();
+
+			final int childCount = getChildCount();
+			int index;
+			int oldStart = startLimit;
+
+			// Remember where the item the layout keeps in place was
+			switch (mLayoutMode) {
+			case LAYOUT_SET_SELECTION:
+			case LAYOUT_MOVE_SELECTION:
+				index = mNextSelectedPosition - mFirstPosition;
+				break;
+			case LAYOUT_FORCE_TOP:
+			case LAYOUT_FORCE_BOTTOM:
+			case LAYOUT_SPECIFIC:
+			case LAYOUT_SYNC:
+				index = -1;
+				break;
+			default:
+				index = 0;
+			}
+			if (index >= 0 && index < childCount) {
+				oldStart = getStart(getChildAt(index));
+			}
+
+			boolean dataChanged = mDataChanged;
+			if (dataChanged) {
+				handleDataChanged();
+			}
+
+			// Handle the empty set by removing all views that are visible
+			// and calling it a day
+			if (mItemCount == 0) {
+				resetList();
+				invokeOnItemScrollListener();
+				return;
+			}
+
+			setSelectedPositionInt(mNextSelectedPosition);
+
+			// Pull all children into the RecycleBin.
+			// These views will be reused if possible
+			final int firstPosition = mFirstPosition;
+			final RecycleBin recycleBin = mRecycler;
+
+			if (dataChanged) {
+				discardPendingItemChanges();
+				recycleBin.clearPreparedViews();
+				for (int i = 0; i < childCount; i++) {
+					recycleBin.addScrapView(getChildAt(i));
+				}
+				// Items that are gone no longer have a lane; the others keep
+				// theirs so the lanes do not jump when items are added
+				mLaneIndex.clearFrom(mItemCount);
+			} else {
+				fillActiveViewsForLayout(childCount, firstPosition);
+			}
+
+			// Clear out old views
+			detachAllViewsFromParent();
+
+			int anchor;
+			int anchorStart;
+			switch (mLayoutMode) {
+			case LAYOUT_SET_SELECTION:
+			case LAYOUT_MOVE_SELECTION:
+				anchor = mSelectedPosition;
+				anchorStart = oldStart;
+				break;
+			case LAYOUT_FORCE_TOP:
+				anchor = 0;
+				anchorStart = startLimit;
+				break;
+			case LAYOUT_FORCE_BOTTOM:
+				// Pulled to the end by correctTooHigh()
+				anchor = mItemCount - 1;
+				anchorStart = startLimit;
+				break;
+			case LAYOUT_SPECIFIC:
+				anchor = mSelectedPosition;
+				anchorStart = mSpecificTop;
+				break;
+			case LAYOUT_SYNC:
+				anchor = mSyncPosition;
+				anchorStart = mSpecificTop;
+				break;
+			default:
+				if (childCount == 0) {
+					if (!mStackFromBottom) {
+						setSelectedPositionInt(mAdapter == null || isInTouchMode() ?
+								INVALID_POSITION : 0);
+						anchor = 0;
+					} else {
+						final int last = mItemCount - 1;
+						setSelectedPositionInt(mAdapter == null || isInTouchMode() ?
+								INVALID_POSITION : last);
+						anchor = last;
+					}
+					anchorStart = startLimit;
+				} else {
+					anchor = firstPosition;
+					anchorStart = oldStart;
+				}
+				break;
+			}
+			anchor = Math.min(Math.max(0, anchor), mItemCount - 1);
+
+			fillFrom(anchor, anchorStart);
+			correctTooHigh();
+			correctTooLow();
+
+			View sel = null;
+			if (mSelectedPosition >= mFirstPosition
+					&& mSelectedPosition < mFirstPosition + getChildCount()) {
+				sel = getChildAt(mSelectedPosition - mFirstPosition);
+				if (mLayoutMode == LAYOUT_SET_SELECTION || mLayoutMode == LAYOUT_MOVE_SELECTION) {
+					// Bring all of the new selection into view
+					int offset = 0;
+					if (getEnd(sel) > endLimit) {
+						offset = endLimit - getEnd(sel);
+					}
+					if (getStart(sel) + offset < startLimit) {
+						offset = startLimit - getStart(sel);
+					}
+					if (offset != 0) {
+						offsetChildren(offset);
+						fillGap(offset < 0);
+					}
+				}
+			}
+
+			// Flush any cached views that did not get reused above
+			recycleBin.scrapActiveViews();
+
+			if (sel != null) {
+				positionSelector(sel);
+				mSelectedTop = getStart(sel);
+			} else if (mTouchMode > TOUCH_MODE_DOWN && mTouchMode < TOUCH_MODE_SCROLL) {
+				View child = getChildAt(mMotionPosition - mFirstPosition);
+				if (child != null) positionSelector(child);
+			} else {
+				mSelectedTop = 0;
+				mSelectorRect.setEmpty();
+			}
+
+			mLayoutMode = LAYOUT_NORMAL;
+			mDataChanged = false;
+			mNeedSync = false;
+			setNextSelectedPositionInt(mSelectedPosition);
 
-			View view = getChildAt(0);
-			final int left = view.getLeft();
-			int width = view.getWidth();
-			if (width > 0) {
-				extent += (left * 100) / width;
-			}
+			updateScrollIndicators();
 
-			view = getChildAt(count - 1);
-			final int right = view.getRight();
-			width = view.getWidth();
-			if (width > 0) {
-				extent -= ((right - getWidth()) * 100) / width;
+			if (mItemCount > 0) {
+				checkSelectionChanged();
 			}
 
-			return extent;
+			invokeOnItemScrollListener();
 		}
-		return 0;
-	}
 
-	@Override
-	protected int computeHorizontalScrollOffset() {
-		if (mFirstPosition >= 0 && getChildCount() > 0 && !mScrollVertically) {
-			final View view = getChildAt(0);
-			final int left = view.getLeft();
-			int width = view.getWidth();
-			if (width > 0) {
-				final int numRows = mNumRows;
-				final int whichColumn = mFirstPosition / numRows;
-				final int columnCount = (mItemCount + numRows - 1) / numRows;
-				return Math.max(whichColumn * 100 - (left * 100) / width +
-						(int) ((float) getScrollX() / getWidth() * columnCount * 100), 0);
-			}
+		/**
+		 * Makes the item at the supplied position selected.
+		 *
+		 * @param position the position of the new selection
+		 */
+		@Override
+		protected void setSelectionInt(int position) {
+			setNextSelectedPositionInt(position);
+			TwoWayGridView.this.layoutChildren();
 		}
-		return 0;
-	}
 
-	@Override
-	protected int computeHorizontalScrollRange() {
-		// TODO: Account for horizontal spacing too
-		if (mScrollVertically) {
-			return 0;
+		@Override
+		protected void prepareChild(View child, int position) {
+			mCells.prepareChild(child, position);
 		}
-		final int numRows = mNumRows;
-		final int columnCount = (mItemCount + numRows - 1) / numRows;
-		return Math.max(columnCount * 100, 0);
-	}
-
-
-	private abstract class GridBuilder {
-
-		protected abstract View makeAndAddView(int position, int y, boolean flow, int childrenLeft,
-				boolean selected, int where);
-
-		protected abstract void fillGap(boolean down);
 
+		/**
+		 * Moves the selection to the next or previous item. Lanes do not line
+		 * up, so the selection goes through the items in adapter order
+		 * whatever the direction.
+		 *
+		 * @param direction either {@link View#FOCUS_LEFT}, {@link View#FOCUS_RIGHT},
+		 *        {@link View#FOCUS_UP} or {@link View#FOCUS_DOWN}
+		 *
+		 * @return whether selection was moved
+		 */
+		@Override
+		protected boolean arrowScroll(int direction) {
+			final int selectedPosition = mSelectedPosition;
+			int nextPosition;
 
-		protected abstract void onMeasure(int widthMeasureSpec, int heightMeasureSpec);
-
-		protected abstract void layoutChildren();
+			switch (direction) {
+			case FOCUS_UP:
+			case FOCUS_LEFT:
+				nextPosition = selectedPosition - 1;
+				break;
+			case FOCUS_DOWN:
+			case FOCUS_RIGHT:
+				nextPosition = selectedPosition + 1;
+				break;
+			default:
+				return false;
+			}
 
-		protected abstract void setSelectionInt(int position);
+			if (selectedPosition < 0 || nextPosition < 0 || nextPosition >= mItemCount) {
+				return false;
+			}
 
-		protected abstract boolean arrowScroll(int direction);
+			mLayoutMode = LAYOUT_MOVE_SELECTION;
+			setSelectionInt(nextPosition);
+			playSoundEffect(SoundEffectConstants.getContantForFocusDirection(direction));
+			invokeOnItemScrollListener();
+			return true;
+		}
 
-		protected abstract boolean isCandidateSelection(int childIndex, int direction);
+		/**
+		 * Lanes do not line up, so any child can take focus coming from any
+		 * direction.
+		 */
+		@Override
+		protected boolean isCandidateSelection(int childIndex, int direction) {
+			return true;
+		}
 	}
 
 	private class VerticalGridBuilder extends GridBuilder {
@@ -872,9 +2284,15 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				}
 			}
 
-			// Make a new view for this position, or convert an unused view if
-			// possible
-			child = obtainView(position, mIsScrap);
+			child = mRecycler.getPreparedView(position);
+			if (child != null) {
+				// Bound and measured ahead of time, so it only needs placing
+				mIsScrap[0] = true;
+			} else {
+				// Make a new view for this position, or convert an unused view if
+				// possible
+				child = obtainViewForFill(position, mIsScrap);
+			}
 
 			// This needs to be positioned and measured
 			setupChild(child, position, y, flow, childrenLeft, selected, mIsScrap[0], where);
@@ -904,7 +2322,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 						getChildAt(0).getTop() - verticalSpacing : getHeight() - getListPaddingBottom();
 						int position = mFirstPosition;
 						if (!mStackFromBottom) {
-							position -= numColumns;
+							position = mGeometry.getPreviousLinePosition(position, mItemCount);
 						} else {
 							position--;
 						}
@@ -928,7 +2346,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillDown() pos: " + pos + " nextTop: " + nextTop + " mFirstPosition: " + mFirstPosition);
 			View selectedView = null;
 
-			final int end = (getBottom() - getTop()) - mListPadding.bottom;
+			final int end = (getBottom() - getTop()) - mListPadding.bottom + mExtraLayoutSpace;
 
 			while (nextTop < end && pos < mItemCount) {
 				View temp = makeRow(pos, nextTop, true);
@@ -940,7 +2358,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				// do not cache in a local variable outside of this loop
 				nextTop = mReferenceView.getBottom() + mVerticalSpacing;
 
-				pos += mNumColumns;
+				pos = mGeometry.getNextLinePosition(pos, mItemCount);
 			}
 
 			return selectedView;
@@ -948,24 +2366,19 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 		private View makeRow(int startPos, int y, boolean flow) {
 			if (DEBUG) Log.i(TAG, "makeRow() startPos: " + startPos + " y: " + y + " flow: " + flow + " mFirstPosition: " + mFirstPosition);
-			final int columnWidth = mColumnWidth;
-			final int horizontalSpacing = mHorizontalSpacing;
+			final GridGeometry geometry = mGeometry;
 
 			int last;
-			int nextLeft = mListPadding.left +
-			((mStretchMode == STRETCH_SPACING_UNIFORM) ? horizontalSpacing : 0);
-
 			if (!mStackFromBottom) {
-				last = Math.min(startPos + mNumColumns, mItemCount);
+				last = Math.min(geometry.getNextLinePosition(startPos, mItemCount), mItemCount);
 			} else {
 				last = startPos + 1;
 				startPos = Math.max(0, startPos - mNumColumns + 1);
-
-				if (last - startPos < mNumColumns) {
-					nextLeft += (mNumColumns - (last - startPos)) * (columnWidth + horizontalSpacing);
-				}
 			}
 
+			final int firstLeft = geometry.getFirstLaneOffset(mListPadding.left, last - startPos,
+					mStackFromBottom);
+
 			View selectedView = null;
 
 			final boolean hasFocus = shouldShowSelector();
@@ -973,18 +2386,17 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int selectedPosition = mSelectedPosition;
 
 			View child = null;
+			int lane = 0;
 			for (int pos = startPos; pos < last; pos++) {
 				// is this the selected item?
 				boolean selected = pos == selectedPosition;
 				// does the list view have focus or contain focus
 
 				final int where = flow ? -1 : pos - startPos;
-				child = makeAndAddView(pos, y, flow, nextLeft, selected, where);
-
-				nextLeft += columnWidth;
-				if (pos < last - 1) {
-					nextLeft += horizontalSpacing;
-				}
+				final int childLeft = firstLeft + geometry.getLaneOffset(lane);
+				child = makeAndAddView(pos, y, flow, childLeft, selected, where);
+				// Items covering several lanes push the next one further along
+				lane += geometry.getSpan(pos);
 
 				if (selected && (hasFocus || inClick)) {
 					selectedView = child;
@@ -1014,7 +2426,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillLeft() pos: " + pos + " nextBottom: " + nextBottom + " mFirstPosition: " + mFirstPosition);
 			View selectedView = null;
 
-			final int end = mListPadding.top;
+			final int end = mListPadding.top - mExtraLayoutSpace;
 
 			while (nextBottom > end && pos >= 0) {
 
@@ -1027,7 +2439,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 				mFirstPosition = pos;
 
-				pos -= mNumColumns;
+				pos = mGeometry.getPreviousLinePosition(pos, mItemCount);
 			}
 
 			if (mStackFromBottom) {
@@ -1052,7 +2464,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (mFirstPosition < 0) {
 				mFirstPosition = 0;
 			}
-			mFirstPosition -= mFirstPosition % mNumColumns;
+			mFirstPosition = mGeometry.getLineStart(mFirstPosition, mItemCount, false);
 			return fillDown(mFirstPosition, nextTop);
 		}
 
@@ -1061,8 +2473,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			lastPosition = Math.max(lastPosition, mSelectedPosition);
 			lastPosition = Math.min(lastPosition, mItemCount - 1);
 
-			final int invertedPosition = mItemCount - 1 - lastPosition;
-			lastPosition = mItemCount - 1 - (invertedPosition - (invertedPosition % mNumColumns));
+			lastPosition = mGeometry.getLineEnd(lastPosition, mItemCount, true);
 
 			return fillUp(lastPosition, nextBottom);
 		}
@@ -1073,17 +2484,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numColumns = mNumColumns;
 			final int verticalSpacing = mVerticalSpacing;
 
-			int rowStart;
-			int rowEnd = -1;
-
-			if (!mStackFromBottom) {
-				rowStart = selectedPosition - (selectedPosition % numColumns);
-			} else {
-				final int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				rowEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numColumns));
-				rowStart = Math.max(0, rowEnd - numColumns + 1);
-			}
+			final int rowStart = mGeometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int rowEnd = mGeometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			final int fadingEdgeLength = getVerticalFadingEdgeLength();
 			final int topSelectionPixel = getTopSelectionPixel(childrenTop, fadingEdgeLength, rowStart);
@@ -1094,9 +2496,9 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final View referenceView = mReferenceView;
 
 			if (!mStackFromBottom) {
-				fillDown(rowStart + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowStart, mItemCount), referenceView.getBottom() + verticalSpacing);
 				pinToBottom(childrenBottom);
-				fillUp(rowStart - numColumns, referenceView.getTop() - verticalSpacing);
+				fillUp(mGeometry.getPreviousLinePosition(rowStart, mItemCount), referenceView.getTop() - verticalSpacing);
 				adjustViewsUpOrDown();
 			} else {
 				final int bottomSelectionPixel = getBottomSelectionPixel(childrenBottom,
@@ -1105,7 +2507,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				offsetChildrenTopAndBottom(offset);
 				fillUp(rowStart - 1, referenceView.getTop() - verticalSpacing);
 				pinToTop(childrenTop);
-				fillDown(rowEnd + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowEnd, mItemCount), referenceView.getBottom() + verticalSpacing);
 				adjustViewsUpOrDown();
 			}
 
@@ -1127,17 +2529,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillSpecific() position: " + position + " top: " + top + " mFirstPosition: " + mFirstPosition);
 			final int numColumns = mNumColumns;
 
-			int motionRowStart;
-			int motionRowEnd = -1;
-
-			if (!mStackFromBottom) {
-				motionRowStart = position - (position % numColumns);
-			} else {
-				final int invertedSelection = mItemCount - 1 - position;
-
-				motionRowEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numColumns));
-				motionRowStart = Math.max(0, motionRowEnd - numColumns + 1);
-			}
+			final int motionRowStart = mGeometry.getLineStart(position, mItemCount, mStackFromBottom);
+			final int motionRowEnd = mGeometry.getLineEnd(position, mItemCount, mStackFromBottom);
 
 			final View temp = makeRow(mStackFromBottom ? motionRowEnd : motionRowStart, top, true);
 
@@ -1156,16 +2549,16 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			View below;
 
 			if (!mStackFromBottom) {
-				above = fillUp(motionRowStart - numColumns, referenceView.getTop() - verticalSpacing);
+				above = fillUp(mGeometry.getPreviousLinePosition(motionRowStart, mItemCount), referenceView.getTop() - verticalSpacing);
 				adjustViewsUpOrDown();
-				below = fillDown(motionRowStart + numColumns, referenceView.getBottom() + verticalSpacing);
+				below = fillDown(mGeometry.getNextLinePosition(motionRowStart, mItemCount), referenceView.getBottom() + verticalSpacing);
 				// Check if we have dragged the bottom of the grid too high
 				final int childCount = getChildCount();
 				if (childCount > 0) {
 					correctTooHigh(numColumns, verticalSpacing, childCount);
 				}
 			} else {
-				below = fillDown(motionRowEnd + numColumns, referenceView.getBottom() + verticalSpacing);
+				below = fillDown(mGeometry.getNextLinePosition(motionRowEnd, mItemCount), referenceView.getBottom() + verticalSpacing);
 				adjustViewsUpOrDown();
 				above = fillUp(motionRowStart - 1, referenceView.getTop() - verticalSpacing);
 				// Check if we have dragged the bottom of the grid too high
@@ -1185,87 +2578,55 @@ public class TwoWayGridView extends TwoWayAbsListView {
 		}
 
 		private void correctTooHigh(int numColumns, int verticalSpacing, int childCount) {
-			if (DEBUG) Log.i(TAG, "correctTooLeft() numColumns: " + numColumns + " verticalSpacing: " + verticalSpacing + " mFirstPosition: " + mFirstPosition);
-			// First see if the last item is visible
-			final int lastPosition = mFirstPosition + childCount - 1;
-			if (lastPosition == mItemCount - 1 && childCount > 0) {
-				// Get the last child ...
-				final View lastChild = getChildAt(childCount - 1);
-
-				// ... and its bottom edge
-				final int lastBottom = lastChild.getBottom();
-				// This is bottom of our drawable area
-				final int end = (getBottom() - getTop()) - mListPadding.bottom;
-
-				// This is how far the bottom edge of the last view is from the bottom of the
-				// drawable area
-				int bottomOffset = end - lastBottom;
-
-				final View firstChild = getChildAt(0);
-				final int firstTop = firstChild.getTop();
-
-				// Make sure we are 1) Too high, and 2) Either there are more rows above the
-				// first row or the first row is scrolled off the top of the drawable area
-				if (bottomOffset > 0 && (mFirstPosition > 0 || firstTop < mListPadding.top))  {
-					if (mFirstPosition == 0) {
-						// Don't pull the top too far down
-						bottomOffset = Math.min(bottomOffset, mListPadding.top - firstTop);
-					}
+			if (DEBUG) Log.i(TAG, "correctTooHigh() numColumns: " + numColumns + " verticalSpacing: " + verticalSpacing + " mFirstPosition: " + mFirstPosition);
+			if (childCount == 0) {
+				return;
+			}
+			final View firstChild = getChildAt(0);
+			final View lastChild = getChildAt(childCount - 1);
+			// This is bottom of our drawable area
+			final int end = (getBottom() - getTop()) - mListPadding.bottom;
 
-					// Move everything down
-					offsetChildrenTopAndBottom(bottomOffset);
-					if (mFirstPosition > 0) {
-						// Fill the gap that was opened above mFirstPosition with more rows, if
-						// possible
-						fillUp(mFirstPosition - (mStackFromBottom ? 1 : numColumns),
-								firstChild.getTop() - verticalSpacing);
-						// Close up the remaining gap
-						adjustViewsUpOrDown();
-					}
+			final int bottomOffset = mGeometry.getCorrectionTowardsEnd(mFirstPosition, childCount,
+					mItemCount, firstChild.getTop(), lastChild.getBottom(), mListPadding.top, end);
+			if (bottomOffset > 0) {
+				// Move everything down
+				offsetChildrenTopAndBottom(bottomOffset);
+				if (mFirstPosition > 0) {
+					// Fill the gap that was opened above mFirstPosition with more rows, if
+					// possible
+					fillUp((mStackFromBottom ? mFirstPosition - 1 :
+							mGeometry.getPreviousLinePosition(mFirstPosition, mItemCount)),
+							firstChild.getTop() - verticalSpacing);
+					// Close up the remaining gap
+					adjustViewsUpOrDown();
 				}
 			}
 		}
 
 		private void correctTooLow(int numColumns, int verticalSpacing, int childCount) {
 			if (DEBUG) Log.i(TAG, "correctTooLow() numColumns: " + numColumns + " verticalSpacing: " + verticalSpacing + " mFirstPosition: " + mFirstPosition);
-			if (mFirstPosition == 0 && childCount > 0) {
-				// Get the first child ...
-				final View firstChild = getChildAt(0);
-
-				// ... and its top edge
-				final int firstTop = firstChild.getTop();
-
-				// This is top of our drawable area
-				final int start = mListPadding.top;
-
-				// This is bottom of our drawable area
-				final int end = (getBottom() - getTop()) - mListPadding.bottom;
+			if (childCount == 0) {
+				return;
+			}
+			final View firstChild = getChildAt(0);
+			final View lastChild = getChildAt(childCount - 1);
+			// This is bottom of our drawable area
+			final int end = (getBottom() - getTop()) - mListPadding.bottom;
 
-				// This is how far the top edge of the first view is from the top of the
-				// drawable area
-				int topOffset = firstTop - start;
-				final View lastChild = getChildAt(childCount - 1);
-				final int lastBottom = lastChild.getBottom();
+			final int topOffset = mGeometry.getCorrectionTowardsStart(mFirstPosition, childCount,
+					mItemCount, firstChild.getTop(), lastChild.getBottom(), mListPadding.top, end);
+			if (topOffset > 0) {
 				final int lastPosition = mFirstPosition + childCount - 1;
-
-				// Make sure we are 1) Too low, and 2) Either there are more rows below the
-				// last row or the last row is scrolled off the bottom of the drawable area
-				if (topOffset > 0 && (lastPosition < mItemCount - 1 || lastBottom > end))  {
-					if (lastPosition == mItemCount - 1 ) {
-						// Don't pull the bottom too far up
-						topOffset = Math.min(topOffset, lastBottom - end);
-					}
-
-					// Move everything up
-					offsetChildrenTopAndBottom(-topOffset);
-					if (lastPosition < mItemCount - 1) {
-						// Fill the gap that was opened below the last position with more rows, if
-						// possible
-						fillDown(lastPosition + (!mStackFromBottom ? 1 : numColumns),
-								lastChild.getBottom() + verticalSpacing);
-						// Close up the remaining gap
-						adjustViewsUpOrDown();
-					}
+				// Move everything up
+				offsetChildrenTopAndBottom(-topOffset);
+				if (lastPosition < mItemCount - 1) {
+					// Fill the gap that was opened below the last position with more rows, if
+					// possible
+					fillDown(lastPosition + (!mStackFromBottom ? 1 : numColumns),
+							lastChild.getBottom() + verticalSpacing);
+					// Close up the remaining gap
+					adjustViewsUpOrDown();
 				}
 			}
 		}
@@ -1287,17 +2648,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numColumns = mNumColumns;
 			final int verticalSpacing = mVerticalSpacing;
 
-			int rowStart;
-			int rowEnd = -1;
-
-			if (!mStackFromBottom) {
-				rowStart = selectedPosition - (selectedPosition % numColumns);
-			} else {
-				int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				rowEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numColumns));
-				rowStart = Math.max(0, rowEnd - numColumns + 1);
-			}
+			final int rowStart = mGeometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int rowEnd = mGeometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			View sel;
 			View referenceView;
@@ -1315,11 +2667,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			adjustForBottomFadingEdge(referenceView, topSelectionPixel, bottomSelectionPixel);
 
 			if (!mStackFromBottom) {
-				fillUp(rowStart - numColumns, referenceView.getTop() - verticalSpacing);
+				fillUp(mGeometry.getPreviousLinePosition(rowStart, mItemCount), referenceView.getTop() - verticalSpacing);
 				adjustViewsUpOrDown();
-				fillDown(rowStart + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowStart, mItemCount), referenceView.getBottom() + verticalSpacing);
 			} else {
-				fillDown(rowEnd + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowEnd, mItemCount), referenceView.getBottom() + verticalSpacing);
 				adjustViewsUpOrDown();
 				fillUp(rowStart - 1, referenceView.getTop() - verticalSpacing);
 			}
@@ -1342,7 +2694,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				int numColumns, int rowStart) {
 			// Last pixel we can draw the selection into
 			int bottomSelectionPixel = childrenBottom;
-			if (rowStart + numColumns - 1 < mItemCount - 1) {
+			if (mGeometry.getNextLinePosition(rowStart, mItemCount) - 1 < mItemCount - 1) {
 				bottomSelectionPixel -= fadingEdgeLength;
 			}
 			return bottomSelectionPixel;
@@ -1422,76 +2774,21 @@ public class TwoWayGridView extends TwoWayAbsListView {
 		}
 
 		private void determineColumns(int availableSpace) {
-			final int requestedHorizontalSpacing = mRequestedHorizontalSpacing;
-			final int stretchMode = mStretchMode;
-			final int requestedColumnWidth = mRequestedColumnWidth;
+			final GridGeometry geometry = mGeometry;
+			updateSpanIndex();
+			geometry.determineLanes(availableSpace, mRequestedNumColumns, mRequestedColumnWidth,
+					mRequestedHorizontalSpacing, mStretchMode);
+			mNumColumns = geometry.getLanes();
+			if (mColumnWidth != geometry.getLaneSize()) {
+				// Views bound ahead of time and fixed cell sizes were measured for the old width
+				mRecycler.clearPreparedViews();
+				mFixedCellWidths.clear();
+				mFixedCellHeights.clear();
+			}
+			mColumnWidth = geometry.getLaneSize();
+			mHorizontalSpacing = geometry.getLaneSpacing();
 			mVerticalSpacing = mRequestedVerticalSpacing;
-
-			if (mRequestedNumColumns == AUTO_FIT) {
-				if (requestedColumnWidth > 0) {
-					// Client told us to pick the number of columns
-					mNumColumns = (availableSpace + requestedHorizontalSpacing) /
-					(requestedColumnWidth + requestedHorizontalSpacing);
-				} else {
-					// Just make up a number if we don't have enough info
-					mNumColumns = 2;
-				}
-			} else {
-				// We picked the columns
-				mNumColumns = mRequestedNumColumns;
-			}
-
-			if (mNumColumns <= 0) {
-				mNumColumns = 1;
-			}
-
-			switch (stretchMode) {
-			case NO_STRETCH:
-				// Nobody stretches
-				mColumnWidth = requestedColumnWidth;
-				mHorizontalSpacing = requestedHorizontalSpacing;
-				break;
-
-			default:
-				int spaceLeftOver = 0;
-				switch (stretchMode) {
-				case STRETCH_COLUMN_WIDTH:
-					// Stretch the columns
-					spaceLeftOver = availableSpace - (mNumColumns * requestedColumnWidth) -
-					((mNumColumns - 1) * requestedHorizontalSpacing);
-					mColumnWidth = requestedColumnWidth + spaceLeftOver / mNumColumns;
-					mHorizontalSpacing = requestedHorizontalSpacing;
-					break;
-
-				case STRETCH_SPACING:
-					// Stretch the spacing between columns
-					spaceLeftOver = availableSpace - (mNumColumns * requestedColumnWidth) -
-					((mNumColumns - 1) * requestedHorizontalSpacing);
-					mColumnWidth = requestedColumnWidth;
-					if (mNumColumns > 1) {
-						mHorizontalSpacing = requestedHorizontalSpacing +
-						spaceLeftOver / (mNumColumns - 1);
-					} else {
-						mHorizontalSpacing = requestedHorizontalSpacing + spaceLeftOver;
-					}
-					break;
-
-				case STRETCH_SPACING_UNIFORM:
-					// Stretch the spacing between columns
-					spaceLeftOver = availableSpace - (mNumColumns * requestedColumnWidth) -
-					((mNumColumns + 1) * requestedHorizontalSpacing);
-					mColumnWidth = requestedColumnWidth;
-					if (mNumColumns > 1) {
-						mHorizontalSpacing = requestedHorizontalSpacing +
-						spaceLeftOver / (mNumColumns + 1);
-					} else {
-						mHorizontalSpacing = ((requestedHorizontalSpacing * 2) + spaceLeftOver) / 2;
-					}
-					break;
-				}
-
-				break;
-			}
+			updateFixedLineSize();
 		}
 
 		/**
@@ -1514,24 +2811,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numColumns = mNumColumns;
 			final int verticalSpacing = mVerticalSpacing;
 
-			int oldRowStart;
-			int rowStart;
-			int rowEnd = -1;
-
-			if (!mStackFromBottom) {
-				oldRowStart = (selectedPosition - delta) - ((selectedPosition - delta) % numColumns);
-
-				rowStart = selectedPosition - (selectedPosition % numColumns);
-			} else {
-				int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				rowEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numColumns));
-				rowStart = Math.max(0, rowEnd - numColumns + 1);
-
-				invertedSelection = mItemCount - 1 - (selectedPosition - delta);
-				oldRowStart = mItemCount - 1 - (invertedSelection - (invertedSelection % numColumns));
-				oldRowStart = Math.max(0, oldRowStart - numColumns + 1);
-			}
+			final GridGeometry geometry = mGeometry;
+			final int oldRowStart = geometry.getLineStart(selectedPosition - delta, mItemCount,
+					mStackFromBottom);
+			final int rowStart = geometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int rowEnd = geometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			final int rowDelta = rowStart - oldRowStart;
 
@@ -1580,11 +2864,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			}
 
 			if (!mStackFromBottom) {
-				fillUp(rowStart - numColumns, referenceView.getTop() - verticalSpacing);
+				fillUp(mGeometry.getPreviousLinePosition(rowStart, mItemCount), referenceView.getTop() - verticalSpacing);
 				adjustViewsUpOrDown();
-				fillDown(rowStart + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowStart, mItemCount), referenceView.getBottom() + verticalSpacing);
 			} else {
-				fillDown(rowEnd + numColumns, referenceView.getBottom() + verticalSpacing);
+				fillDown(mGeometry.getNextLinePosition(rowEnd, mItemCount), referenceView.getBottom() + verticalSpacing);
 				adjustViewsUpOrDown();
 				fillUp(rowStart - 1, referenceView.getTop() - verticalSpacing);
 			}
@@ -1615,7 +2899,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 			mItemCount = mAdapter == null ? 0 : mAdapter.getCount();
 			final int count = mItemCount;
-			if (count > 0) {
+			final int fixedHeight = count > 0 && mFixedCellSize ?
+					getFixedCellLength(0) : -1;
+			if (fixedHeight >= 0) {
+				childHeight = fixedHeight;
+			} else if (count > 0) {
 				final View child = obtainView(0, mIsScrap);
 
 				TwoWayAbsListView.LayoutParams p = (TwoWayAbsListView.LayoutParams)child.getLayoutParams();
@@ -1630,7 +2918,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				int childHeightSpec = getChildMeasureSpec(
 						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
 				int childWidthSpec = getChildMeasureSpec(
-						MeasureSpec.makeMeasureSpec(mColumnWidth, MeasureSpec.EXACTLY), 0, p.width);
+						MeasureSpec.makeMeasureSpec(mGeometry.getCellCrossSize(0), MeasureSpec.EXACTLY), 0, p.width);
 				child.measure(childWidthSpec, childHeightSpec);
 
 				childHeight = child.getMeasuredHeight();
@@ -1648,10 +2936,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (heightMode == MeasureSpec.AT_MOST) {
 				int ourSize =  mListPadding.top + mListPadding.bottom;
 
-				final int numColumns = mNumColumns;
-				for (int i = 0; i < count; i += numColumns) {
+				int next;
+				for (int i = 0; i < count; i = next) {
+					next = mGeometry.getNextLinePosition(i, count);
 					ourSize += childHeight;
-					if (i + numColumns < count) {
+					if (next < count) {
 						ourSize += mVerticalSpacing;
 					}
 					if (ourSize >= heightSize) {
@@ -1686,7 +2975,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			case LAYOUT_SET_SELECTION:
 				index = mNextSelectedPosition - mFirstPosition;
 				if (index >= 0 && index < childCount) {
-					newSel = getChildAt(index);
+					newSel = getChildForLayout(index);
 				}
 				break;
 			case LAYOUT_FORCE_TOP:
@@ -1703,7 +2992,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				// Remember the previously selected view
 				index = mSelectedPosition - mFirstPosition;
 				if (index >= 0 && index < childCount) {
-					oldSel = getChildAt(index);
+					oldSel = getChildForLayout(index);
 				}
 
 				// Remember the previous first child
@@ -1731,11 +3020,13 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final RecycleBin recycleBin = mRecycler;
 
 			if (dataChanged) {
+				discardPendingItemChanges();
+				recycleBin.clearPreparedViews();
 				for (int i = 0; i < childCount; i++) {
 					recycleBin.addScrapView(getChildAt(i));
 				}
 			} else {
-				recycleBin.fillActiveViews(childCount, firstPosition);
+				fillActiveViewsForLayout(childCount, firstPosition);
 			}
 
 			// Clear out old views
@@ -1872,6 +3163,31 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			}
 		}
 
+		@Override
+		protected void prepareChild(View child, int position) {
+			TwoWayAbsListView.LayoutParams p = (TwoWayAbsListView.LayoutParams)child.getLayoutParams();
+			if (p == null) {
+				p = new TwoWayAbsListView.LayoutParams(ViewGroup.LayoutParams.FILL_PARENT,
+						ViewGroup.LayoutParams.WRAP_CONTENT, 0);
+				child.setLayoutParams(p);
+			}
+			p.viewType = mAdapter.getItemViewType(position);
+			setBoundItem(p, position);
+
+			int childHeightSpec = ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
+			int childWidthSpec = ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(mGeometry.getCellCrossSize(position), MeasureSpec.EXACTLY), 0, p.width);
+			if (mFixedCellSize) {
+				measureFixedCell(child, p.viewType, mGeometry.getSpan(position),
+						childWidthSpec, childHeightSpec);
+			} else {
+				measureChildForLayout(child, p, childWidthSpec, childHeightSpec, false);
+			}
+			// Lay it out in place so setupChild() only has to move it
+			child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+		}
+
 		/**
 		 * Add a view as a child and make sure it is measured (if necessary) and
 		 * positioned properly.
@@ -1907,6 +3223,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 						ViewGroup.LayoutParams.WRAP_CONTENT, 0);
 			}
 			p.viewType = mAdapter.getItemViewType(position);
+			setBoundItem(p, position);
 
 			if (recycled && !p.forceAdd) {
 				attachViewToParent(child, where, p);
@@ -1926,13 +3243,31 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				child.setPressed(isPressed);
 			}
 
-			if (needToMeasure) {
+			// Wider than a column when the item covers several of them
+			final int cellWidth = mGeometry.getCellCrossSize(position);
+
+			if (mFixedCellSize) {
 				int childHeightSpec = ViewGroup.getChildMeasureSpec(
 						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
 
 				int childWidthSpec = ViewGroup.getChildMeasureSpec(
-						MeasureSpec.makeMeasureSpec(mColumnWidth, MeasureSpec.EXACTLY), 0, p.width);
-				child.measure(childWidthSpec, childHeightSpec);
+						MeasureSpec.makeMeasureSpec(cellWidth, MeasureSpec.EXACTLY), 0, p.width);
+				needToMeasure = measureFixedCell(child, p.viewType, mGeometry.getSpan(position),
+						childWidthSpec, childHeightSpec);
+				if (!needToMeasure) {
+					cleanupLayoutState(child);
+				}
+			} else if (needToMeasure) {
+				int childHeightSpec = ViewGroup.getChildMeasureSpec(
+						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.height);
+
+				int childWidthSpec = ViewGroup.getChildMeasureSpec(
+						MeasureSpec.makeMeasureSpec(cellWidth, MeasureSpec.EXACTLY), 0, p.width);
+				needToMeasure = measureChildForLayout(child, p, childWidthSpec, childHeightSpec,
+						recycled && !updateChildSelected);
+				if (!needToMeasure) {
+					cleanupLayoutState(child);
+				}
 			} else {
 				cleanupLayoutState(child);
 			}
@@ -1948,10 +3283,10 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				childLeft = childrenLeft;
 				break;
 			case Gravity.CENTER_HORIZONTAL:
-				childLeft = childrenLeft + ((mColumnWidth - w) / 2);
+				childLeft = childrenLeft + ((cellWidth - w) / 2);
 				break;
 			case Gravity.RIGHT:
-				childLeft = childrenLeft + mColumnWidth - w;
+				childLeft = childrenLeft + cellWidth - w;
 				break;
 			default:
 				childLeft = childrenLeft;
@@ -2035,30 +3370,41 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 			int startOfRowPos;
 			int endOfRowPos;
+			int previousLinePos;
+			int nextLinePos;
 
 			boolean moved = false;
 
 			if (!mStackFromBottom) {
-				startOfRowPos = (selectedPosition / numColumns) * numColumns;
-				endOfRowPos = Math.min(startOfRowPos + numColumns - 1, mItemCount - 1);
+				final GridGeometry geometry = mGeometry;
+				startOfRowPos = geometry.getLineStart(selectedPosition, mItemCount, false);
+				endOfRowPos = geometry.getLineEnd(selectedPosition, mItemCount, false);
+				// Move to whatever covers the same lane on the next line
+				final int lane = geometry.getLaneInLine(selectedPosition, startOfRowPos);
+				previousLinePos = startOfRowPos > 0 ? geometry.getPositionAtLane(
+						geometry.getPreviousLinePosition(startOfRowPos, mItemCount), lane, mItemCount) : 0;
+				nextLinePos = endOfRowPos < mItemCount - 1 ? geometry.getPositionAtLane(
+						endOfRowPos + 1, lane, mItemCount) : mItemCount - 1;
 			} else {
 				final int invertedSelection = mItemCount - 1 - selectedPosition;
 				endOfRowPos = mItemCount - 1 - (invertedSelection / numColumns) * numColumns;
 				startOfRowPos = Math.max(0, endOfRowPos - numColumns + 1);
+				previousLinePos = Math.max(0, selectedPosition - numColumns);
+				nextLinePos = Math.min(selectedPosition + numColumns, mItemCount - 1);
 			}
 
 			switch (direction) {
 			case FOCUS_UP:
 				if (startOfRowPos > 0) {
 					mLayoutMode = LAYOUT_MOVE_SELECTION;
-					setSelectionInt(Math.max(0, selectedPosition - numColumns));
+					setSelectionInt(previousLinePos);
 					moved = true;
 				}
 				break;
 			case FOCUS_DOWN:
 				if (endOfRowPos < mItemCount - 1) {
 					mLayoutMode = LAYOUT_MOVE_SELECTION;
-					setSelectionInt(Math.min(selectedPosition + numColumns, mItemCount - 1));
+					setSelectionInt(nextLinePos);
 					moved = true;
 				}
 				break;
@@ -2107,7 +3453,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			int rowEnd;
 
 			if (!mStackFromBottom) {
-				rowStart = childIndex - (childIndex % mNumColumns);
+				rowStart = mGeometry.getLineStart(mFirstPosition + childIndex, mItemCount, false)
+						- mFirstPosition;
 				rowEnd = Math.max(rowStart + mNumColumns - 1, count);
 			} else {
 				rowEnd = count - 1 - (invertedIndex - (invertedIndex % mNumColumns));
@@ -2181,9 +3528,15 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				}
 			}
 
-			// Make a new view for this position, or convert an unused view if
-			// possible
-			child = obtainView(position, mIsScrap);
+			child = mRecycler.getPreparedView(position);
+			if (child != null) {
+				// Bound and measured ahead of time, so it only needs placing
+				mIsScrap[0] = true;
+			} else {
+				// Make a new view for this position, or convert an unused view if
+				// possible
+				child = obtainViewForFill(position, mIsScrap);
+			}
 
 			// This needs to be positioned and measured
 			setupChild(child, position, x, flow, childrenTop, selected, mIsScrap[0], where);
@@ -2212,7 +3565,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 						getChildAt(0).getLeft() - horizontalSpacing : getWidth() - getListPaddingRight();
 						int position = mFirstPosition;
 						if (!mStackFromBottom) {
-							position -= numRows;
+							position = mGeometry.getPreviousLinePosition(position, mItemCount);
 						} else {
 							position--;
 						}
@@ -2237,7 +3590,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillRight() pos: " + pos + " nextLeft: " + nextLeft + " mFirstPosition: " + mFirstPosition);
 			View selectedView = null;
 
-			final int end = (getRight() - getLeft()) - mListPadding.right;
+			final int end = (getRight() - getLeft()) - mListPadding.right + mExtraLayoutSpace;
 
 			while (nextLeft < end && pos < mItemCount) {
 				View temp = makeColumn(pos, nextLeft, true);
@@ -2249,7 +3602,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				// do not cache in a local variable outside of this loop
 				nextLeft = mReferenceView.getRight() + mHorizontalSpacing;
 
-				pos += mNumRows;
+				pos = mGeometry.getNextLinePosition(pos, mItemCount);
 			}
 
 			return selectedView;
@@ -2257,24 +3610,19 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 		private View makeColumn(int startPos, int x, boolean flow) {
 			if (DEBUG) Log.i(TAG, "makeColumn() startPos: " + startPos + " x: " + x + " flow: " + flow + " mFirstPosition: " + mFirstPosition);
-			final int rowHeight = mRowHeight;
-			final int verticalSpacing = mVerticalSpacing;
+			final GridGeometry geometry = mGeometry;
 
 			int last;
-			int nextTop = mListPadding.top +
-			((mStretchMode == STRETCH_SPACING_UNIFORM) ? verticalSpacing : 0);
-
 			if (!mStackFromBottom) {
-				last = Math.min(startPos + mNumRows, mItemCount);
+				last = Math.min(geometry.getNextLinePosition(startPos, mItemCount), mItemCount);
 			} else {
 				last = startPos + 1;
 				startPos = Math.max(0, startPos - mNumRows + 1);
-
-				if (last - startPos < mNumRows) {
-					nextTop += (mNumRows - (last - startPos)) * (rowHeight + verticalSpacing);
-				}
 			}
 
+			final int firstTop = geometry.getFirstLaneOffset(mListPadding.top, last - startPos,
+					mStackFromBottom);
+
 			View selectedView = null;
 
 			final boolean hasFocus = shouldShowSelector();
@@ -2282,18 +3630,17 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int selectedPosition = mSelectedPosition;
 
 			View child = null;
+			int lane = 0;
 			for (int pos = startPos; pos < last; pos++) {
 				// is this the selected item?
 				boolean selected = pos == selectedPosition;
 				// does the list view have focus or contain focus
 
 				final int where = flow ? -1 : pos - startPos;
-				child = makeAndAddView(pos, x, flow, nextTop, selected, where);
-
-				nextTop += rowHeight;
-				if (pos < last - 1) {
-					nextTop += verticalSpacing;
-				}
+				final int childTop = firstTop + geometry.getLaneOffset(lane);
+				child = makeAndAddView(pos, x, flow, childTop, selected, where);
+				// Items covering several lanes push the next one further along
+				lane += geometry.getSpan(pos);
 
 				if (selected && (hasFocus || inClick)) {
 					selectedView = child;
@@ -2324,7 +3671,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillLeft() pos: " + pos + " nextRight: " + nextRight + " mFirstPosition: " + mFirstPosition);
 			View selectedView = null;
 
-			final int end = mListPadding.left;
+			final int end = mListPadding.left - mExtraLayoutSpace;
 
 			while (nextRight > end && pos >= 0) {
 
@@ -2337,7 +3684,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 				mFirstPosition = pos;
 
-				pos -= mNumRows;
+				pos = mGeometry.getPreviousLinePosition(pos, mItemCount);
 			}
 
 			if (mStackFromBottom) {
@@ -2362,7 +3709,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (mFirstPosition < 0) {
 				mFirstPosition = 0;
 			}
-			mFirstPosition -= mFirstPosition % mNumRows;
+			mFirstPosition = mGeometry.getLineStart(mFirstPosition, mItemCount, false);
 			return fillRight(mFirstPosition, nextLeft);
 		}
 
@@ -2371,8 +3718,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			lastPosition = Math.max(lastPosition, mSelectedPosition);
 			lastPosition = Math.min(lastPosition, mItemCount - 1);
 
-			final int invertedPosition = mItemCount - 1 - lastPosition;
-			lastPosition = mItemCount - 1 - (invertedPosition - (invertedPosition % mNumRows));
+			lastPosition = mGeometry.getLineEnd(lastPosition, mItemCount, true);
 
 			return fillLeft(lastPosition, nextRight);
 		}
@@ -2383,17 +3729,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numRows = mNumRows;
 			final int horizontalSpacing = mHorizontalSpacing;
 
-			int columnStart;
-			int columnEnd = -1;
-
-			if (!mStackFromBottom) {
-				columnStart = selectedPosition - (selectedPosition % numRows);
-			} else {
-				final int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				columnEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numRows));
-				columnStart = Math.max(0, columnEnd - numRows + 1);
-			}
+			final int columnStart = mGeometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int columnEnd = mGeometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			final int fadingEdgeLength = getHorizontalFadingEdgeLength();
 			final int leftSelectionPixel = getLeftSelectionPixel(childrenLeft, fadingEdgeLength, columnStart);
@@ -2404,9 +3741,9 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final View referenceView = mReferenceView;
 
 			if (!mStackFromBottom) {
-				fillRight(columnStart + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnStart, mItemCount), referenceView.getRight() + horizontalSpacing);
 				pinToRight(childrenRight);
-				fillLeft(columnStart - numRows, referenceView.getLeft() - horizontalSpacing);
+				fillLeft(mGeometry.getPreviousLinePosition(columnStart, mItemCount), referenceView.getLeft() - horizontalSpacing);
 				adjustViewsLeftOrRight();
 			} else {
 				final int rightSelectionPixel = getRightSelectionPixel(childrenRight,
@@ -2415,7 +3752,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				offsetChildrenLeftAndRight(offset);
 				fillLeft(columnStart - 1, referenceView.getLeft() - horizontalSpacing);
 				pinToLeft(childrenLeft);
-				fillRight(columnEnd + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnEnd, mItemCount), referenceView.getRight() + horizontalSpacing);
 				adjustViewsLeftOrRight();
 			}
 
@@ -2437,19 +3774,10 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (DEBUG) Log.i(TAG, "fillSpecific() position: " + position + " left: " + left + " mFirstPosition: " + mFirstPosition);
 			final int numRows = mNumRows;
 
-			int motionColumnStart;
-			int motionColumnEnd = -1;
-
-			if (!mStackFromBottom) {
-				//TODO don't understand what this is doing....
-				motionColumnStart = position - (position % numRows);
-			} else {
-				//TODO don't understand what this is doing....
-				final int invertedSelection = mItemCount - 1 - position;
-
-				motionColumnEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numRows));
-				motionColumnStart = Math.max(0, motionColumnEnd - numRows + 1);
-			}
+			// The column holding position, which is a partial one at the start
+			// of the data when stacking from the bottom
+			final int motionColumnStart = mGeometry.getLineStart(position, mItemCount, mStackFromBottom);
+			final int motionColumnEnd = mGeometry.getLineEnd(position, mItemCount, mStackFromBottom);
 
 			final View temp = makeColumn(mStackFromBottom ? motionColumnEnd : motionColumnStart, left, true);
 
@@ -2468,16 +3796,16 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			View rightOf;
 
 			if (!mStackFromBottom) {
-				leftOf = fillLeft(motionColumnStart - numRows, referenceView.getLeft() - horizontalSpacing);
+				leftOf = fillLeft(mGeometry.getPreviousLinePosition(motionColumnStart, mItemCount), referenceView.getLeft() - horizontalSpacing);
 				adjustViewsLeftOrRight();
-				rightOf = fillRight(motionColumnStart + numRows, referenceView.getRight() + horizontalSpacing);
+				rightOf = fillRight(mGeometry.getNextLinePosition(motionColumnStart, mItemCount), referenceView.getRight() + horizontalSpacing);
 				// Check if we have dragged the bottom of the grid too high
 				final int childCount = getChildCount();
 				if (childCount > 0) {
 					correctTooLeft(numRows, horizontalSpacing, childCount);
 				}
 			} else {
-				rightOf = fillRight(motionColumnEnd + numRows, referenceView.getRight() + horizontalSpacing);
+				rightOf = fillRight(mGeometry.getNextLinePosition(motionColumnEnd, mItemCount), referenceView.getRight() + horizontalSpacing);
 				adjustViewsLeftOrRight();
 				leftOf = fillLeft(motionColumnStart - 1, referenceView.getLeft() - horizontalSpacing);
 				// Check if we have dragged the right of the grid too high
@@ -2499,86 +3827,54 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 		private void correctTooLeft(int numRows, int horizontalSpacing, int childCount) {
 			if (DEBUG) Log.i(TAG, "correctTooLeft() numRows: " + numRows + " horizontalSpacing: " + horizontalSpacing + " mFirstPosition: " + mFirstPosition);
-			// First see if the last item is visible
-			final int lastPosition = mFirstPosition + childCount - 1;
-			if (lastPosition == mItemCount - 1 && childCount > 0) {
-				// Get the last child ...
-				final View lastChild = getChildAt(childCount - 1);
-
-				// ... and its right edge
-				final int lastRight = lastChild.getRight();
-				// This is end of our drawable area
-				final int end = (getRight() - getLeft()) - mListPadding.right;
-
-				// This is how far the right edge of the last view is from the right
-				// edge of the drawable area
-				int rightOffset = end - lastRight;
-
-				final View firstChild = getChildAt(0);
-				final int firstLeft = firstChild.getLeft();
-
-				// Make sure we are 1) Too Left, and 2) Either there are more columns to left of
-				// the first column or the first column is scrolled off the top of the drawable area
-				if (rightOffset > 0 && (mFirstPosition > 0 || firstLeft < mListPadding.left))  {
-					if (mFirstPosition == 0) {
-						// Don't pull the left too far right
-						rightOffset = Math.min(rightOffset, mListPadding.left - firstLeft);
-					}
+			if (childCount == 0) {
+				return;
+			}
+			final View firstChild = getChildAt(0);
+			final View lastChild = getChildAt(childCount - 1);
+			// This is end of our drawable area
+			final int end = (getRight() - getLeft()) - mListPadding.right;
 
-					// Move everything right
-					offsetChildrenLeftAndRight(rightOffset);
-					if (mFirstPosition > 0) {
-						// Fill the gap that was opened above mFirstPosition with more columns, if
-						// possible
-						fillLeft(mFirstPosition - (mStackFromBottom ? 1 : numRows),
-								firstChild.getLeft() - horizontalSpacing);
-						// Close up the remaining gap
-						adjustViewsLeftOrRight();
-					}
+			final int rightOffset = mGeometry.getCorrectionTowardsEnd(mFirstPosition, childCount,
+					mItemCount, firstChild.getLeft(), lastChild.getRight(), mListPadding.left, end);
+			if (rightOffset > 0) {
+				// Move everything right
+				offsetChildrenLeftAndRight(rightOffset);
+				if (mFirstPosition > 0) {
+					// Fill the gap that was opened to left of mFirstPosition with more columns, if
+					// possible
+					fillLeft((mStackFromBottom ? mFirstPosition - 1 :
+							mGeometry.getPreviousLinePosition(mFirstPosition, mItemCount)),
+							firstChild.getLeft() - horizontalSpacing);
+					// Close up the remaining gap
+					adjustViewsLeftOrRight();
 				}
 			}
 		}
 
 		private void correctTooRight(int numRows, int horizontalSpacing, int childCount) {
 			if (DEBUG) Log.i(TAG, "correctTooRight() numRows: " + numRows + " horizontalSpacing: " + horizontalSpacing + " mFirstPosition: " + mFirstPosition);
-			if (mFirstPosition == 0 && childCount > 0) {
-				// Get the first child ...
-				final View firstChild = getChildAt(0);
-
-				// ... and its left edge
-				final int firstLeft = firstChild.getLeft();
-
-				// This is left of our drawable area
-				final int start = mListPadding.left;
-
-				// This is right of our drawable area
-				final int end = (getRight() - getLeft()) - mListPadding.right;
+			if (childCount == 0) {
+				return;
+			}
+			final View firstChild = getChildAt(0);
+			final View lastChild = getChildAt(childCount - 1);
+			// This is right of our drawable area
+			final int end = (getRight() - getLeft()) - mListPadding.right;
 
-				// This is how far the left edge of the first view is from the left of the
-				// drawable area
-				int leftOffset = firstLeft - start;
-				final View lastChild = getChildAt(childCount - 1);
-				final int lastRight = lastChild.getRight();
+			final int leftOffset = mGeometry.getCorrectionTowardsStart(mFirstPosition, childCount,
+					mItemCount, firstChild.getLeft(), lastChild.getRight(), mListPadding.left, end);
+			if (leftOffset > 0) {
 				final int lastPosition = mFirstPosition + childCount - 1;
-
-				// Make sure we are 1) Too right, and 2) Either there are more columns to right of the
-				// last column or the last column is scrolled off the right of the drawable area
-				if (leftOffset > 0 && (lastPosition < mItemCount - 1 || lastRight > end))  {
-					if (lastPosition == mItemCount - 1 ) {
-						// Don't pull the right too far left
-						leftOffset = Math.min(leftOffset, lastRight - end);
-					}
-
-					// Move everything left
-					offsetChildrenLeftAndRight(-leftOffset);
-					if (lastPosition < mItemCount - 1) {
-						// Fill the gap that was opened to right of the last position with
-						// more columns, if possible
-						fillRight(lastPosition + (!mStackFromBottom ? 1 : numRows),
-								lastChild.getRight() + horizontalSpacing);
-						// Close up the remaining gap
-						adjustViewsLeftOrRight();
-					}
+				// Move everything left
+				offsetChildrenLeftAndRight(-leftOffset);
+				if (lastPosition < mItemCount - 1) {
+					// Fill the gap that was opened to right of the last position with
+					// more columns, if possible
+					fillRight(lastPosition + (!mStackFromBottom ? 1 : numRows),
+							lastChild.getRight() + horizontalSpacing);
+					// Close up the remaining gap
+					adjustViewsLeftOrRight();
 				}
 			}
 		}
@@ -2604,24 +3900,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numRows = mNumRows;
 			final int horizontalSpacing = mHorizontalSpacing;
 
-			int oldColumnStart;
-			int columnStart;
-			int columnEnd = -1;
-
-			if (!mStackFromBottom) {
-				oldColumnStart = (selectedPosition - delta) - ((selectedPosition - delta) % numRows);
-
-				columnStart = selectedPosition - (selectedPosition % numRows);
-			} else {
-				int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				columnEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numRows));
-				columnStart = Math.max(0, columnEnd - numRows + 1);
-
-				invertedSelection = mItemCount - 1 - (selectedPosition - delta);
-				oldColumnStart = mItemCount - 1 - (invertedSelection - (invertedSelection % numRows));
-				oldColumnStart = Math.max(0, oldColumnStart - numRows + 1);
-			}
+			final GridGeometry geometry = mGeometry;
+			final int oldColumnStart = geometry.getLineStart(selectedPosition - delta, mItemCount,
+					mStackFromBottom);
+			final int columnStart = geometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int columnEnd = geometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			final int rowDelta = columnStart - oldColumnStart;
 
@@ -2670,11 +3953,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			}
 
 			if (!mStackFromBottom) {
-				fillLeft(columnStart - numRows, referenceView.getLeft() - horizontalSpacing);
+				fillLeft(mGeometry.getPreviousLinePosition(columnStart, mItemCount), referenceView.getLeft() - horizontalSpacing);
 				adjustViewsLeftOrRight();
-				fillRight(columnStart + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnStart, mItemCount), referenceView.getRight() + horizontalSpacing);
 			} else {
-				fillRight(columnStart + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnStart, mItemCount), referenceView.getRight() + horizontalSpacing);
 				adjustViewsLeftOrRight();
 				fillLeft(columnStart - 1, referenceView.getLeft() - horizontalSpacing);
 			}
@@ -2702,7 +3985,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			case LAYOUT_SET_SELECTION:
 				index = mNextSelectedPosition - mFirstPosition;
 				if (index >= 0 && index < childCount) {
-					newSel = getChildAt(index);
+					newSel = getChildForLayout(index);
 				}
 				break;
 			case LAYOUT_FORCE_TOP:
@@ -2719,7 +4002,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				// Remember the previously selected view
 				index = mSelectedPosition - mFirstPosition;
 				if (index >= 0 && index < childCount) {
-					oldSel = getChildAt(index);
+					oldSel = getChildForLayout(index);
 				}
 
 				// Remember the previous first child
@@ -2747,11 +4030,13 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final RecycleBin recycleBin = mRecycler;
 
 			if (dataChanged) {
+				discardPendingItemChanges();
+				recycleBin.clearPreparedViews();
 				for (int i = 0; i < childCount; i++) {
 					recycleBin.addScrapView(getChildAt(i));
 				}
 			} else {
-				recycleBin.fillActiveViews(childCount, firstPosition);
+				fillActiveViewsForLayout(childCount, firstPosition);
 			}
 
 			// Clear out old views
@@ -2864,7 +4149,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 			mItemCount = mAdapter == null ? 0 : mAdapter.getCount();
 			final int count = mItemCount;
-			if (count > 0) {
+			final int fixedWidth = count > 0 && mFixedCellSize ?
+					getFixedCellLength(0) : -1;
+			if (fixedWidth >= 0) {
+				childWidth = fixedWidth;
+			} else if (count > 0) {
 				final View child = obtainView(0, mIsScrap);
 
 				TwoWayAbsListView.LayoutParams p = (TwoWayAbsListView.LayoutParams)child.getLayoutParams();
@@ -2897,10 +4186,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			if (widthMode == MeasureSpec.AT_MOST) {
 				int ourSize =  mListPadding.left + mListPadding.right;
 
-				final int numRows = mNumRows;
-				for (int i = 0; i < count; i += numRows) {
+				int next;
+				for (int i = 0; i < count; i = next) {
+					next = mGeometry.getNextLinePosition(i, count);
 					ourSize += childWidth;
-					if (i + numRows < count) {
+					if (next < count) {
 						ourSize += mHorizontalSpacing;
 					}
 					if (ourSize >= widthSize) {
@@ -2918,75 +4208,21 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 
 		private void determineRows(int availableSpace) {
-			final int requestedVerticalSpacing = mRequestedVerticalSpacing;
-			final int stretchMode = mStretchMode;
-			final int requestedRowHeight = mRequestedRowHeight;
+			final GridGeometry geometry = mGeometry;
+			updateSpanIndex();
+			geometry.determineLanes(availableSpace, mRequestedNumRows, mRequestedRowHeight,
+					mRequestedVerticalSpacing, mStretchMode);
+			mNumRows = geometry.getLanes();
+			if (mRowHeight != geometry.getLaneSize()) {
+				// Views bound ahead of time and fixed cell sizes were measured for the old height
+				mRecycler.clearPreparedViews();
+				mFixedCellWidths.clear();
+				mFixedCellHeights.clear();
+			}
+			mRowHeight = geometry.getLaneSize();
+			mVerticalSpacing = geometry.getLaneSpacing();
 			mHorizontalSpacing = mRequestedHorizontalSpacing;
-
-			if (mRequestedNumRows == AUTO_FIT) {
-				if (requestedRowHeight > 0) {
-					// Client told us to pick the number of rows
-					mNumRows = (availableSpace + mRequestedVerticalSpacing) /
-					(requestedRowHeight + mRequestedVerticalSpacing);
-				} else {
-					// Just make up a number if we don't have enough info
-					mNumRows = 2;
-				}
-			} else {
-				// We picked the rows
-				mNumRows = mRequestedNumRows;
-			}
-
-			if (mNumRows <= 0) {
-				mNumRows = 1;
-			}
-
-			switch (stretchMode) {
-			case NO_STRETCH:
-				// Nobody stretches
-				mRowHeight = mRequestedRowHeight;
-				mVerticalSpacing = mRequestedVerticalSpacing;
-				break;
-
-			default:
-				int spaceLeftOver = 0;
-				switch (stretchMode) {
-				case STRETCH_COLUMN_WIDTH:
-					spaceLeftOver = availableSpace - (mNumRows * requestedRowHeight) -
-					((mNumRows - 1) * requestedVerticalSpacing);
-					// Stretch the rows
-					mRowHeight = requestedRowHeight + spaceLeftOver / mNumRows;
-					mVerticalSpacing = requestedVerticalSpacing;
-					break;
-
-				case STRETCH_SPACING:
-					spaceLeftOver = availableSpace - (mNumRows * requestedRowHeight) -
-					((mNumRows - 1) * requestedVerticalSpacing);
-					// Stretch the spacing between rows
-					mRowHeight = requestedRowHeight;
-					if (mNumRows > 1) {
-						mVerticalSpacing = requestedVerticalSpacing +
-						spaceLeftOver / (mNumRows - 1);
-					} else {
-						mVerticalSpacing = requestedVerticalSpacing + spaceLeftOver;
-					}
-					break;
-
-				case STRETCH_SPACING_UNIFORM:
-					// Stretch the spacing between rows
-					spaceLeftOver = availableSpace - (mNumRows * requestedRowHeight) -
-					((mNumRows + 1) * requestedVerticalSpacing);
-					mRowHeight = requestedRowHeight;
-					if (mNumRows > 1) {
-						mVerticalSpacing = requestedVerticalSpacing + spaceLeftOver / (mNumRows + 1);
-					} else {
-						mVerticalSpacing = ((requestedVerticalSpacing * 2) + spaceLeftOver) / 2;
-					}
-					break;
-				}
-
-				break;
-			}
+			updateFixedLineSize();
 			if (DEBUG) Log.i(TAG, "determineRows() mRowHeight: " + mRowHeight + " mVerticalSpacing: " + mVerticalSpacing + " mStretchMode: " + mStretchMode);
 		}
 
@@ -3007,17 +4243,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			final int numRows = mNumRows;
 			final int horizontalSpacing = mHorizontalSpacing;
 
-			int columnStart;
-			int columnEnd = -1;
-
-			if (!mStackFromBottom) {
-				columnStart = selectedPosition - (selectedPosition % numRows);
-			} else {
-				int invertedSelection = mItemCount - 1 - selectedPosition;
-
-				columnEnd = mItemCount - 1 - (invertedSelection - (invertedSelection % numRows));
-				columnStart = Math.max(0, columnEnd - numRows + 1);
-			}
+			final int columnStart = mGeometry.getLineStart(selectedPosition, mItemCount, mStackFromBottom);
+			final int columnEnd = mGeometry.getLineEnd(selectedPosition, mItemCount, mStackFromBottom);
 
 			View sel;
 			View referenceView;
@@ -3035,11 +4262,11 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			adjustForRightFadingEdge(referenceView, leftSelectionPixel, rightSelectionPixel);
 
 			if (!mStackFromBottom) {
-				fillLeft(columnStart - numRows, referenceView.getLeft() - horizontalSpacing);
+				fillLeft(mGeometry.getPreviousLinePosition(columnStart, mItemCount), referenceView.getLeft() - horizontalSpacing);
 				adjustViewsLeftOrRight();
-				fillRight(columnStart + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnStart, mItemCount), referenceView.getRight() + horizontalSpacing);
 			} else {
-				fillRight(columnEnd + numRows, referenceView.getRight() + horizontalSpacing);
+				fillRight(mGeometry.getNextLinePosition(columnEnd, mItemCount), referenceView.getRight() + horizontalSpacing);
 				adjustViewsLeftOrRight();
 				fillLeft(columnStart - 1, referenceView.getLeft() - horizontalSpacing);
 			}
@@ -3061,7 +4288,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				int numColumns, int rowStart) {
 			// Last pixel we can draw the selection into
 			int rightSelectionPixel = childrenRight;
-			if (rowStart + numColumns - 1 < mItemCount - 1) {
+			if (mGeometry.getNextLinePosition(rowStart, mItemCount) - 1 < mItemCount - 1) {
 				rightSelectionPixel -= fadingEdgeLength;
 			}
 			return rightSelectionPixel;
@@ -3192,6 +4419,31 @@ public class TwoWayGridView extends TwoWayAbsListView {
 		}
 
 
+		@Override
+		protected void prepareChild(View child, int position) {
+			TwoWayAbsListView.LayoutParams p = (TwoWayAbsListView.LayoutParams)child.getLayoutParams();
+			if (p == null) {
+				p = new TwoWayAbsListView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+						ViewGroup.LayoutParams.FILL_PARENT, 0);
+				child.setLayoutParams(p);
+			}
+			p.viewType = mAdapter.getItemViewType(position);
+			setBoundItem(p, position);
+
+			int childWidthSpec = ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.width);
+			int childHeightSpec = ViewGroup.getChildMeasureSpec(
+					MeasureSpec.makeMeasureSpec(mGeometry.getCellCrossSize(position), MeasureSpec.EXACTLY), 0, p.height);
+			if (mFixedCellSize) {
+				measureFixedCell(child, p.viewType, mGeometry.getSpan(position),
+						childWidthSpec, childHeightSpec);
+			} else {
+				measureChildForLayout(child, p, childWidthSpec, childHeightSpec, false);
+			}
+			// Lay it out in place so setupChild() only has to move it
+			child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+		}
+
 		/**
 		 * Add a view as a child and make sure it is measured (if necessary) and
 		 * positioned properly.
@@ -3227,6 +4479,7 @@ public class TwoWayGridView extends TwoWayAbsListView {
 						ViewGroup.LayoutParams.FILL_PARENT, 0);
 			}
 			p.viewType = mAdapter.getItemViewType(position);
+			setBoundItem(p, position);
 
 			if (recycled && !p.forceAdd) {
 				attachViewToParent(child, where, p);
@@ -3246,13 +4499,31 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				child.setPressed(isPressed);
 			}
 
-			if (needToMeasure) {
+			// Taller than a row when the item covers several of them
+			final int cellHeight = mGeometry.getCellCrossSize(position);
+
+			if (mFixedCellSize) {
 				int childWidthSpec = ViewGroup.getChildMeasureSpec(
 						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.width);
 
 				int childHeightSpec = ViewGroup.getChildMeasureSpec(
-						MeasureSpec.makeMeasureSpec(mRowHeight, MeasureSpec.EXACTLY), 0, p.height);
-				child.measure(childWidthSpec, childHeightSpec);
+						MeasureSpec.makeMeasureSpec(cellHeight, MeasureSpec.EXACTLY), 0, p.height);
+				needToMeasure = measureFixedCell(child, p.viewType, mGeometry.getSpan(position),
+						childWidthSpec, childHeightSpec);
+				if (!needToMeasure) {
+					cleanupLayoutState(child);
+				}
+			} else if (needToMeasure) {
+				int childWidthSpec = ViewGroup.getChildMeasureSpec(
+						MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), 0, p.width);
+
+				int childHeightSpec = ViewGroup.getChildMeasureSpec(
+						MeasureSpec.makeMeasureSpec(cellHeight, MeasureSpec.EXACTLY), 0, p.height);
+				needToMeasure = measureChildForLayout(child, p, childWidthSpec, childHeightSpec,
+						recycled && !updateChildSelected);
+				if (!needToMeasure) {
+					cleanupLayoutState(child);
+				}
 			} else {
 				cleanupLayoutState(child);
 			}
@@ -3268,10 +4539,10 @@ public class TwoWayGridView extends TwoWayAbsListView {
 				childTop = childrenTop;
 				break;
 			case Gravity.CENTER_HORIZONTAL:
-				childTop = childrenTop + ((mRowHeight - h) / 2);
+				childTop = childrenTop + ((cellHeight - h) / 2);
 				break;
 			case Gravity.RIGHT:
-				childTop = childrenTop + mRowHeight - h;
+				childTop = childrenTop + cellHeight - h;
 				break;
 			default:
 				childTop = childrenTop;
@@ -3354,30 +4625,41 @@ public class TwoWayGridView extends TwoWayAbsListView {
 
 			int startOfColumnPos;
 			int endOfColumnPos;
+			int previousLinePos;
+			int nextLinePos;
 
 			boolean moved = false;
 
 			if (!mStackFromBottom) {
-				startOfColumnPos = (selectedPosition / numRows) * numRows;
-				endOfColumnPos = Math.min(startOfColumnPos + numRows - 1, mItemCount - 1);
+				final GridGeometry geometry = mGeometry;
+				startOfColumnPos = geometry.getLineStart(selectedPosition, mItemCount, false);
+				endOfColumnPos = geometry.getLineEnd(selectedPosition, mItemCount, false);
+				// Move to whatever covers the same lane on the next line
+				final int lane = geometry.getLaneInLine(selectedPosition, startOfColumnPos);
+				previousLinePos = startOfColumnPos > 0 ? geometry.getPositionAtLane(
+						geometry.getPreviousLinePosition(startOfColumnPos, mItemCount), lane, mItemCount) : 0;
+				nextLinePos = endOfColumnPos < mItemCount - 1 ? geometry.getPositionAtLane(
+						endOfColumnPos + 1, lane, mItemCount) : mItemCount - 1;
 			} else {
 				final int invertedSelection = mItemCount - 1 - selectedPosition;
 				endOfColumnPos = mItemCount - 1 - (invertedSelection / numRows) * numRows;
 				startOfColumnPos = Math.max(0, endOfColumnPos - numRows + 1);
+				previousLinePos = Math.max(0, selectedPosition - numRows);
+				nextLinePos = Math.min(selectedPosition + numRows, mItemCount - 1);
 			}
 
 			switch (direction) {
 			case FOCUS_LEFT:
 				if (startOfColumnPos > 0) {
 					mLayoutMode = LAYOUT_MOVE_SELECTION;
-					setSelectionInt(Math.max(0, selectedPosition - numRows));
+					setSelectionInt(previousLinePos);
 					moved = true;
 				}
 				break;
 			case FOCUS_RIGHT:
 				if (startOfColumnPos < mItemCount - 1) {
 					mLayoutMode = LAYOUT_MOVE_SELECTION;
-					setSelectionInt(Math.min(selectedPosition + numRows, mItemCount - 1));
+					setSelectionInt(nextLinePos);
 					moved = true;
 				}
 				break;
@@ -3427,7 +4709,8 @@ public class TwoWayGridView extends TwoWayAbsListView {
 			int columnEnd;
 
 			if (!mStackFromBottom) {
-				columnStart = childIndex - (childIndex % numRows);
+				columnStart = mGeometry.getLineStart(mFirstPosition + childIndex, mItemCount, false)
+						- mFirstPosition;
 				columnEnd = Math.max(columnStart + numRows - 1, count);
 			} else {
 				columnEnd = count - 1 - (invertedIndex - (invertedIndex % numRows));
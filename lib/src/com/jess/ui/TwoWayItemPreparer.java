@@ -0,0 +1,226 @@
+/*
+ * Prepares item models on a background executor for the positions a view is about to show
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * Builds an item model for each position in the preparation window of a
+ * {@link TwoWayAbsListView}, on an executor rather than the UI thread. An
+ * adapter implementing {@link TwoWayAbsListView.PreparationWindowListener}
+ * forwards the window here, and its
+ * {@link android.widget.Adapter#getView(int, android.view.View, android.view.ViewGroup)}
+ * calls {@link #getPreparedItem(int)} and only applies the model to the view.
+ *
+ * <p>Models should be immutable, since they are built on one thread and
+ * used on another. {@link #prepareItem(int)} must only read data that does
+ * not change under it. Work for positions that leave the window is
+ * cancelled and their models are dropped.</p>
+ *
+ * <p>Everything but {@link #prepareItem(int)} must be called on the UI
+ * thread.</p>
+ *
+ * @param <T> The type of the item models
+ */
+public abstract class TwoWayItemPreparer<T> implements TwoWayAbsListView.PreparationWindowListener {
+	private static final String TAG = "TwoWayItemPreparer";
+
+	private final Executor mExecutor;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Models that are ready, by position
+	 */
+	private final SparseArray<T> mItems = new SparseArray<T>();
+
+	/**
+	 * Work queued or running, by position
+	 */
+	private final SparseArray<PrepareTask> mTasks = new SparseArray<PrepareTask>();
+
+	private int mFirst;
+	private int mLast = -1;
+	private int mFirstVisible;
+	private int mLastVisible = -1;
+	private int mDirection;
+
+	/**
+	 * @param executor Runs {@link #prepareItem(int)}. A single thread
+	 *        executor prepares positions in the order the window asks for.
+	 */
+	public TwoWayItemPreparer(Executor executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * Builds the model for a position. Called on the executor.
+	 *
+	 * @return The model, or null if there is nothing to show
+	 */
+	protected abstract T prepareItem(int position) throws Exception;
+
+	/**
+	 * Called on the UI thread when the model for a position in the window
+	 * is ready. An adapter will usually report the item as changed here, so
+	 * a view bound before the model was ready gets bound again.
+	 */
+	protected void onItemPrepared(int position, T item) {
+	}
+
+	/**
+	 * @return The model for position, or null if it is not ready yet
+	 */
+	public T getPreparedItem(int position) {
+		return mItems.get(position);
+	}
+
+	/**
+	 * @return Whether position is in the last window reported by the view
+	 */
+	public boolean isInWindow(int position) {
+		return position >= mFirst && position <= mLast;
+	}
+
+	public void onPreparationWindowChanged(int first, int last, int firstVisible,
+			int lastVisible, int direction) {
+		mFirst = first;
+		mLast = last;
+		mFirstVisible = firstVisible;
+		mLastVisible = lastVisible;
+		mDirection = direction;
+
+		// Drop whatever left the window
+		for (int i = mTasks.size() - 1; i >= 0; i--) {
+			final int position = mTasks.keyAt(i);
+			if (!isInWindow(position)) {
+				mTasks.valueAt(i).cancel(false);
+				mTasks.removeAt(i);
+			}
+		}
+		for (int i = mItems.size() - 1; i >= 0; i--) {
+			if (!isInWindow(mItems.keyAt(i))) {
+				mItems.removeAt(i);
+			}
+		}
+
+		// Queue the rest by when the view needs them: what is on screen, then
+		// the lines it is scrolling into, then the ones behind it
+		final int visibleFirst = Math.max(first, firstVisible);
+		final int visibleLast = Math.min(last, lastVisible);
+		if (direction >= 0) {
+			prepareForward(visibleFirst, visibleLast);
+			prepareForward(visibleLast + 1, last);
+			prepareBackward(visibleFirst - 1, first);
+		} else {
+			prepareBackward(visibleLast, visibleFirst);
+			prepareBackward(visibleFirst - 1, first);
+			prepareForward(visibleLast + 1, last);
+		}
+	}
+
+	private void prepareForward(int from, int to) {
+		for (int position = from; position <= to; position++) {
+			prepare(position);
+		}
+	}
+
+	private void prepareBackward(int from, int to) {
+		for (int position = from; position >= to; position--) {
+			prepare(position);
+		}
+	}
+
+	/**
+	 * Cancels all work and drops every model, then prepares the current
+	 * window again. Call it when the data behind the models changes.
+	 */
+	public void clear() {
+		for (int i = mTasks.size() - 1; i >= 0; i--) {
+			mTasks.valueAt(i).cancel(false);
+		}
+		mTasks.clear();
+		mItems.clear();
+		onPreparationWindowChanged(mFirst, mLast, mFirstVisible, mLastVisible, mDirection);
+	}
+
+	private void prepare(int position) {
+		if (mItems.indexOfKey(position) >= 0 || mTasks.get(position) != null) {
+			return;
+		}
+		final PrepareTask task = new PrepareTask(position);
+		mTasks.put(position, task);
+		mExecutor.execute(task);
+	}
+
+	/**
+	 * Hands the model for a finished task over on the UI thread, unless the
+	 * task was cancelled or replaced in the meantime.
+	 */
+	private void deliver(PrepareTask task) {
+		final int position = task.mPosition;
+		if (mTasks.get(position) != task) {
+			return;
+		}
+		mTasks.remove(position);
+
+		final T item;
+		try {
+			item = task.get();
+		} catch (InterruptedException e) {
+			return;
+		} catch (ExecutionException e) {
+			Log.w(TAG, "Could not prepare item " + position, e.getCause());
+			return;
+		}
+		mItems.put(position, item);
+		onItemPrepared(position, item);
+	}
+
+	private final class PrepareTask extends FutureTask<T> {
+		final int mPosition;
+
+		PrepareTask(final int position) {
+			super(new Callable<T>() {
+				public T call() throws Exception {
+					return prepareItem(position);
+				}
+			});
+			mPosition = position;
+		}
+
+		@Override
+		protected void done() {
+			if (!isCancelled()) {
+				mHandler.post(new Runnable() {
+					public void run() {
+						deliver(PrepareTask.this);
+					}
+				});
+			}
+		}
+	}
+}
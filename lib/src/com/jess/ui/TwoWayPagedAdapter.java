@@ -0,0 +1,497 @@
+/*
+ * Adapter that loads its items a page at a time on a background executor
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * An adapter for data too large to hold in memory. Items are loaded in pages
+ * of a fixed size by {@link #loadPage(int, int)} on an executor, and
+ * {@link #getItem(int)} answers right away: with the item if its page is in
+ * memory, or with {@link #getPlaceholder(int)} while the page loads. When a
+ * page arrives only its range is reported as changed, so a
+ * {@link TwoWayGridView} binds the children showing it again and nothing
+ * else.
+ *
+ * <p>Loaded pages are kept in least recently used order until their total
+ * size, as given by {@link #sizeOf(Object)}, goes over the budget. Pages
+ * overlapping the view's preparation window are never dropped. When the
+ * executor picks up work, it loads the waiting page closest to that window
+ * first, and pages that fall well outside the window before they are picked
+ * up are not loaded at all. A page that fails to load is tried again a few
+ * times, waiting longer each time, as long as it overlaps the window.</p>
+ *
+ * <p>Everything but {@link #loadPage(int, int)} must be called on the UI
+ * thread.</p>
+ *
+ * @param <T> The type of the items
+ */
+public abstract class TwoWayPagedAdapter<T> extends TwoWayBaseAdapter implements
+		TwoWayAbsListView.PreparationWindowListener {
+	private static final String TAG = "TwoWayPagedAdapter";
+
+	/**
+	 * How many times a page that failed is loaded again, and how long to
+	 * wait before the first retry. Each retry waits twice as long.
+	 */
+	private static final int MAX_RETRIES = 3;
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	private final Executor mExecutor;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final int mPageSize;
+	private final int mMaxSize;
+
+	/**
+	 * Loaded pages by page number, least recently used first
+	 */
+	private final LinkedHashMap<Integer, Page<T>> mPages =
+			new LinkedHashMap<Integer, Page<T>>(16, 0.75f, true);
+	private int mSize;
+
+	/**
+	 * How many times in a row each page failed to load
+	 */
+	private final HashMap<Integer, Integer> mFailures = new HashMap<Integer, Integer>();
+
+	/**
+	 * Guards the fields below it, which the loader reads on the executor
+	 */
+	private final Object mLock = new Object();
+
+	/**
+	 * Pages waiting for the executor
+	 */
+	private final ArrayList<Integer> mPending = new ArrayList<Integer>();
+
+	/**
+	 * Pages waiting or loading
+	 */
+	private final HashSet<Integer> mRequested = new HashSet<Integer>();
+
+	private int mCount;
+
+	/**
+	 * Bumped whenever the data is invalidated, so that pages loaded from the
+	 * old data are dropped when they arrive
+	 */
+	private int mGeneration;
+
+	/**
+	 * The pages the view's preparation window covers, -1 before it is known
+	 */
+	private int mFirstPage = -1;
+	private int mLastPage = -1;
+
+	/**
+	 * Set by release(), after which no page is asked for
+	 */
+	private boolean mReleased;
+
+	private final Runnable mLoader = new Runnable() {
+		public void run() {
+			loadNext();
+		}
+	};
+
+	/**
+	 * @param executor Runs {@link #loadPage(int, int)}
+	 * @param pageSize How many items to load at a time
+	 * @param maxSize How much loaded data to keep in memory, in the unit of
+	 *        {@link #sizeOf(Object)}
+	 */
+	public TwoWayPagedAdapter(Executor executor, int pageSize, int maxSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize must be positive");
+		}
+		mExecutor = executor;
+		mPageSize = pageSize;
+		mMaxSize = maxSize;
+	}
+
+	/**
+	 * Loads count items starting at position. Called on the executor.
+	 *
+	 * @return The items, which may be fewer than count if the data ended
+	 */
+	protected abstract List<T> loadPage(int position, int count) throws Exception;
+
+	/**
+	 * @return What {@link #getItem(int)} returns for position while its page
+	 *         loads, null by default
+	 */
+	protected T getPlaceholder(int position) {
+		return null;
+	}
+
+	/**
+	 * Called on the UI thread when {@link #loadPage(int, int)} throws. The
+	 * page is loaded again later if it still overlaps the window and has
+	 * not failed too often.
+	 *
+	 * @param position The first position of the page
+	 * @param e What loadPage threw
+	 */
+	protected void onPageLoadFailed(int position, Exception e) {
+	}
+
+	/**
+	 * @return How much of the memory budget an item takes, 1 by default so
+	 *         that the budget is a number of items
+	 */
+	protected int sizeOf(T item) {
+		return 1;
+	}
+
+	/**
+	 * @return The number of items per page
+	 */
+	public int getPageSize() {
+		return mPageSize;
+	}
+
+	/**
+	 * Sets how many items there are. Items added at the end are reported as
+	 * inserted, and a partly loaded last page is loaded again. Any other
+	 * change drops every page, see {@link #invalidate()}.
+	 */
+	public void setCount(int count) {
+		final int oldCount = mCount;
+		if (count > oldCount) {
+			synchronized (mLock) {
+				mCount = count;
+			}
+			if (oldCount % mPageSize != 0) {
+				removePage(oldCount / mPageSize);
+			}
+			notifyItemRangeInserted(oldCount, count - oldCount);
+		} else if (count < oldCount) {
+			synchronized (mLock) {
+				mCount = count;
+			}
+			invalidate();
+		}
+	}
+
+	/**
+	 * Drops every loaded page and any page still waiting, and reports the
+	 * data as changed. Call it when the data behind the pages changes.
+	 */
+	public void invalidate() {
+		synchronized (mLock) {
+			mGeneration++;
+			mPending.clear();
+			mRequested.clear();
+		}
+		mPages.clear();
+		mFailures.clear();
+		mSize = 0;
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * Stops all loading for good: pages waiting or loading are dropped when
+	 * they arrive, retries are cancelled and no page is asked for again,
+	 * so the executor is never used after this returns. Pages already in
+	 * memory are still handed out. Call it before shutting the executor
+	 * down.
+	 */
+	public void release() {
+		synchronized (mLock) {
+			mGeneration++;
+			mPending.clear();
+			mRequested.clear();
+		}
+		mReleased = true;
+		mFailures.clear();
+		mHandler.removeCallbacksAndMessages(null);
+	}
+
+	/**
+	 * Hands over a page loaded some other way, for example together with
+	 * the count. It is reported as changed just like a page loaded by
+	 * {@link #loadPage(int, int)}.
+	 *
+	 * @param position The first position of the page, a multiple of the
+	 *        page size
+	 */
+	public void putPage(int position, List<T> items) {
+		if (position % mPageSize != 0) {
+			throw new IllegalArgumentException("position " + position + " does not start a page");
+		}
+		cachePage(position / mPageSize, items);
+	}
+
+	/**
+	 * @return Whether the page holding position is in memory
+	 */
+	public boolean isLoaded(int position) {
+		return mPages.containsKey(position / mPageSize);
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return The item at position, or the placeholder if its page is still
+	 *         loading, in which case the page is asked for
+	 */
+	public T getItem(int position) {
+		final int page = position / mPageSize;
+		final Page<T> loaded = mPages.get(page);
+		if (loaded == null) {
+			requestPage(page);
+			return getPlaceholder(position);
+		}
+		final int index = position - page * mPageSize;
+		return index < loaded.mItems.size() ? loaded.mItems.get(index) : getPlaceholder(position);
+	}
+
+	public long getItemId(int position) {
+		return position;
+	}
+
+	public void onPreparationWindowChanged(int first, int last, int firstVisible,
+			int lastVisible, int direction) {
+		final int firstPage = first / mPageSize;
+		final int lastPage = last / mPageSize;
+		synchronized (mLock) {
+			mFirstPage = firstPage;
+			mLastPage = lastPage;
+
+			// Pages more than one page away from the window are not needed soon
+			for (int i = mPending.size() - 1; i >= 0; i--) {
+				final int page = mPending.get(i);
+				if (page < firstPage - 1 || page > lastPage + 1) {
+					mPending.remove(i);
+					mRequested.remove(page);
+				}
+			}
+		}
+
+		for (int page = firstPage; page <= lastPage; page++) {
+			// Also marks the page as recently used
+			if (mPages.get(page) == null) {
+				requestPage(page);
+			}
+		}
+		// And the page the view is heading into
+		final int next = direction > 0 ? lastPage + 1 : direction < 0 ? firstPage - 1 : -1;
+		if (next >= 0 && next * mPageSize < mCount && !mPages.containsKey(next)) {
+			requestPage(next);
+		}
+	}
+
+	private void requestPage(int page) {
+		if (mReleased) {
+			return;
+		}
+		synchronized (mLock) {
+			if (!mRequested.add(page)) {
+				return;
+			}
+			mPending.add(page);
+		}
+		mExecutor.execute(mLoader);
+	}
+
+	/**
+	 * Loads the waiting page closest to the window. Called on the executor,
+	 * once for every page asked for, so a page dropped from the queue just
+	 * leaves a call with nothing to do.
+	 */
+	private void loadNext() {
+		final int page;
+		final int generation;
+		final int count;
+		synchronized (mLock) {
+			final int size = mPending.size();
+			if (size == 0) {
+				return;
+			}
+			int best = 0;
+			int bestDistance = Integer.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				final int distance = getDistance(mPending.get(i));
+				if (distance < bestDistance) {
+					best = i;
+					bestDistance = distance;
+				}
+			}
+			page = mPending.remove(best);
+			generation = mGeneration;
+			count = mCount;
+		}
+
+		final int position = page * mPageSize;
+		List<T> items = null;
+		Exception failure = null;
+		if (position < count) {
+			try {
+				items = loadPage(position, Math.min(mPageSize, count - position));
+			} catch (Exception e) {
+				Log.w(TAG, "Could not load page at " + position, e);
+				failure = e;
+			}
+		}
+
+		final List<T> loaded = items;
+		final Exception failed = failure;
+		mHandler.post(new Runnable() {
+			public void run() {
+				deliver(page, generation, count, loaded, failed);
+			}
+		});
+	}
+
+	/**
+	 * @return How many pages page is from the window. Called with mLock held.
+	 */
+	private int getDistance(int page) {
+		if (mFirstPage < 0) {
+			return page;
+		}
+		if (page < mFirstPage) {
+			return mFirstPage - page;
+		}
+		return page > mLastPage ? page - mLastPage : 0;
+	}
+
+	/**
+	 * @param count The item count the page was loaded with
+	 * @param failure What loadPage threw, if it did
+	 */
+	private void deliver(int page, int generation, int count, List<T> items, Exception failure) {
+		synchronized (mLock) {
+			if (generation != mGeneration) {
+				return;
+			}
+			// A page that failed can be asked for again
+			mRequested.remove(page);
+		}
+		if (failure != null) {
+			onPageLoadFailed(page * mPageSize, failure);
+			scheduleRetry(page, generation);
+			return;
+		}
+		if (items == null) {
+			return;
+		}
+		cachePage(page, items);
+
+		// Items were added to this page while it loaded
+		final int end = Math.min(mCount, (page + 1) * mPageSize);
+		if (count < mCount && page * mPageSize + items.size() < end) {
+			requestPage(page);
+		}
+	}
+
+	/**
+	 * Loads a page that failed again after a while, unless it has failed
+	 * too often. It is only asked for if by then it is still missing and
+	 * overlaps the window.
+	 */
+	private void scheduleRetry(final int page, final int generation) {
+		final Integer failures = mFailures.get(page);
+		final int attempt = failures != null ? failures + 1 : 1;
+		if (attempt > MAX_RETRIES) {
+			mFailures.remove(page);
+			return;
+		}
+		mFailures.put(page, attempt);
+		mHandler.postDelayed(new Runnable() {
+			public void run() {
+				synchronized (mLock) {
+					if (generation != mGeneration || page < mFirstPage || page > mLastPage) {
+						return;
+					}
+				}
+				if (!mPages.containsKey(page) && page * mPageSize < mCount) {
+					requestPage(page);
+				}
+			}
+		}, RETRY_DELAY_MILLIS << (attempt - 1));
+	}
+
+	private void cachePage(int page, List<T> items) {
+		int size = 0;
+		for (int i = items.size() - 1; i >= 0; i--) {
+			size += sizeOf(items.get(i));
+		}
+		removePage(page);
+		mFailures.remove(page);
+		mPages.put(page, new Page<T>(items, size));
+		mSize += size;
+		trimToSize();
+
+		notifyItemRangeChanged(page * mPageSize, items.size());
+	}
+
+	private void removePage(int page) {
+		final Page<T> removed = mPages.remove(page);
+		if (removed != null) {
+			mSize -= removed.mSize;
+		}
+	}
+
+	/**
+	 * Drops the least recently used pages outside the window until the
+	 * loaded pages fit the budget again.
+	 */
+	private void trimToSize() {
+		final int firstPage;
+		final int lastPage;
+		synchronized (mLock) {
+			firstPage = mFirstPage;
+			lastPage = mLastPage;
+		}
+		final Iterator<Map.Entry<Integer, Page<T>>> it = mPages.entrySet().iterator();
+		while (mSize > mMaxSize && it.hasNext()) {
+			final Map.Entry<Integer, Page<T>> entry = it.next();
+			final int page = entry.getKey();
+			if (page >= firstPage && page <= lastPage) {
+				continue;
+			}
+			mSize -= entry.getValue().mSize;
+			it.remove();
+		}
+	}
+
+	private static final class Page<T> {
+		final List<T> mItems;
+		final int mSize;
+
+		Page(List<T> items, int size) {
+			mItems = items;
+			mSize = size;
+		}
+	}
+}
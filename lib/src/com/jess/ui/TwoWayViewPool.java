@@ -0,0 +1,121 @@
+/*
+ * A pool of item views that several grids can share
+ *
+ * Copyright 2012 Jess Anders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jess.ui;
+
+import java.util.ArrayList;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+/**
+ * Item views set aside by one {@link TwoWayAbsListView} for any other view
+ * attached to the same pool. Views end up here when a view's own scrap heap
+ * has more than it can use, and when a view clears its scrap heap because it
+ * is detached from its window or gets a new adapter. A view whose own scrap
+ * heap is empty takes its views from here before asking the adapter to
+ * inflate a new one.
+ *
+ * <p>Views are kept by view type, so every adapter used by the views sharing
+ * a pool has to give the same type to the same kind of item view. Each type
+ * holds at most {@link #DEFAULT_MAX_RECYCLED_VIEWS} views unless changed with
+ * {@link #setMaxRecycledViews(int, int)}.</p>
+ *
+ * <p>A pool must only be used from the UI thread.</p>
+ *
+ * @see TwoWayAbsListView#setRecycledViewPool(TwoWayViewPool)
+ */
+public class TwoWayViewPool {
+	/**
+	 * How many views of each type are kept unless told otherwise
+	 */
+	public static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+	private final SparseArray<ArrayList<View>> mScrap = new SparseArray<ArrayList<View>>();
+	private final SparseIntArray mMaxScrap = new SparseIntArray();
+
+	/**
+	 * Sets how many views of a type the pool keeps. Views over the new
+	 * limit are dropped.
+	 *
+	 * @param viewType A view type returned by {@link android.widget.Adapter#getItemViewType(int)}
+	 * @param max The number of views to keep, 0 to keep none
+	 */
+	public void setMaxRecycledViews(int viewType, int max) {
+		mMaxScrap.put(viewType, max);
+		final ArrayList<View> scrap = mScrap.get(viewType);
+		if (scrap != null) {
+			while (scrap.size() > max) {
+				scrap.remove(scrap.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of views of a type the pool keeps
+	 */
+	public int getMaxRecycledViews(int viewType) {
+		return mMaxScrap.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+	}
+
+	/**
+	 * @return The number of views of a type waiting in the pool
+	 */
+	public int getRecycledViewCount(int viewType) {
+		final ArrayList<View> scrap = mScrap.get(viewType);
+		return scrap != null ? scrap.size() : 0;
+	}
+
+	/**
+	 * Drops every view in the pool.
+	 */
+	public void clear() {
+		mScrap.clear();
+	}
+
+	/**
+	 * @return A view of the type, or null if there is none
+	 */
+	View getRecycledView(int viewType) {
+		final ArrayList<View> scrap = mScrap.get(viewType);
+		if (scrap == null) {
+			return null;
+		}
+		final int size = scrap.size();
+		return size > 0 ? scrap.remove(size - 1) : null;
+	}
+
+	/**
+	 * Adds a view that has no parent to the pool.
+	 *
+	 * @return false if the pool already holds as many views of the type as it can
+	 */
+	boolean putRecycledView(int viewType, View view) {
+		ArrayList<View> scrap = mScrap.get(viewType);
+		if (scrap == null) {
+			scrap = new ArrayList<View>();
+			mScrap.put(viewType, scrap);
+		}
+		if (scrap.size() >= getMaxRecycledViews(viewType)) {
+			return false;
+		}
+		scrap.add(view);
+		return true;
+	}
+}
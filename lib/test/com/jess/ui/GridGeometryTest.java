@@ -0,0 +1,162 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the line lookups of {@link GridGeometry} against each other for
+ * every lane count and item count up to a few lines, in both stacking
+ * directions, and the visible range math against hand worked examples.
+ */
+public class GridGeometryTest {
+	private static final int MAX_LANES = 6;
+	private static final int MAX_ITEMS = 40;
+
+	private static GridGeometry geometry(int lanes) {
+		final GridGeometry geometry = new GridGeometry();
+		geometry.determineLanes(lanes * 100, lanes, 100, 0, TwoWayGridView.NO_STRETCH);
+		return geometry;
+	}
+
+	@Test
+	public void linesRoundTrip() {
+		for (int lanes = 1; lanes <= MAX_LANES; lanes++) {
+			final GridGeometry geometry = geometry(lanes);
+			for (int itemCount = 1; itemCount <= MAX_ITEMS; itemCount++) {
+				checkLines(geometry, itemCount, false);
+				checkLines(geometry, itemCount, true);
+			}
+		}
+	}
+
+	/**
+	 * Walks the lines from the first one and checks that they cover every
+	 * position exactly once, and that every lookup agrees on each line.
+	 */
+	private static void checkLines(GridGeometry geometry, int itemCount, boolean stackFromBottom) {
+		final String where = "lanes " + geometry.getLanes() + " items " + itemCount
+				+ (stackFromBottom ? " from bottom" : "");
+		final int lineCount = geometry.getLineCount(itemCount);
+		int expectedStart = 0;
+		for (int line = 0; line < lineCount; line++) {
+			final int start = geometry.getFirstPositionOfLine(line, itemCount, stackFromBottom);
+			assertEquals(where + " line " + line, expectedStart, start);
+			final int end = geometry.getLineEnd(start, itemCount, stackFromBottom);
+			assertTrue(where + " line " + line, end >= start);
+			assertTrue(where + " line " + line, end - start < geometry.getLanes());
+
+			for (int position = start; position <= end; position++) {
+				assertEquals(where + " position " + position, line,
+						geometry.getLine(position, itemCount, stackFromBottom));
+				assertEquals(where + " position " + position, start,
+						geometry.getLineStart(position, itemCount, stackFromBottom));
+				assertEquals(where + " position " + position, end,
+						geometry.getLineEnd(position, itemCount, stackFromBottom));
+			}
+			expectedStart = end + 1;
+		}
+		assertEquals(where, itemCount, expectedStart);
+	}
+
+	@Test
+	public void partialLineIsLastOrFirst() {
+		final GridGeometry geometry = geometry(3);
+		// 10 items in 3 lanes: the short line is the last one from the top...
+		assertEquals(4, geometry.getLineCount(10));
+		assertEquals(9, geometry.getLineStart(9, 10, false));
+		assertEquals(9, geometry.getLineEnd(9, 10, false));
+		assertEquals(5, geometry.getLineEnd(4, 10, false));
+		// ...and the first one from the bottom
+		assertEquals(0, geometry.getLineEnd(0, 10, true));
+		assertEquals(1, geometry.getLineStart(3, 10, true));
+		assertEquals(3, geometry.getLineEnd(1, 10, true));
+		assertEquals(7, geometry.getFirstPositionOfLine(3, 10, true));
+	}
+
+	@Test
+	public void visibleRange() {
+		final GridGeometry geometry = geometry(3);
+		final int[] range = new int[2];
+
+		// No uniform lines, no offset based lookups
+		assertEquals(-1, geometry.getFirstVisiblePosition(0, 10, false));
+		assertFalse(geometry.getVisibleRange(0, 100, 10, false, range));
+
+		geometry.setLineSize(100, 10);
+		assertEquals(0, geometry.getFirstVisiblePosition(0, 10, false));
+		assertEquals(0, geometry.getFirstVisiblePosition(109, 10, false));
+		assertEquals(3, geometry.getFirstVisiblePosition(110, 10, false));
+		assertEquals(0, geometry.getFirstVisiblePosition(-50, 10, false));
+		// Past the end the last line is the first visible one
+		assertEquals(9, geometry.getFirstVisiblePosition(10000, 10, false));
+
+		assertTrue(geometry.getVisibleRange(0, 220, 10, false, range));
+		assertEquals(0, range[0]);
+		assertEquals(5, range[1]);
+
+		assertTrue(geometry.getVisibleRange(115, 110, 10, false, range));
+		assertEquals(3, range[0]);
+		assertEquals(8, range[1]);
+
+		assertTrue(geometry.getVisibleRange(0, 10000, 10, false, range));
+		assertEquals(0, range[0]);
+		assertEquals(9, range[1]);
+
+		assertFalse(geometry.getVisibleRange(0, 0, 10, false, range));
+		assertFalse(geometry.getVisibleRange(0, 100, 0, false, range));
+	}
+
+	@Test
+	public void visibleRangeFromBottom() {
+		final GridGeometry geometry = geometry(3);
+		geometry.setLineSize(100, 10);
+		final int[] range = new int[2];
+
+		// Lines are [0], [1-3], [4-6], [7-9]
+		assertTrue(geometry.getVisibleRange(0, 110, 10, true, range));
+		assertEquals(0, range[0]);
+		assertEquals(0, range[1]);
+
+		assertTrue(geometry.getVisibleRange(110, 220, 10, true, range));
+		assertEquals(1, range[0]);
+		assertEquals(6, range[1]);
+
+		assertEquals(7, geometry.getFirstVisiblePosition(330, 10, true));
+	}
+
+	@Test
+	public void linesRoundTripWithSpans() {
+		final int[] spans = { 1, 2, 1, 3, 1, 1, 1, 2, 2, 1, 3, 1 };
+		final GridGeometry geometry = geometry(3);
+		final SpanIndex index = new SpanIndex();
+		index.setProvider(new ArraySpans(spans));
+		geometry.setSpanIndex(index);
+
+		// Lines are [0-1], [2], [3], [4-6], [7], [8-9], [10], [11]
+		assertEquals(8, geometry.getLineCount(spans.length));
+		checkLines(geometry, spans.length, false);
+		assertEquals(300, geometry.getCellCrossSize(3));
+		assertEquals(1, geometry.getLaneInLine(1, 0));
+		assertEquals(5, geometry.getPositionAtLane(4, 1, spans.length));
+	}
+
+	/**
+	 * Spans from an array, for the tests
+	 */
+	static final class ArraySpans implements TwoWayGridView.SpanSizeProvider {
+		final int[] mSpans;
+		int mCalls;
+
+		ArraySpans(int[] spans) {
+			mSpans = spans;
+		}
+
+		public int getSpanSize(int position) {
+			mCalls++;
+			return mSpans[position];
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Range notifications only bind the children showing items that are new to
+ * the screen, keep the first child at the start of a line, and leave every
+ * child showing the item at its position.
+ *
+ * <p>The grid has three columns and four lines on screen, scrolled so that
+ * positions 30 to 41 show.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ItemRangeChangeTest {
+	private static final int COLUMNS = 3;
+	private static final int WIDTH = 300;
+	private static final int HEIGHT = 400;
+	private static final int CELL_HEIGHT = 100;
+	private static final int ITEM_COUNT = 200;
+	private static final int FIRST = 30;
+
+	private Activity mActivity;
+	private TwoWayGridView mGrid;
+	private LabelAdapter mAdapter;
+
+	@Before
+	public void setUp() {
+		mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+		mGrid = new TwoWayGridView(mActivity);
+		mGrid.setNumColumns(COLUMNS);
+		// Keeps onMeasure() from binding item 0 to measure it
+		mGrid.setFixedCellSize(true);
+		mAdapter = new LabelAdapter();
+		mGrid.setAdapter(mAdapter);
+		layout();
+		mGrid.jumpToPosition(FIRST);
+		layout();
+		assertEquals(FIRST, mGrid.getFirstVisiblePosition());
+		assertEquals(12, mGrid.getChildCount());
+		mAdapter.mBound.clear();
+	}
+
+	private void layout() {
+		mGrid.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+		mGrid.layout(0, 0, WIDTH, HEIGHT);
+	}
+
+	/**
+	 * Lays the grid out after a notification and checks that it was handled
+	 * as a range change, that the first child starts a line and shows the
+	 * right item like every other child, and which positions on screen were
+	 * bound.
+	 */
+	private void assertLaidOut(int first, Integer... bound) {
+		assertFalse(mGrid.mDataChanged);
+		layout();
+		assertEquals(first, mGrid.getFirstVisiblePosition());
+		assertEquals(0, mGrid.getFirstVisiblePosition() % COLUMNS);
+		final int childCount = mGrid.getChildCount();
+		for (int i = 0; i < childCount; i++) {
+			final TextView child = (TextView) mGrid.getChildAt(i);
+			assertEquals("child " + i, mAdapter.mLabels.get(first + i), child.getText().toString());
+		}
+
+		final List<Integer> visible = new ArrayList<Integer>();
+		for (Integer position : mAdapter.mBound) {
+			if (position >= first && position < first + childCount && !visible.contains(position)) {
+				visible.add(position);
+			}
+		}
+		Collections.sort(visible);
+		final List<Integer> expected = new ArrayList<Integer>();
+		Collections.addAll(expected, bound);
+		assertEquals(expected, visible);
+	}
+
+	private void insert(int position, int count) {
+		for (int i = 0; i < count; i++) {
+			mAdapter.mLabels.add(position + i, "new " + i);
+		}
+		mAdapter.notifyItemRangeInserted(position, count);
+	}
+
+	private void remove(int position, int count) {
+		for (int i = 0; i < count; i++) {
+			mAdapter.mLabels.remove(position);
+		}
+		mAdapter.notifyItemRangeRemoved(position, count);
+	}
+
+	private void move(int from, int to) {
+		mAdapter.mLabels.add(to, mAdapter.mLabels.remove(from));
+		mAdapter.notifyItemMoved(from, to);
+	}
+
+	@Test
+	public void insertBefore() {
+		// The first child moves to 31, back to 30 to start its line, which
+		// now shows item 29
+		insert(10, 1);
+		assertLaidOut(30, 30);
+	}
+
+	@Test
+	public void insertBeforeWholeLine() {
+		insert(10, COLUMNS);
+		assertLaidOut(33);
+	}
+
+	@Test
+	public void removeBefore() {
+		// The first child moves to 28, back to 27, which now shows item 29
+		remove(10, 2);
+		assertLaidOut(27, 27);
+	}
+
+	@Test
+	public void insertInside() {
+		insert(33, 2);
+		assertLaidOut(30, 33, 34);
+	}
+
+	@Test
+	public void removeInside() {
+		// Items 42 and 43 come into view
+		remove(33, 2);
+		assertLaidOut(30, 40, 41);
+	}
+
+	@Test
+	public void insertAfter() {
+		insert(100, 5);
+		assertLaidOut(30);
+	}
+
+	@Test
+	public void removeAfter() {
+		remove(100, 5);
+		assertLaidOut(30);
+	}
+
+	@Test
+	public void moveBefore() {
+		move(5, 20);
+		assertLaidOut(30);
+	}
+
+	@Test
+	public void moveIntoView() {
+		// Items 28 and 29 slide into the first line, item 5 lands at 35
+		move(5, 35);
+		assertLaidOut(27, 27, 28, 35);
+	}
+
+	@Test
+	public void moveInsideView() {
+		move(31, 39);
+		assertLaidOut(30);
+	}
+
+	@Test
+	public void moveOutOfView() {
+		// Item 42 comes into view at 41
+		move(33, 150);
+		assertLaidOut(30, 41);
+	}
+
+	@Test
+	public void moveAfter() {
+		move(100, 150);
+		assertLaidOut(30);
+	}
+
+	private final class LabelAdapter extends TwoWayBaseAdapter {
+		final ArrayList<String> mLabels = new ArrayList<String>();
+
+		/**
+		 * Positions bound since the last layout checked
+		 */
+		final ArrayList<Integer> mBound = new ArrayList<Integer>();
+
+		LabelAdapter() {
+			for (int i = 0; i < ITEM_COUNT; i++) {
+				mLabels.add("item " + i);
+			}
+		}
+
+		public int getCount() {
+			return mLabels.size();
+		}
+
+		public Object getItem(int position) {
+			return mLabels.get(position);
+		}
+
+		public long getItemId(int position) {
+			return position;
+		}
+
+		public View getView(int position, View convertView, ViewGroup parent) {
+			TextView view = (TextView) convertView;
+			if (view == null) {
+				view = new TextView(mActivity);
+				view.setLayoutParams(new TwoWayAbsListView.LayoutParams(
+						ViewGroup.LayoutParams.FILL_PARENT, CELL_HEIGHT));
+			}
+			view.setText(mLabels.get(position));
+			mBound.add(position);
+			return view;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LaneIndexTest {
+	@Test
+	public void putGetAndClear() {
+		final LaneIndex index = new LaneIndex();
+		assertEquals(-1, index.getLane(0));
+		assertEquals(-1, index.getLane(-1));
+
+		index.put(0, 0, -20);
+		index.put(1000, 3, 5000);
+		assertEquals(0, index.getLane(0));
+		assertEquals(-20, index.getOffset(0));
+		assertEquals(3, index.getLane(1000));
+		assertEquals(5000, index.getOffset(1000));
+		// Positions in between have no lane
+		assertEquals(-1, index.getLane(500));
+
+		index.clearFrom(500);
+		assertEquals(0, index.getLane(0));
+		assertEquals(-1, index.getLane(1000));
+
+		index.clear();
+		assertEquals(-1, index.getLane(0));
+	}
+
+	@Test
+	public void insertAndRemoveShiftEntries() {
+		final LaneIndex index = new LaneIndex();
+		for (int i = 0; i < 100; i++) {
+			index.put(i, i % 3, i * 10);
+		}
+
+		index.insert(10, 5);
+		assertEquals(9 % 3, index.getLane(9));
+		assertEquals(-1, index.getLane(10));
+		assertEquals(-1, index.getLane(14));
+		assertEquals(10 % 3, index.getLane(15));
+		assertEquals(100, index.getOffset(15));
+		assertEquals(99 % 3, index.getLane(104));
+		assertEquals(-1, index.getLane(105));
+
+		index.remove(10, 5);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i % 3, index.getLane(i));
+			assertEquals(i * 10, index.getOffset(i));
+		}
+		assertEquals(-1, index.getLane(100));
+
+		// Removing past the end only drops what is there
+		index.remove(95, 20);
+		assertEquals(94 % 3, index.getLane(94));
+		assertEquals(-1, index.getLane(95));
+	}
+}
@@ -0,0 +1,58 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LongIntMapTest {
+	@Test
+	public void putGetAndGrow() {
+		final LongIntMap map = new LongIntMap();
+		assertEquals(-1, map.get(5, -1));
+		for (int i = 0; i < 1000; i++) {
+			map.put(i * 7919L - 3000, i);
+		}
+		assertEquals(1000, map.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, map.get(i * 7919L - 3000, -1));
+		}
+		assertEquals(-1, map.get(1, -1));
+
+		// Overwrites keep the size
+		map.put(-3000, 42);
+		assertEquals(42, map.get(-3000, -1));
+		assertEquals(1000, map.size());
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(-1, map.get(-3000, -1));
+	}
+
+	@Test
+	public void offsetAndRemoveValues() {
+		// Ids 100 and up at positions 0 to 99, like an adapter's items
+		final LongIntMap map = new LongIntMap(100);
+		for (int i = 0; i < 100; i++) {
+			map.put(100 + i, i);
+		}
+
+		// Remove positions 10 to 19 and move the rest up
+		map.removeValues(10, 20);
+		map.offsetValues(20, Integer.MAX_VALUE, -10);
+		assertEquals(90, map.size());
+		assertEquals(9, map.get(109, -1));
+		assertEquals(-1, map.get(110, -1));
+		assertEquals(-1, map.get(119, -1));
+		assertEquals(10, map.get(120, -1));
+		assertEquals(89, map.get(199, -1));
+
+		// Insert two at the start
+		map.offsetValues(0, Integer.MAX_VALUE, 2);
+		map.put(1, 0);
+		map.put(2, 1);
+		assertEquals(92, map.size());
+		assertEquals(2, map.get(100, -1));
+		assertEquals(91, map.get(199, -1));
+		assertEquals(1, map.get(2, -1));
+	}
+}
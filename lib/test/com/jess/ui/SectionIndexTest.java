@@ -0,0 +1,74 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.widget.SectionIndexer;
+
+import org.junit.Test;
+
+public class SectionIndexTest {
+	@Test
+	public void skipsEmptyAndOutOfRangeSections() {
+		// Section 2 is empty, section 4 starts past the data
+		final SectionIndex index = new SectionIndex();
+		index.update(new Sections(new int[] { 3, 10, 10, 25, 60 }), 50);
+
+		assertEquals(3, index.getSectionCount());
+		assertEquals(3, index.getSectionStart(0));
+		assertEquals(10, index.getSectionStart(1));
+		assertEquals(25, index.getSectionStart(2));
+		assertEquals(3, index.getIndexerSection(2));
+
+		assertEquals(-1, index.getSectionForPosition(0));
+		assertEquals(0, index.getSectionForPosition(3));
+		assertEquals(0, index.getSectionForPosition(9));
+		assertEquals(1, index.getSectionForPosition(10));
+		assertEquals(2, index.getSectionForPosition(49));
+
+		assertTrue(index.isSectionStart(25));
+		assertFalse(index.isSectionStart(26));
+	}
+
+	@Test
+	public void onlyReadsAgainWhenInvalidated() {
+		final SectionIndex index = new SectionIndex();
+		index.update(new Sections(new int[] { 0, 5 }), 10);
+		index.update(new Sections(new int[] { 0 }), 10);
+		assertEquals(2, index.getSectionCount());
+
+		index.invalidate();
+		index.update(new Sections(new int[] { 0 }), 10);
+		assertEquals(1, index.getSectionCount());
+
+		index.invalidate();
+		index.update(null, 10);
+		assertEquals(0, index.getSectionCount());
+		assertEquals(-1, index.getSectionForPosition(5));
+	}
+
+	private static final class Sections implements SectionIndexer {
+		private final int[] mStarts;
+
+		Sections(int[] starts) {
+			mStarts = starts;
+		}
+
+		public Object[] getSections() {
+			final Object[] sections = new Object[mStarts.length];
+			for (int i = 0; i < sections.length; i++) {
+				sections[i] = String.valueOf(i);
+			}
+			return sections;
+		}
+
+		public int getPositionForSection(int section) {
+			return mStarts[section];
+		}
+
+		public int getSectionForPosition(int position) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link SpanIndex} packs items into the same lines after an
+ * invalidation as it does from scratch.
+ */
+public class SpanIndexTest {
+	private static final int LANES = 4;
+	private static final int ITEM_COUNT = 500;
+
+	@Test
+	public void packsGreedily() {
+		final SpanIndex index = index(new int[] { 1, 2, 1, 3, 1, 1, 1, 2, 2, 1, 9, 0 }, 3);
+		assertEquals(8, index.getLineCount(12));
+		assertEquals(0, index.getLineStart(1, 12));
+		assertEquals(1, index.getLineEnd(0, 12));
+		// Spans are clamped to 1..lanes
+		assertEquals(3, index.getSpan(10));
+		assertEquals(1, index.getSpan(11));
+		assertEquals(12, index.getFirstPositionOfLine(8, 12));
+	}
+
+	@Test
+	public void invalidateMatchesFreshPack() {
+		final Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			final int[] spans = randomSpans(random);
+			final SpanIndex index = index(spans, LANES);
+			// Pack some or all of the items
+			final int packed = random.nextInt(ITEM_COUNT);
+			index.getLine(packed, ITEM_COUNT);
+
+			// Change a few spans and invalidate from the first of them
+			final int changed = random.nextInt(ITEM_COUNT);
+			final int length = 1 + random.nextInt(8);
+			for (int i = changed; i < Math.min(ITEM_COUNT, changed + length); i++) {
+				spans[i] = 1 + random.nextInt(LANES);
+			}
+			index.invalidateFrom(changed);
+
+			assertSamePacking("round " + round, index(spans, LANES), index);
+		}
+	}
+
+	@Test
+	public void invalidateAfterPartialPackMatchesFreshPack() {
+		final Random random = new Random(7);
+		final int[] spans = randomSpans(random);
+		final SpanIndex index = index(spans, LANES);
+		index.getLine(100, ITEM_COUNT);
+		spans[150] = LANES;
+		// Past what was packed, nothing to drop
+		index.invalidateFrom(150);
+		assertSamePacking("past packed", index(spans, LANES), index);
+
+		spans[0] = spans[0] == 1 ? LANES : 1;
+		index.invalidateFrom(0);
+		assertSamePacking("from 0", index(spans, LANES), index);
+	}
+
+	@Test
+	public void invalidateRangeMatchesFreshPack() {
+		final Random random = new Random(11);
+		for (int round = 0; round < 200; round++) {
+			final int[] spans = randomSpans(random);
+			final SpanIndex index = index(spans, LANES);
+			final int packed = random.nextInt(ITEM_COUNT);
+			index.getLine(packed, ITEM_COUNT);
+
+			// Several changes in place, each packed again before the next
+			for (int change = 0; change < 3; change++) {
+				final int changed = random.nextInt(ITEM_COUNT);
+				final int length = 1 + random.nextInt(8);
+				final int end = Math.min(ITEM_COUNT, changed + length);
+				for (int i = changed; i < end; i++) {
+					spans[i] = 1 + random.nextInt(LANES);
+				}
+				index.invalidateRange(changed, end - changed);
+			}
+
+			assertSamePacking("round " + round, index(spans, LANES), index);
+		}
+	}
+
+	@Test
+	public void invalidateRangeStopsWhereLinesMatch() {
+		// Sections of a full width header and nine items, which take three lines
+		final int[] spans = new int[ITEM_COUNT];
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			spans[i] = i % 10 == 0 ? LANES : 1;
+		}
+		final GridGeometryTest.ArraySpans provider = new GridGeometryTest.ArraySpans(spans);
+		final SpanIndex index = new SpanIndex();
+		index.setProvider(provider);
+		index.setLanes(LANES);
+		final int lineCount = index.getLineCount(ITEM_COUNT);
+		assertEquals(ITEM_COUNT / 10 * 4, lineCount);
+
+		// Two items now cover three lanes each, pushing items into a new line,
+		// but the lines from the next header on stay as they were
+		spans[41] = 3;
+		spans[42] = 3;
+		provider.mCalls = 0;
+		index.invalidateRange(41, 2);
+		assertTrue("asked for " + provider.mCalls + " spans", provider.mCalls <= 20);
+
+		provider.mCalls = 0;
+		assertEquals(lineCount + 1, index.getLineCount(ITEM_COUNT));
+		assertEquals(0, provider.mCalls);
+		assertSamePacking("spanned", index(spans, LANES), index);
+	}
+
+	private static int[] randomSpans(Random random) {
+		final int[] spans = new int[ITEM_COUNT];
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			spans[i] = 1 + random.nextInt(LANES);
+		}
+		return spans;
+	}
+
+	private static SpanIndex index(int[] spans, int lanes) {
+		final SpanIndex index = new SpanIndex();
+		index.setProvider(new GridGeometryTest.ArraySpans(spans));
+		index.setLanes(lanes);
+		return index;
+	}
+
+	private static void assertSamePacking(String message, SpanIndex expected, SpanIndex actual) {
+		assertEquals(message, expected.getLineCount(ITEM_COUNT), actual.getLineCount(ITEM_COUNT));
+		for (int position = 0; position < ITEM_COUNT; position++) {
+			assertEquals(message + " position " + position, expected.getLine(position, ITEM_COUNT),
+					actual.getLine(position, ITEM_COUNT));
+			assertEquals(message + " position " + position,
+					expected.getLineStart(position, ITEM_COUNT),
+					actual.getLineStart(position, ITEM_COUNT));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.jess.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * A recycled cell of a type with {@link TwoWayAbsListView.UniformItemSizes}
+ * keeps its size, but the views inside it still have to be laid out for the
+ * content they were bound to.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UniformItemSizesTest {
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 800;
+	private static final int CELL_HEIGHT = 100;
+
+	private Activity mActivity;
+	private TwoWayGridView mGrid;
+	private CellAdapter mAdapter;
+
+	@Before
+	public void setUp() {
+		mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+		mGrid = new TwoWayGridView(mActivity);
+		mGrid.setNumColumns(2);
+		mAdapter = new CellAdapter();
+		mGrid.setAdapter(mAdapter);
+		layout();
+	}
+
+	private void layout() {
+		mGrid.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+		mGrid.layout(0, 0, WIDTH, HEIGHT);
+	}
+
+	@Test
+	public void rebindLaysOutChildrenOfCachedCell() {
+		final LinearLayout cell = (LinearLayout) mGrid.getChildAt(0);
+		final TextView text = (TextView) cell.getChildAt(0);
+		assertEquals("item 0", text.getText().toString());
+		assertFalse(text.isLayoutRequested());
+
+		// Rebinding changes the text, which requests a layout through the cell
+		mAdapter.mLabel = "a much longer label for";
+		mAdapter.notifyDataSetChanged();
+		layout();
+
+		assertTrue(mGrid.getChildAt(0) == cell);
+		assertEquals("a much longer label for 0", text.getText().toString());
+		// The cell kept its cached size...
+		assertEquals(CELL_HEIGHT, cell.getHeight());
+		// ...but the text was measured and laid out for its new content
+		assertFalse(text.isLayoutRequested());
+		assertFalse(cell.isLayoutRequested());
+
+		// So a later request from inside the cell reaches the grid again
+		text.requestLayout();
+		assertTrue(mGrid.isLayoutRequested());
+	}
+
+	private final class CellAdapter extends BaseAdapter implements
+			TwoWayAbsListView.UniformItemSizes {
+		String mLabel = "item";
+
+		public int getCount() {
+			return 20;
+		}
+
+		public Object getItem(int position) {
+			return position;
+		}
+
+		public long getItemId(int position) {
+			return position;
+		}
+
+		public boolean hasUniformSize(int viewType) {
+			return true;
+		}
+
+		public View getView(int position, View convertView, ViewGroup parent) {
+			LinearLayout cell = (LinearLayout) convertView;
+			if (cell == null) {
+				cell = new LinearLayout(mActivity);
+				cell.setLayoutParams(new TwoWayAbsListView.LayoutParams(
+						ViewGroup.LayoutParams.FILL_PARENT, CELL_HEIGHT));
+				cell.addView(new TextView(mActivity), new LinearLayout.LayoutParams(
+						ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+			}
+			((TextView) cell.getChildAt(0)).setText(mLabel + " " + position);
+			return cell;
+		}
+	}
+}
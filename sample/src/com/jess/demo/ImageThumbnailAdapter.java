@@ -1,13 +1,18 @@
 package com.jess.demo;
 
 import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -18,12 +23,24 @@ import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.CursorAdapter;
 import android.widget.ImageView;
 
 import com.jess.ui.TwoWayAbsListView;
-
-public class ImageThumbnailAdapter extends CursorAdapter {
+import com.jess.ui.TwoWayPagedAdapter;
+
+/**
+ * Shows the thumbnails of every image in the MediaStore. The query runs on a
+ * background thread, and the rows are read a page at a time from the
+ * cursor around the positions the grid shows, so the UI thread never waits
+ * for the cursor.
+ *
+ * <p>A short query for the first page goes first, so the grid has rows to
+ * show right away. The full query follows, and its count is then reported
+ * as inserted rows, without the grid laying everything out again. The
+ * cursor is only touched on the loader thread, where moving it fills the
+ * CursorWindow around the page being read.</p>
+ */
+public class ImageThumbnailAdapter extends TwoWayPagedAdapter<ImageThumbnailAdapter.Image> {
 	public static final String[] IMAGE_PROJECTION = {
 		MediaStore.Images.ImageColumns._ID,
 		MediaStore.Images.ImageColumns.DISPLAY_NAME,
@@ -36,6 +53,18 @@ public class ImageThumbnailAdapter extends CursorAdapter {
 
 	private static final String TAG = "ImageThumbnailAdapter";
 
+	private static final String SORT_ORDER = MediaStore.Images.ImageColumns.DISPLAY_NAME;
+
+	/**
+	 * Rows read from the cursor at a time
+	 */
+	private static final int PAGE_SIZE = 120;
+
+	/**
+	 * Rows kept in memory
+	 */
+	private static final int MAX_ROWS = PAGE_SIZE * 20;
+
 	private static float IMAGE_WIDTH = 80;
 	private static float IMAGE_HEIGHT = 80;
 	private static float IMAGE_PADDING = 6;
@@ -54,20 +83,143 @@ public class ImageThumbnailAdapter extends CursorAdapter {
 	private int mImageHeight;
 	private int mImagePadding;
 
-	public ImageThumbnailAdapter(Context context, Cursor c) {
-		this(context, c, true);
+	/**
+	 * Runs the queries and reads the pages, so the cursor is only used by
+	 * one thread
+	 */
+	private final ExecutorService mLoaderThread;
+
+	/**
+	 * The full query, only touched on mLoaderThread
+	 */
+	private Cursor mCursor;
+
+	private final ContentObserver mObserver;
+
+	/**
+	 * One row of the query
+	 */
+	public static class Image {
+		public final long mId;
+		public final String mName;
+
+		Image(long id, String name) {
+			mId = id;
+			mName = name;
+		}
 	}
 
-	public ImageThumbnailAdapter(Context context, Cursor c, boolean autoRequery) {
-		super(context, c, autoRequery);
+	public ImageThumbnailAdapter(Context context) {
+		this(context, Executors.newSingleThreadExecutor());
+	}
+
+	private ImageThumbnailAdapter(Context context, ExecutorService loaderThread) {
+		super(loaderThread, PAGE_SIZE, MAX_ROWS);
 		mContext = context;
-		init(c);
+		mLoaderThread = loaderThread;
+		init();
 		mContentResolver = context.getContentResolver();
 		mHandler = new Handler();
+
+		mObserver = new ContentObserver(mHandler) {
+			@Override
+			public void onChange(boolean selfChange) {
+				requery(false);
+			}
+		};
+		mContentResolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+				true, mObserver);
+		requery(true);
+	}
+
+	/**
+	 * Runs the query again on the loader thread and hands the new count to
+	 * the grid.
+	 *
+	 * @param firstPage Whether to read the first page with a short query
+	 *        before running the full one
+	 */
+	private void requery(final boolean firstPage) {
+		mLoaderThread.execute(new Runnable() {
+			public void run() {
+				if (firstPage) {
+					loadFirstPage();
+				}
+
+				final Cursor cursor = mContentResolver.query(
+						MediaStore.Images.Media.EXTERNAL_CONTENT_URI, IMAGE_PROJECTION,
+						null, null, SORT_ORDER);
+				// Counting the rows is what takes seconds on a big library
+				final int count = cursor != null ? cursor.getCount() : 0;
+				if (mCursor != null) {
+					mCursor.close();
+				}
+				mCursor = cursor;
+				if (DEBUG) Log.i(TAG, "requery() count: " + count);
+
+				mHandler.post(new Runnable() {
+					public void run() {
+						final int oldCount = getCount();
+						setCount(count);
+						if (!firstPage && count >= oldCount) {
+							// Rows may have changed anywhere
+							invalidate();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Reads the first page with a query limited to it, which the provider
+	 * answers without counting every row.
+	 */
+	private void loadFirstPage() {
+		final Uri uri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI.buildUpon()
+				.appendQueryParameter("limit", String.valueOf(PAGE_SIZE)).build();
+		final Cursor cursor = mContentResolver.query(uri, IMAGE_PROJECTION, null, null,
+				SORT_ORDER);
+		if (cursor == null) {
+			return;
+		}
+		final List<Image> images = new ArrayList<Image>(PAGE_SIZE);
+		try {
+			while (images.size() < PAGE_SIZE && cursor.moveToNext()) {
+				images.add(new Image(cursor.getLong(IMAGE_ID_COLUMN),
+						cursor.getString(IMAGE_NAME_COLUMN)));
+			}
+		} finally {
+			cursor.close();
+		}
+
+		mHandler.post(new Runnable() {
+			public void run() {
+				if (getCount() == 0) {
+					putPage(0, images);
+					setCount(images.size());
+				}
+			}
+		});
+	}
+
+	@Override
+	protected List<Image> loadPage(int position, int count) {
+		final Cursor cursor = mCursor;
+		if (cursor == null || cursor.isClosed()) {
+			throw new IllegalStateException("No cursor to load rows from");
+		}
+		final List<Image> images = new ArrayList<Image>(count);
+		if (cursor.moveToPosition(position)) {
+			do {
+				images.add(new Image(cursor.getLong(IMAGE_ID_COLUMN),
+						cursor.getString(IMAGE_NAME_COLUMN)));
+			} while (images.size() < count && cursor.moveToNext());
+		}
+		return images;
 	}
-	
-	
-	private void init(Cursor c) {
+
+	private void init() {
 		mDefaultBitmap = BitmapFactory.decodeResource(mContext.getResources(),
 				R.drawable.spinner_black_76);
 
@@ -88,15 +240,20 @@ public class ImageThumbnailAdapter extends CursorAdapter {
 		return 1;
 	}
 
-	@Override
-	public void bindView(View view, Context context, Cursor cursor) {
-		int id = cursor.getInt(IMAGE_ID_COLUMN);
-		((ImageView)view).setImageDrawable(getCachedThumbnailAsync(
-				ContentUris.withAppendedId(MediaStore.Images.Thumbnails.EXTERNAL_CONTENT_URI, id)));
+	public View getView(int position, View convertView, ViewGroup parent) {
+		final ImageView imageView = convertView != null ? (ImageView) convertView : newView();
+		final Image image = getItem(position);
+		if (image != null) {
+			imageView.setImageDrawable(getCachedThumbnailAsync(ContentUris.withAppendedId(
+					MediaStore.Images.Thumbnails.EXTERNAL_CONTENT_URI, image.mId)));
+		} else {
+			// The row is still loading
+			imageView.setImageBitmap(mDefaultBitmap);
+		}
+		return imageView;
 	}
 
-	@Override
-	public View newView(Context context, Cursor cursor, ViewGroup parent) {
+	private ImageView newView() {
 		ImageView imageView = new BetterImageView(mContext.getApplicationContext());
 		imageView.setScaleType(ImageView.ScaleType.FIT_XY);
 		imageView.setLayoutParams(new TwoWayAbsListView.LayoutParams(mImageWidth, mImageHeight));
@@ -105,6 +262,18 @@ public class ImageThumbnailAdapter extends CursorAdapter {
 	}
 
 	public void cleanup() {
+		mContentResolver.unregisterContentObserver(mObserver);
+		// Nothing may reach the loader thread once it is shut down
+		release();
+		mLoaderThread.execute(new Runnable() {
+			public void run() {
+				if (mCursor != null) {
+					mCursor.close();
+					mCursor = null;
+				}
+			}
+		});
+		mLoaderThread.shutdown();
 		cleanupCache();
 	}
 
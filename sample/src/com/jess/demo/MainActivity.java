@@ -3,7 +3,6 @@ package com.jess.demo;
 import android.app.Activity;
 import android.content.ContentUris;
 import android.content.Intent;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -18,7 +17,6 @@ import com.jess.ui.TwoWayGridView;
 public class MainActivity extends Activity {
 	private static final String TAG = "MainActivity";
 
-	private Cursor mImageCursor;
 	private ImageThumbnailAdapter mAdapter;
 	private TwoWayGridView mImageGrid;
 
@@ -31,17 +29,19 @@ public class MainActivity extends Activity {
 
 
 	private void initGrid() {
-		mImageCursor = managedQuery(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-				ImageThumbnailAdapter.IMAGE_PROJECTION, null, null,
-				MediaStore.Images.ImageColumns.DISPLAY_NAME);
 		mImageGrid = (TwoWayGridView) findViewById(R.id.gridview);
-		mAdapter = new ImageThumbnailAdapter(this, mImageCursor);
+		mAdapter = new ImageThumbnailAdapter(this);
 		mImageGrid.setAdapter(mAdapter);
 
 		mImageGrid.setOnItemClickListener(new OnItemClickListener() {
 			public void onItemClick(TwoWayAdapterView parent, View v, int position, long id) {
-				Log.i(TAG, "showing image: " + mImageCursor.getString(ImageThumbnailAdapter.IMAGE_NAME_COLUMN));
-				Uri uri = ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
+				ImageThumbnailAdapter.Image image = mAdapter.getItem(position);
+				if (image == null) {
+					// Still loading
+					return;
+				}
+				Log.i(TAG, "showing image: " + image.mName);
+				Uri uri = ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, image.mId);
 				Intent intent = new Intent(Intent.ACTION_VIEW, uri);
 				startActivity(intent);
 			}